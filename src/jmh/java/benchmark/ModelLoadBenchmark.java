@@ -0,0 +1,94 @@
+package benchmark;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import application.AnimationHandler;
+import datamodel.SolarSystemModel;
+import datamodel.StarSystemModel;
+import datamodel.SystemGenerator;
+
+/**
+ * Construction of the model from SolarSystemData.json and from generated catalogs in the JSON and in the binary
+ * format, and of all delegates, orbits and the hierarchy of a generated catalog as the scene creates them
+ * without streaming. Runs headless.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ModelLoadBenchmark {
+	/**
+	 * planets x moons per planet of the generated catalog
+	 */
+	@Param({ "10x10", "20x50" })
+	public String catalog;
+
+	private String json;
+	private File binary;
+
+	@Setup
+	public void setup() throws IOException {
+		String[] size = catalog.split("x");
+		SystemGenerator generator = new SystemGenerator.Builder(42)
+				.planets(Integer.parseInt(size[0]))
+				.moonsPerPlanet(Integer.parseInt(size[1]))
+				.build();
+		StringWriter writer = new StringWriter();
+		generator.writeJson(writer);
+		json = writer.toString();
+		binary = File.createTempFile("catalog", ".ssc");
+		try (OutputStream out = new FileOutputStream(binary)) {
+			generator.writeBinary(out);
+		}
+	}
+
+	@TearDown
+	public void tearDown() {
+		binary.delete();
+	}
+
+	@Benchmark
+	public StarSystemModel loadSolarSystem() {
+		return new SolarSystemModel("/datamodel/SolarSystemData.json");
+	}
+
+	@Benchmark
+	public StarSystemModel loadJson() {
+		return new SolarSystemModel(new StringReader(json), catalog);
+	}
+
+	@Benchmark
+	public StarSystemModel loadBinary() {
+		return new SolarSystemModel(binary.getPath());
+	}
+
+	@Benchmark
+	public StarSystemModel createDelegates() {
+		StarSystemModel model = new SolarSystemModel(new StringReader(json), catalog);
+		model.getStar().createDelegates();
+		// the transitions and timers would pile up in the animation handler
+		AnimationHandler.getInstance().remove(model.getAstronomicalObjects());
+		return model;
+	}
+}
@@ -0,0 +1,91 @@
+package benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import util.BoundingVolumeHierarchy;
+
+/**
+ * Ray picking against N bodies with the bounding volume hierarchy used by StarSystemScene.traverseNodes:
+ * a single ray cast, the per frame refit and the periodic rebuild. Runs headless.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PickingBenchmark {
+	private static final int RAYS = 1024;
+
+	@Param({ "32", "256", "4096" })
+	public int bodies;
+
+	private final BoundingVolumeHierarchy hierarchy = new BoundingVolumeHierarchy();
+	private double[] centers;
+	private double[] radii;
+	private final double[] rays = new double[RAYS * 6];
+	private int ray = 0;
+
+	@Setup
+	public void setup() {
+		Random random = new Random(42);
+		centers = new double[bodies * 3];
+		radii = new double[bodies];
+		// bodies spread over a disc like the orbital plane, the camera looks at the disc from above
+		for (int i = 0; i < bodies; i++) {
+			double distance = 100 + random.nextDouble() * 100000;
+			double angle = random.nextDouble() * 2 * Math.PI;
+			centers[i * 3] = distance * Math.cos(angle);
+			centers[i * 3 + 1] = distance * Math.sin(angle);
+			centers[i * 3 + 2] = random.nextGaussian() * 500;
+			radii[i] = 1 + random.nextDouble() * 50;
+		}
+		for (int i = 0; i < RAYS; i++) {
+			// aim at a body most of the time, the rest misses
+			int target = random.nextInt(bodies);
+			double tx = centers[target * 3] + (random.nextDouble() - 0.5) * 100;
+			double ty = centers[target * 3 + 1] + (random.nextDouble() - 0.5) * 100;
+			double tz = centers[target * 3 + 2];
+			double ox = 0, oy = -50000, oz = -150000;
+			double dx = tx - ox, dy = ty - oy, dz = tz - oz;
+			double length = Math.sqrt(dx * dx + dy * dy + dz * dz);
+			rays[i * 6] = ox;
+			rays[i * 6 + 1] = oy;
+			rays[i * 6 + 2] = oz;
+			rays[i * 6 + 3] = dx / length;
+			rays[i * 6 + 4] = dy / length;
+			rays[i * 6 + 5] = dz / length;
+		}
+		hierarchy.build(centers, radii, bodies);
+	}
+
+	@Benchmark
+	public int intersect() {
+		int r = ray;
+		ray = (ray + 1) & (RAYS - 1);
+		return hierarchy.intersect(rays[r * 6], rays[r * 6 + 1], rays[r * 6 + 2], rays[r * 6 + 3], rays[r * 6 + 4], rays[r * 6 + 5]);
+	}
+
+	@Benchmark
+	public void refit() {
+		hierarchy.refit();
+	}
+
+	@Benchmark
+	public void build() {
+		hierarchy.build(centers, radii, bodies);
+	}
+}
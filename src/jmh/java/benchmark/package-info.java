@@ -0,0 +1,17 @@
+/**
+ * JMH benchmarks of the performance critical paths, kept apart from the application in src/jmh/java.
+ *
+ * The benchmarks are compiled against the application classes, the libs folder, JavaFX and JMH with the
+ * JMH annotation processor (jmh-generator-annprocess), e.g. by the Gradle JMH plugin which picks up this
+ * source folder. Without a build tool:
+ *
+ * <pre>
+ * javac -cp bin:libs/*:$JAVAFX/lib/*:jmh-core.jar:jmh-generator-annprocess.jar -d build/jmh $(find src/jmh/java -name '*.java')
+ * java -cp build/jmh:bin:src/main/resources:libs/*:$JAVAFX/lib/*:jmh-core.jar org.openjdk.jmh.Main -rf json
+ * </pre>
+ *
+ * Run them from the project directory so config.properties and the resources are found. All benchmarks run
+ * headless except util.CameraBenchmark which starts the FX toolkit. Record a baseline with -rf json before a
+ * performance change and compare the results after it.
+ */
+package benchmark;
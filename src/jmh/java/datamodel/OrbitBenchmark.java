@@ -0,0 +1,49 @@
+package datamodel;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Orbit geometry of all planets and moons of the solar system with createEllipticalOrbit, which includes
+ * the size of the satellite systems the orbits are fitted to. In the package datamodel as the method is
+ * package-private. Runs headless.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OrbitBenchmark {
+	private final List<AstronomicalObject> orbiting = new ArrayList<>();
+
+	@Setup
+	public void setup() {
+		StarSystemModel model = new SolarSystemModel("/datamodel/SolarSystemData.json");
+		for (AstronomicalObject object : model.getAstronomicalObjects()) {
+			if (object.hasOrbit()) {
+				orbiting.add(object);
+			}
+		}
+	}
+
+	@Benchmark
+	public void createEllipticalOrbits(Blackhole blackhole) {
+		for (AstronomicalObject object : orbiting) {
+			blackhole.consume(object.createEllipticalOrbit(false));
+		}
+	}
+}
@@ -0,0 +1,88 @@
+package util;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import application.StarSystemScene;
+import javafx.application.Platform;
+import javafx.geometry.Point3D;
+import javafx.scene.Group;
+import javafx.stage.Stage;
+
+/**
+ * Sequences of SmartScene.rotate and translate as they are issued by a drag or the keys.
+ *
+ * A SmartScene needs a Stage, so this benchmark starts the FX toolkit and needs a display. The scene is never
+ * shown, so the camera transform is modified on the benchmark thread.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CameraBenchmark {
+	private static final int STEPS = 16;
+
+	private SmartScene scene;
+	private final Point3D pivot = new Point3D(0, 0, 0);
+
+	@Setup
+	public void setup() throws Exception {
+		CompletableFuture<SmartScene> created = new CompletableFuture<>();
+		Platform.startup(() -> created.complete(new StarSystemScene(new Group(), new Stage())));
+		scene = created.get(30, TimeUnit.SECONDS);
+	}
+
+	@Setup(Level.Iteration)
+	public void resetCamera() {
+		scene.cameraTransform.setToIdentity();
+		scene.cameraTransform.appendTranslation(0, 0, -10000);
+	}
+
+	@TearDown
+	public void tearDown() {
+		Platform.exit();
+	}
+
+	/**
+	 * a drag with the primary button: small rotations around two axes
+	 */
+	@Benchmark
+	public void rotateSequence() {
+		for (int i = 0; i < STEPS; i++) {
+			scene.rotate(pivot, 0.5, -0.25, 0);
+		}
+		for (int i = 0; i < STEPS; i++) {
+			scene.rotate(pivot, -0.5, 0.25, 0);
+		}
+	}
+
+	/**
+	 * a drag with the secondary button and a zoom back and forth, every step runs the clip distance check
+	 */
+	@Benchmark
+	public void translateSequence() {
+		for (int i = 0; i < STEPS; i++) {
+			scene.translate(2, -1, 0);
+			scene.zoom(25);
+		}
+		for (int i = 0; i < STEPS; i++) {
+			scene.translate(-2, 1, 0);
+			scene.zoom(-25);
+		}
+	}
+}
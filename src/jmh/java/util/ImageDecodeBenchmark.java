@@ -0,0 +1,56 @@
+package util;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javafx.scene.image.Image;
+
+/**
+ * Decode throughput of the textures: ResourceLoader.loadImage with an empty texture cache, which is what the
+ * application pays for every new texture, and decodeImage at a lower LOD level. Whether the raw texture cache
+ * is used depends on texture.rawcache.enabled in config.properties of the working directory. Runs headless.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ImageDecodeBenchmark {
+	@Param({ "2k_earth.jpg", "2k_jupiter.jpg" })
+	public String resource;
+
+	@Param({ "0", "2" })
+	public int lod;
+
+	private final ResourceLoader loader = ResourceLoader.getInstance();
+
+	@Setup(Level.Invocation)
+	public void clearCache() {
+		// a decode takes milliseconds, the cost of the invocation level setup does not matter
+		loader.getTextureCache().clear();
+	}
+
+	@Benchmark
+	public Image loadImage() {
+		if (lod != 0) return loader.getTextureCache().getImage(resource, lod);
+		return loader.loadImage(resource);
+	}
+
+	@Benchmark
+	public Image decodeImage() {
+		return loader.decodeImage(resource, lod);
+	}
+}
@@ -1,19 +1,30 @@
 package application;
 
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
+import javafx.animation.Animation;
 import javafx.animation.AnimationTimer;
-import javafx.animation.PathTransition;
+import javafx.animation.Transition;
 import javafx.util.Duration;
+import util.Log;
+import util.Metrics;
 /**
  * Singleton class which provides a well known access point for all AnimationTimer and Transition
  * 
- * There are only 5 public methods available
+ * There are only a few public methods available
  * - getInstance
  * - addTransition
  * - addAnimationTimer
  * - start
  * - stop
+ * - suspend / resume the animations of a single owner e.g. the moons of a far away planet
  * 
  * Provide for more functionality to slow down /speed up the rotation / orbital transits
  * 
@@ -26,20 +37,44 @@ import javafx.util.Duration;
 public class AnimationHandler {
 	private final static AnimationHandler instance = new AnimationHandler();
 
-	LinkedList<PathTransition> transitions = new LinkedList<>();
+	LinkedList<Transition> transitions = new LinkedList<>();
 	/*
-	 * List of timers for the transitions, updated when the animation is stopped and read when
+	 * Timers of the transitions, updated when the animation is stopped and read when
 	 * animation continues
 	 */
-	LinkedList<Duration> runningTimer = new LinkedList<>();
+	Map<Transition, Duration> runningTimer = new IdentityHashMap<>();
 	LinkedList<AnimationTimer> animationTimers = new LinkedList<>();
 
+	/*
+	 * Transitions and timers registered for an owner so they can be suspended together
+	 */
+	private final Map<Object, List<Transition>> ownedTransitions = new IdentityHashMap<>();
+	private final Map<Object, List<AnimationTimer>> ownedTimers = new IdentityHashMap<>();
+	/*
+	 * Suspended owners and the time they were suspended in nanoseconds
+	 */
+	private final Map<Object, Long> suspended = new IdentityHashMap<>();
+	private final Map<Object, Integer> suspendCount = new IdentityHashMap<>();
+	private final Set<Object> suspendedAnimations = Collections.newSetFromMap(new IdentityHashMap<>());
+
 	private boolean running = false;
+	/*
+	 * Factor for the rate of all transitions, the speed of the simulation
+	 */
+	private double rate = 1;
+	/*
+	 * Simulated milliseconds since the start or the last seek, summed up to clockStart, see getStartTime
+	 */
+	private double clockMillis = 0;
+	private long clockStart = 0;
+	private Duration seekTime = null;
 
 	/*
 	 * only constructor private to ensure singleton
 	 */
 	private AnimationHandler() {
+		Metrics.getInstance().gauge("animations", () -> transitions.size() + animationTimers.size());
+		Metrics.getInstance().gauge("animations.suspended", () -> suspendedAnimations.size());
 	}
 
 	public static AnimationHandler getInstance() {
@@ -47,17 +82,43 @@ public class AnimationHandler {
 	}
 	
 	/**
-	 * Add a PathTransition object to the list of managed transitions.
+	 * Add a Transition object to the list of managed transitions.
 	 * transitions are used for orbital movements of astronomical objects
 	 * Ensure non null and non duplicate
 	 */
-	public void addTransition(PathTransition t) {
+	public void addTransition(Transition t) {
+		if (t == null || runningTimer.containsKey(t)) return;
+		t.setRate(rate);
+		transitions.add(t);
+		runningTimer.put(t, t.getCurrentTime());
+	}
+	/**
+	 * Add a Transition object which belongs to the given owner, see {@link #suspend(Object)}.
+	 * It is played right away if the animations are running and the owner is not suspended.
+	 */
+	public void addTransition(Object owner, Transition t) {
 		if (t == null) return;
-		for(PathTransition transition : transitions) {
-			if (t.equals(transition)) return;
+		addTransition(t);
+		ownedTransitions.computeIfAbsent(owner, o -> new LinkedList<>()).add(t);
+		if (suspended.containsKey(owner)) {
+			suspendedAnimations.add(t);
+		} else if (running) {
+			t.play();
+		}
+	}
+	/**
+	 * Add a AnimationTimer object which belongs to the given owner, see {@link #suspend(Object)}.
+	 * It is started right away if the animations are running and the owner is not suspended.
+	 */
+	public void addAnimationTimer(Object owner, AnimationTimer a) {
+		if (a == null) return;
+		addAnimationTimer(a);
+		ownedTimers.computeIfAbsent(owner, o -> new LinkedList<>()).add(a);
+		if (suspended.containsKey(owner)) {
+			suspendedAnimations.add(a);
+		} else if (running) {
+			a.start();
 		}
-		transitions.add(t);
-		runningTimer.add(t.getCurrentTime());
 	}
 	/**
 	 * Add a AnimationTimer object to the list of managed animation timers.
@@ -72,7 +133,7 @@ public class AnimationHandler {
 		animationTimers.add(a);
 	}
 //	public void start(Duration from) {
-//		for(PathTransition t : transitions) {
+//		for(Transition t : transitions) {
 //			t.playFrom(from);
 //		}
 //		for(AnimationTimer a : animationTimers) {
@@ -81,22 +142,27 @@ public class AnimationHandler {
 //		running = true;
 //	}
 	public void start() {
-		for(PathTransition t : transitions) {
+		advanceClock();
+		for(Transition t : transitions) {
+			if (suspendedAnimations.contains(t)) continue;
 			t.play();
 		}
 		for(AnimationTimer a : animationTimers) {
+			if (suspendedAnimations.contains(a)) continue;
 			a.start();
 		}
 		running = true;
 	}
 	public void unpause() {
-		int i = 0;
-		for(PathTransition t : transitions) {
-			Duration from = runningTimer.get(i++);
-			System.out.println("(unpause) " + from);
+		advanceClock();
+		for(Transition t : transitions) {
+			Duration from = runningTimer.get(t);
+			if (suspendedAnimations.contains(t)) continue;
+			Log.ANIMATION.trace("(unpause) ", from);
 			t.playFrom(from);
 		}
 		for(AnimationTimer a : animationTimers) {
+			if (suspendedAnimations.contains(a)) continue;
 			a.start();
 		}
 		running = true;
@@ -104,10 +170,9 @@ public class AnimationHandler {
 	public void pause() {
 		// we only need to save the state of the transitions, the animation timers used for rotation
 		// don't have a meaningful state
-		int i = 0;
-		for(PathTransition t : transitions) {
-			Duration from = t.getCurrentTime();
-			runningTimer.set(i++, from);
+		advanceClock();
+		for(Transition t : transitions) {
+			runningTimer.put(t, t.getCurrentTime());
 			t.stop();
 		}
 		for(AnimationTimer a : animationTimers) {
@@ -116,7 +181,8 @@ public class AnimationHandler {
 		running = false;
 	}
 	public void stop() {
-		for(PathTransition t : transitions) {
+		advanceClock();
+		for(Transition t : transitions) {
 			t.stop();
 		}
 		for(AnimationTimer a : animationTimers) {
@@ -124,6 +190,187 @@ public class AnimationHandler {
 		}
 		running = false;
 	}
+	/**
+	 * Moves every transition to the given time and stops all animations, so every run of a benchmark
+	 * renders the bodies at the same positions. {@link #unpause()} continues from there.
+	 */
+	public void seek(Duration time) {
+		advanceClock();
+		clockMillis = 0;
+		seekTime = time;
+		for(Transition t : transitions) {
+			double cycle = t.getCycleDuration().toMillis();
+			Duration at = cycle > 0 ? Duration.millis(time.toMillis() % cycle) : Duration.ZERO;
+			moveTo(t, at);
+			runningTimer.put(t, at);
+		}
+		for(AnimationTimer a : animationTimers) {
+			a.stop();
+		}
+		running = false;
+	}
+	/**
+	 * Moves the transition to the time and leaves it paused, so its node is at the position of the time
+	 */
+	private static void moveTo(Transition t, Duration at) {
+		// a stopped transition does not interpolate on jumpTo, a paused one does
+		if (t.getStatus() == Animation.Status.STOPPED) t.play();
+		t.jumpTo(at);
+		t.pause();
+	}
+	/**
+	 * Stops all transitions and timers of the owner until {@link #resume(Object)} is called.
+	 * Nothing is updated for the owner while suspended.
+	 * The calls are counted, the owner continues after the same number of calls to {@link #resume(Object)}.
+	 */
+	public void suspend(Object owner) {
+		if (suspendCount.merge(owner, 1, Integer::sum) > 1) return;
+		suspended.put(owner, System.nanoTime());
+		for(Transition t : ownedTransitions.getOrDefault(owner, Collections.emptyList())) {
+			suspendedAnimations.add(t);
+			if (running) t.pause();
+		}
+		for(AnimationTimer a : ownedTimers.getOrDefault(owner, Collections.emptyList())) {
+			suspendedAnimations.add(a);
+			a.stop();
+		}
+	}
+	/**
+	 * Continues the transitions and timers of the owner.
+	 * The transitions are advanced by the time they were suspended so the objects are where they would be
+	 * without the suspension, the rotation timers catch up on their own.
+	 */
+	public void resume(Object owner) {
+		Integer count = suspendCount.get(owner);
+		if (count == null) return;
+		if (count > 1) {
+			suspendCount.put(owner, count - 1);
+			return;
+		}
+		suspendCount.remove(owner);
+		Long since = suspended.remove(owner);
+		double elapsed = (System.nanoTime() - since) / 1e6;
+		for(Transition t : ownedTransitions.getOrDefault(owner, Collections.emptyList())) {
+			suspendedAnimations.remove(t);
+			if (!running) {
+				// a transition added while suspended has not moved its node yet
+				if (t.getStatus() == Animation.Status.STOPPED) moveTo(t, getCurrentTime(t));
+				continue;
+			}
+			double cycle = t.getCycleDuration().toMillis();
+			double time = t.getCurrentTime().toMillis() + elapsed * t.getRate();
+			if (cycle > 0) time = ((time % cycle) + cycle) % cycle;
+			t.jumpTo(Duration.millis(time));
+			t.play();
+		}
+		for(AnimationTimer a : ownedTimers.getOrDefault(owner, Collections.emptyList())) {
+			suspendedAnimations.remove(a);
+			if (running) a.start();
+		}
+	}
+	/**
+	 * Stops and forgets all transitions and timers of the owners, e.g. of the bodies of a closed window.
+	 * Without this the animations of every window ever opened keep running and keep their scene graph alive.
+	 */
+	public void remove(Collection<?> owners) {
+		remove(owners, true);
+	}
+	/**
+	 * Stops and forgets the transitions and timers of the owner, e.g. when its delegates are released.
+	 * Unlike {@link #remove(Collection)} a suspension is kept and applies to the animations added later.
+	 */
+	public void removeAnimations(Object owner) {
+		remove(Collections.singleton(owner), false);
+	}
+	/**
+	 * @return the time of the transition, for a stopped transition the time it continues from
+	 */
+	public Duration getCurrentTime(Transition t) {
+		Duration from = runningTimer.get(t);
+		if (from == null || t.getStatus() != Animation.Status.STOPPED) return t.getCurrentTime();
+		return from;
+	}
+	private void remove(Collection<?> owners, boolean suspensions) {
+		Set<Object> removed = Collections.newSetFromMap(new IdentityHashMap<>());
+		for (Object owner : owners) {
+			List<Transition> ownedT = ownedTransitions.remove(owner);
+			if (ownedT != null) removed.addAll(ownedT);
+			List<AnimationTimer> ownedA = ownedTimers.remove(owner);
+			if (ownedA != null) removed.addAll(ownedA);
+			if (!suspensions) continue;
+			suspended.remove(owner);
+			suspendCount.remove(owner);
+		}
+		if (removed.isEmpty()) return;
+		Iterator<Transition> t = transitions.iterator();
+		while (t.hasNext()) {
+			Transition transition = t.next();
+			if (!removed.contains(transition)) continue;
+			transition.stop();
+			t.remove();
+			runningTimer.remove(transition);
+		}
+		Iterator<AnimationTimer> a = animationTimers.iterator();
+		while (a.hasNext()) {
+			AnimationTimer animationTimer = a.next();
+			if (!removed.contains(animationTimer)) continue;
+			animationTimer.stop();
+			a.remove();
+		}
+		suspendedAnimations.removeAll(removed);
+	}
+	/**
+	 * Sets the speed of the simulation as factor of the rate of all transitions
+	 */
+	public void setRate(double rate) {
+		advanceClock();
+		this.rate = rate;
+		for(Transition t : transitions) {
+			t.setRate(rate);
+		}
+	}
+	public double getRate() {
+		return rate;
+	}
+	/**
+	 * Sums up the simulated time up to now, called before the running state or the rate changes
+	 */
+	private void advanceClock() {
+		long now = System.nanoTime();
+		if (running) clockMillis += (now - clockStart) / 1e6 * rate;
+		clockStart = now;
+	}
+	/**
+	 * @param start the time of a transition at the start of the animations in milliseconds
+	 * @return the time a transition added now continues from so it is where it would be if it had been added
+	 * at the start: the start time, or the time of the last {@link #seek(Duration)}, advanced by the simulated
+	 * time since. The caller wraps it into the cycle.
+	 */
+	public double getStartTime(double start) {
+		double elapsed = clockMillis + (running ? (System.nanoTime() - clockStart) / 1e6 * rate : 0);
+		return (seekTime != null ? seekTime.toMillis() : start) + elapsed;
+	}
+	/**
+	 * @return the simulated milliseconds the transitions of a suspended owner are advanced by when it is resumed now,
+	 * 0 if the owner is not suspended
+	 */
+	public double getSuspendedMillis(Object owner) {
+		Long since = suspended.get(owner);
+		if (since == null || !running) return 0;
+		return (System.nanoTime() - since) / 1e6 * rate;
+	}
+	public int getTransitionCount() {
+		return transitions.size();
+	}
+	public int getAnimationTimerCount() {
+		return animationTimers.size();
+	}
+	public boolean isRunning() {
+		return running;
+	}
+	public boolean isSuspended(Object owner) {
+		return suspended.containsKey(owner);
+	}
 	public void toggle() {
 		if (running) {
 			pause();
@@ -0,0 +1,125 @@
+package application;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.Map;
+
+import javafx.animation.AnimationTimer;
+import javafx.application.Platform;
+import javafx.stage.Stage;
+import javafx.util.Duration;
+import util.CameraPath;
+import util.FrameTimeRecorder;
+import util.SmartApplication;
+
+/**
+ * Render benchmark: loads a star system into the same Stage3D and StarSystemScene as the TestSuite, freezes the
+ * animations at a fixed simulation time and replays a recorded camera path (F5 in the 3D window records one).
+ * The frame times of the replay are reported as average FPS, 1% lows and a histogram.
+ *
+ * Parameters, all optional:
+ * <pre>
+ * --catalog=/datamodel/SolarSystemData.json  the star system data
+ * --path=/benchmark/solar-tour.path          the camera path, a file or a resource
+ * --time=0                                   the animation time in seconds the bodies are frozen at
+ * --warmup=120                               frames rendered before the replay starts
+ * --runs=3                                   number of replays, the report covers all of them
+ * --report=flight-report.txt                 the report, the frame times go to the same name with .csv
+ * </pre>
+ * V-sync and the pulse limit are switched off unless prism.vsync or javafx.animation.fullspeed are set,
+ * otherwise every result would be capped at the refresh rate.
+ */
+public class FlightBenchmark extends SmartApplication {
+	public static final String DEFAULT_PATH = "/benchmark/solar-tour.path";
+
+	private final FrameTimeRecorder recorder = new FrameTimeRecorder();
+	private Stage3D<FlightBenchmark> stage;
+	private CameraPath path;
+	private int warmup;
+	private int runs;
+	private int run = 0;
+	private int frame = 0;
+	private File report;
+
+	@Override
+	public void start(Stage primaryStage) {
+		try {
+			Map<String, String> parameters = getParameters().getNamed();
+			path = CameraPath.load(parameters.getOrDefault("path", DEFAULT_PATH));
+			if (path == null) {
+				Platform.exit();
+				return;
+			}
+			warmup = Integer.parseInt(parameters.getOrDefault("warmup", "120"));
+			runs = Math.max(1, Integer.parseInt(parameters.getOrDefault("runs", "3")));
+			report = new File(parameters.getOrDefault("report", "flight-report.txt"));
+			double time = Double.parseDouble(parameters.getOrDefault("time", "0"));
+
+			stage = new Stage3D<FlightBenchmark>(null, parameters.get("catalog"));
+			stage.setApplication(this);
+			stage.init();
+			stage.getSubScene().addFrameListener(recorder);
+			AnimationHandler.getInstance().start();
+			AnimationHandler.getInstance().seek(Duration.seconds(time));
+			stage.show();
+
+			// the timer keeps the pulses going while the path does not move the camera
+			new AnimationTimer() {
+				@Override
+				public void handle(long now) {
+					step(this);
+				}
+			}.start();
+		} catch (Exception e) {
+			e.printStackTrace();
+			Platform.exit();
+		}
+	}
+
+	/**
+	 * Called once per pulse before the layout: warms up, then replays the path runs times
+	 */
+	private void step(AnimationTimer timer) {
+		if (frame < warmup) {
+			frame++;
+			return;
+		}
+		if (frame == warmup) {
+			path.rewind();
+			if (run == 0) recorder.start();
+		}
+		if (path.apply(stage.getSubScene(), frame - warmup)) {
+			frame++;
+			return;
+		}
+		// the camera starts every run from the same position
+		stage.getSubScene().resetCameraPosition();
+		frame = warmup;
+		if (++run < runs) return;
+
+		timer.stop();
+		recorder.stop();
+		writeReport();
+		Platform.exit();
+	}
+
+	private void writeReport() {
+		String title = "flight benchmark " + getParameters().getNamed() + ", " + runs + " x " + path.getLength() + " frames";
+		recorder.report(title, System.out);
+		try (PrintStream out = new PrintStream(new FileOutputStream(report), true, "UTF-8")) {
+			recorder.report(title, out);
+			String name = report.getName().replaceFirst("\\.[^.]*$", "");
+			recorder.writeFrames(new File(report.getAbsoluteFile().getParentFile(), name + ".csv"));
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	public static void main(String[] args) {
+		if (System.getProperty("prism.vsync") == null) System.setProperty("prism.vsync", "false");
+		if (System.getProperty("javafx.animation.fullspeed") == null) System.setProperty("javafx.animation.fullspeed", "true");
+		launch(args);
+	}
+}
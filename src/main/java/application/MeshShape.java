@@ -3,13 +3,15 @@ package application;
 import com.interactivemesh.jfx.importer.obj.ObjModelImporter;
 
 import javafx.scene.shape.MeshView;
+import util.StartupTrace;
 
 public class MeshShape {
 
+	@SuppressWarnings("try")
 	static MeshView[] loadMeshViews(String filename) {
 		ObjModelImporter importer = new ObjModelImporter();
 		MeshView[] meshViews = null;
-		try {
+		try (StartupTrace.Span span = StartupTrace.begin("loadMeshViews", "obj", filename)) {
 			importer.read(filename);
 			meshViews = importer.getImport();
 		} catch (Exception e){
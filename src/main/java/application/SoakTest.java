@@ -0,0 +1,273 @@
+package application;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+import datamodel.AstronomicalObject;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.application.Platform;
+import javafx.scene.Node;
+import javafx.scene.Parent;
+import javafx.scene.SubScene;
+import javafx.stage.Stage;
+import javafx.stage.Window;
+import javafx.util.Duration;
+import util.Histogram;
+import util.Metrics;
+import util.SmartApplication;
+import util.SmartSphere;
+
+/**
+ * Soak test: keeps opening and closing Stage3D windows for hours, while a window is open it switches the chase
+ * camera between random bodies and changes the time scale. After every window one sample is taken with the
+ * window closed and the heap collected, so a sample only grows if something leaks:
+ * the heap after GC, the scenes which are still reachable, the nodes of all open windows and the transitions
+ * and timers of the AnimationHandler. The frame times of the window are sampled while it is open.
+ *
+ * The samples are written as CSV, the summary flags every value which grows monotonically over the run.
+ *
+ * Parameters, all optional:
+ * <pre>
+ * --catalog=/datamodel/SolarSystemData.json  the star system data
+ * --hours=4                                  the duration of the run
+ * --window=60                                seconds each window stays open
+ * --switch=5                                 seconds between chase camera and time scale changes
+ * --seed=1                                   seed of the random choices
+ * --report=soak-report.csv                   the samples, the summary goes to the same name with .txt
+ * </pre>
+ */
+public class SoakTest extends SmartApplication {
+	private static final String[] COLUMNS = { "heap.bytes", "scenes.live", "nodes", "transitions", "timers", "frame.p50.ms", "frame.p99.ms" };
+	/**
+	 * Values are compared between the first and the last third of the run, a value grows if every sample of
+	 * the last third is above every sample of the first third and it grew by more than this fraction
+	 */
+	private static final double GROWTH_THRESHOLD = 0.05;
+	private static final int MIN_SAMPLES = 6;
+
+	private final Histogram frameTime = Metrics.getInstance().histogram(Metrics.FRAME);
+	private final long[] frameCounts = new long[Histogram.BUCKETS];
+	private final long[] frameBase = new long[Histogram.BUCKETS];
+	private final List<WeakReference<StarSystemScene>> scenes = new ArrayList<>();
+	private final List<double[]> samples = new ArrayList<>();
+	private final List<Long> sampleTimes = new ArrayList<>();
+	private Random random;
+	private String catalog;
+	private long end;
+	private int window;
+	private int switchInterval;
+	private File report;
+
+	private Stage3D<SoakTest> stage = null;
+	private int seconds = 0;
+	private long start;
+	private double p50, p99;
+
+	@Override
+	public void start(Stage primaryStage) {
+		// the primary stage is never shown, without this closing the first window ends the run
+		Platform.setImplicitExit(false);
+		Map<String, String> parameters = getParameters().getNamed();
+		catalog = parameters.get("catalog");
+		window = Math.max(2, Integer.parseInt(parameters.getOrDefault("window", "60")));
+		switchInterval = Math.max(1, Integer.parseInt(parameters.getOrDefault("switch", "5")));
+		random = new Random(Long.parseLong(parameters.getOrDefault("seed", "1")));
+		report = new File(parameters.getOrDefault("report", "soak-report.csv"));
+		start = System.nanoTime();
+		end = start + (long) (Double.parseDouble(parameters.getOrDefault("hours", "4")) * 3600e9);
+
+		Timeline timeline = new Timeline(new KeyFrame(Duration.seconds(1), event -> tick()));
+		timeline.setCycleCount(Timeline.INDEFINITE);
+		timeline.play();
+	}
+
+	/**
+	 * Called every second: opens a window, changes the view while it is open, closes it and takes the sample
+	 */
+	private void tick() {
+		try {
+			if (stage == null) {
+				if (System.nanoTime() > end) {
+					finish();
+					return;
+				}
+				open();
+			} else if (++seconds >= window) {
+				close();
+				sample();
+			} else if (seconds % switchInterval == 0) {
+				change();
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+			finish();
+		}
+	}
+
+	private void open() {
+		stage = new Stage3D<SoakTest>(null, catalog);
+		stage.setApplication(this);
+		stage.init();
+		scenes.add(new WeakReference<>((StarSystemScene) stage.getSubScene()));
+		AnimationHandler.getInstance().start();
+		stage.show();
+		seconds = 0;
+		frameTime.copyCounts(frameBase);
+	}
+
+	/**
+	 * Focuses a random body or goes back to the free camera and sets a random time scale
+	 */
+	private void change() {
+		StarSystemScene scene = (StarSystemScene) stage.getSubScene();
+		List<SmartSphere<AstronomicalObject>> spheres = scene.getStarSystem().getVisualDelegates();
+		if (spheres.isEmpty() || random.nextInt(5) == 0) {
+			scene.releaseChaseCam();
+		} else {
+			scene.onMouseClicked(spheres.get(random.nextInt(spheres.size())));
+		}
+		AnimationHandler.getInstance().setRate(Math.pow(10, random.nextDouble() * 2 - 1));
+	}
+
+	private void close() {
+		frameTime.copyCounts(frameCounts);
+		p50 = Histogram.percentile(frameCounts, frameBase, 50) / 1e6;
+		p99 = Histogram.percentile(frameCounts, frameBase, 99) / 1e6;
+		stage.close();
+		stage = null;
+		AnimationHandler.getInstance().setRate(1);
+	}
+
+	private void sample() {
+		System.gc();
+		System.runFinalization();
+		System.gc();
+		int live = 0;
+		for (Iterator<WeakReference<StarSystemScene>> i = scenes.iterator(); i.hasNext();) {
+			if (i.next().get() == null) {
+				i.remove();
+			} else {
+				live++;
+			}
+		}
+		int nodes = 0;
+		for (Window w : Window.getWindows()) {
+			if (w.getScene() != null) nodes += countNodes(w.getScene().getRoot());
+		}
+		AnimationHandler animations = AnimationHandler.getInstance();
+		samples.add(new double[] {
+				ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed(), live, nodes,
+				animations.getTransitionCount(), animations.getAnimationTimerCount(), p50, p99 });
+		sampleTimes.add((System.nanoTime() - start) / 1_000_000_000L);
+		writeSamples();
+	}
+
+	private static int countNodes(Node node) {
+		int count = 1;
+		if (node instanceof SubScene) count += countNodes(((SubScene) node).getRoot());
+		if (node instanceof Parent) {
+			for (Node child : ((Parent) node).getChildrenUnmodifiable()) {
+				count += countNodes(child);
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * The samples are rewritten after every window, so a run which is killed still leaves its data
+	 */
+	private void writeSamples() {
+		try (PrintWriter out = new PrintWriter(report, "UTF-8")) {
+			out.println("seconds," + String.join(",", COLUMNS));
+			for (int i = 0; i < samples.size(); i++) {
+				StringBuilder line = new StringBuilder().append(sampleTimes.get(i));
+				for (double v : samples.get(i)) line.append(String.format(Locale.ROOT, ",%.3f", v));
+				out.println(line);
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	private void finish() {
+		if (stage != null) close();
+		String name = report.getName().replaceFirst("\\.[^.]*$", "");
+		File summary = new File(report.getAbsoluteFile().getParentFile(), name + ".txt");
+		report(System.out);
+		try (PrintStream out = new PrintStream(new FileOutputStream(summary), true, "UTF-8")) {
+			report(out);
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		Platform.exit();
+	}
+
+	/**
+	 * Prints first and last value, the slope per hour and the growth flag of every column
+	 */
+	private void report(PrintStream out) {
+		out.println("soak test " + getParameters().getNamed() + ", " + samples.size() + " windows");
+		if (samples.size() < MIN_SAMPLES) {
+			out.println("too few samples for a trend, at least " + MIN_SAMPLES + " windows are needed");
+		}
+		out.println(String.format(Locale.ROOT, "%-14s %14s %14s %14s  %s", "value", "first", "last", "slope/h", "trend"));
+		for (int c = 0; c < COLUMNS.length; c++) {
+			double first = samples.isEmpty() ? 0 : samples.get(0)[c];
+			double last = samples.isEmpty() ? 0 : samples.get(samples.size() - 1)[c];
+			boolean growing = samples.size() >= MIN_SAMPLES && isGrowing(c);
+			out.println(String.format(Locale.ROOT, "%-14s %14.2f %14.2f %14.2f  %s", COLUMNS[c], first, last, slope(c) * 3600,
+					growing ? "GROWING" : "stable"));
+		}
+	}
+
+	private boolean isGrowing(int column) {
+		int third = samples.size() / 3;
+		double firstMax = Double.NEGATIVE_INFINITY, firstMean = 0;
+		double lastMin = Double.POSITIVE_INFINITY, lastMean = 0;
+		for (int i = 0; i < third; i++) {
+			firstMax = Math.max(firstMax, samples.get(i)[column]);
+			firstMean += samples.get(i)[column] / third;
+		}
+		for (int i = samples.size() - third; i < samples.size(); i++) {
+			lastMin = Math.min(lastMin, samples.get(i)[column]);
+			lastMean += samples.get(i)[column] / third;
+		}
+		return lastMin > firstMax && lastMean > firstMean * (1 + GROWTH_THRESHOLD);
+	}
+
+	/**
+	 * @return the least squares slope of the column per second
+	 */
+	private double slope(int column) {
+		int n = samples.size();
+		if (n < 2) return 0;
+		double meanT = 0, meanV = 0;
+		for (int i = 0; i < n; i++) {
+			meanT += sampleTimes.get(i) / (double) n;
+			meanV += samples.get(i)[column] / n;
+		}
+		double covariance = 0, variance = 0;
+		for (int i = 0; i < n; i++) {
+			double dt = sampleTimes.get(i) - meanT;
+			covariance += dt * (samples.get(i)[column] - meanV);
+			variance += dt * dt;
+		}
+		return variance == 0 ? 0 : covariance / variance;
+	}
+
+	public static void main(String[] args) {
+		launch(args);
+	}
+}
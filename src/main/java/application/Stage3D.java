@@ -1,13 +1,33 @@
 package application;
 
+import java.io.File;
+import java.io.IOException;
+
+import datamodel.StarSystemModel;
 import javafx.scene.Group;
+import javafx.scene.input.KeyCode;
+import javafx.scene.input.KeyEvent;
 import javafx.stage.Modality;
 import javafx.stage.Stage;
 import javafx.stage.StageStyle;
+import util.CameraPath;
+import util.HeapAccounting;
+import util.Log;
+import util.PerformanceHud;
+import util.ResourceLoader;
 import util.SmartApplication;
 import util.SmartStage;
 
 public class Stage3D<T extends SmartApplication> extends SmartStage<T> {
+	/**
+	 * Performance overlay on top of the 3D scene, toggled with F3
+	 */
+	protected PerformanceHud hud = null;
+	/**
+	 * location of the star system data, null for the solar system
+	 */
+	protected String starSystemResource = null;
+	protected StarSystemModel starSystem = null;
 
 	public Stage3D(Stage owner) {
 		initStyle(StageStyle.DECORATED);
@@ -16,16 +36,74 @@ public class Stage3D<T extends SmartApplication> extends SmartStage<T> {
 		setTitle("Sol Scene");
 	}
 
+	public Stage3D(Stage owner, String resource) {
+		this(owner);
+		starSystemResource = resource;
+	}
+
+	public Stage3D(Stage owner, StarSystemModel model) {
+		this(owner);
+		starSystem = model;
+	}
+
 	protected void createSubScene() {
-		subScene = new StarSystemScene(new Group(), this);
+		if (starSystem != null) {
+			subScene = new StarSystemScene(new Group(), this, starSystem);
+		} else {
+			subScene = new StarSystemScene(new Group(), this, starSystemResource);
+		}
 		Group root = (Group) getScene().getRoot();
 		root.getChildren().add(subScene);
 		subScene.init();
+
+		hud = new PerformanceHud(subScene, ((StarSystemScene) subScene)::getTimeScale);
+		root.getChildren().add(hud);
+		subScene.addFrameListener(hud);
 	}
 
 	@Override
 	public void initEventHandler() {
 		subScene.initEventHandler();
+		getScene().addEventHandler(KeyEvent.KEY_PRESSED, event -> {
+			if (event.getCode() == KeyCode.F3 && hud != null) hud.toggle();
+			if (event.getCode() == KeyCode.F5) toggleRecording();
+			if (event.getCode() == KeyCode.F6) writeHeapReport();
+		});
+	}
+
+	/**
+	 * Starts recording the camera or saves the recorded camera path to camera.path.file for the flight benchmark
+	 */
+	private void toggleRecording() {
+		if (!subScene.isRecording()) {
+			subScene.startRecording();
+			setTitle("Sol Scene - recording camera path");
+			return;
+		}
+		CameraPath path = subScene.stopRecording();
+		setTitle("Sol Scene");
+		File file = new File(ResourceLoader.getInstance().getProperty("camera.path.file", "camera-path.txt"));
+		try {
+			path.save(file);
+			Log.CAMERA.info("camera path saved: ", file.getAbsolutePath());
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Writes the estimated heap per body and category to heap.report.file and prints the totals
+	 */
+	private void writeHeapReport() {
+		HeapAccounting heap = ((StarSystemScene) subScene).createHeapAccounting();
+		File file = new File(ResourceLoader.getInstance().getProperty("heap.report.file", "heap-report.csv"));
+		try {
+			heap.writeCsv(file);
+			heap.report(System.out);
+			Log.RESOURCES.info("heap report saved: ", file.getAbsolutePath());
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
 	}
 
 	@Override
@@ -1,15 +1,19 @@
 package application;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 
 import datamodel.AstronomicalObject;
 import datamodel.SolarSystemModel;
+import datamodel.Star;
 import datamodel.StarSystemModel;
 import javafx.beans.value.ChangeListener;
 import javafx.beans.value.ObservableValue;
 import javafx.geometry.Bounds;
 import javafx.geometry.Point2D;
-import javafx.geometry.Point3D;
 import javafx.scene.AmbientLight;
 import javafx.scene.Group;
 import javafx.scene.Node;
@@ -21,13 +25,26 @@ import javafx.scene.control.Label;
 import javafx.scene.control.Slider;
 import javafx.scene.shape.MeshView;
 import javafx.scene.shape.Shape3D;
+import javafx.scene.shape.Sphere;
 import javafx.scene.transform.Rotate;
 import javafx.stage.Stage;
-import util.CoordinateHelper;
-import util.Debug;
+import util.AffineMath;
+import util.BoundingVolumeHierarchy;
+import util.FlightEvents;
+import util.FrustumCuller;
+import util.HeapAccounting;
+import util.Histogram;
+import util.Log;
+import util.Metrics;
+import util.PointSpriteMesh;
+import util.QualityGovernor;
+import util.ResourceLoader;
+import util.SceneStreamer;
+import util.SmartParent;
 import util.SmartScene;
 import util.SmartSphere;
-import javafx.scene.layout.Pane;
+import util.StartupTrace;
+import util.VisibilitySet;
 import javafx.scene.paint.Color;
 
 /**
@@ -44,6 +61,48 @@ import javafx.scene.paint.Color;
 
 public class StarSystemScene extends SmartScene {
 	protected double ORBITAL_PERIOD_SPEED = 40;
+	/**
+	 * Number of frames the picking hierarchy is only refitted before it is rebuilt
+	 */
+	private static final int PICKING_REBUILD_INTERVAL = 30;
+	/**
+	 * Initial size of the arrays of the picking and culling entries, they grow as bodies are attached
+	 */
+	private static final int INITIAL_ENTRIES = 64;
+	/**
+	 * Bodies smaller than this on screen are drawn as point sprites, 0 disables impostors
+	 */
+	public static final double DEFAULT_IMPOSTOR_THRESHOLD_PX = 2;
+	/**
+	 * An impostor only switches back to the sphere once it is this factor larger than the threshold
+	 */
+	private static final double IMPOSTOR_HYSTERESIS = 1.5;
+	/**
+	 * Moon systems smaller than this on screen are drawn as their central body only, 0 disables aggregation
+	 */
+	public static final double DEFAULT_AGGREGATION_THRESHOLD_PX = 24;
+	/**
+	 * Bodies orbiting the star are attached with their moon systems when the camera is closer than this multiple
+	 * of the radius of the system, 0 disables streaming
+	 */
+	public static final double DEFAULT_STREAMING_LOAD_FACTOR = 200;
+	/**
+	 * Bodies orbiting the star are detached when the camera is farther than this multiple of the radius of their system
+	 */
+	public static final double DEFAULT_STREAMING_UNLOAD_FACTOR = 250;
+	/**
+	 * Largest ratio of far to near clip distance before the bodies beyond are drawn in the far partition
+	 */
+	public static final double DEFAULT_CLIP_DEPTH_RATIO = 20000;
+	/**
+	 * The near clip plane is kept at this fraction of the distance to the nearest visible body
+	 */
+	private static final double NEAR_CLIP_MARGIN = 0.5;
+	private static final double FAR_CLIP_MARGIN = 1.05;
+	/**
+	 * Bodies of the far partition are drawn as sprites at this fraction of the clip depth
+	 */
+	private static final double FAR_PARTITION_SHELL = 0.9;
 
     /**
      * Planetary system model used to initialize the view.
@@ -55,6 +114,86 @@ public class StarSystemScene extends SmartScene {
      */
     protected String starSystemResource = null;
 
+    /**
+     * All bodies which can be picked with a mouse click and their bounding spheres in scene coordinates,
+     * null for a body whose delegates are released
+     */
+    private List<SmartSphere<AstronomicalObject>> pickables = null;
+    /**
+     * For every body whose delegates were created its entries in the visibility set and the pickables: the body,
+     * the orbit and the pickable, -1 if there is none. The entries are added when the delegates are bound first,
+     * delegates created again by the streaming take over the entries of the released ones.
+     */
+    private final Map<AstronomicalObject, int[]> delegateSlots = new IdentityHashMap<>();
+    private double[] pickCenters = new double[0];
+    private double[] pickRadii = new double[0];
+    private final BoundingVolumeHierarchy pickingHierarchy = new BoundingVolumeHierarchy();
+    private int framesSinceRebuild = 0;
+
+    /**
+     * Bodies and orbits which are hidden while outside the view frustum and their local bounding spheres (x, y, z, r)
+     */
+    private final VisibilitySet visibility = new VisibilitySet();
+    private final FrustumCuller frustumCuller = new FrustumCuller();
+    private double[] cullBounds = new double[0];
+    private final double[] cameraToWorld = new double[AffineMath.SIZE];
+    private final double[] cullCenter = new double[3];
+    /**
+     * World bounding sphere (x, y, z, r) and view depth of every culling entry in the current frame
+     */
+    private double[] cullWorld = new double[0];
+    private double[] cullDepth = new double[0];
+
+    /**
+     * The clip planes follow the nearest and farthest visible body, see updateClipRange
+     */
+    private boolean dynamicClip = true;
+    private double clipDepthRatio = DEFAULT_CLIP_DEPTH_RATIO;
+    private double clipDepth = Double.POSITIVE_INFINITY;
+
+    /**
+     * Point sprites drawn instead of bodies below the impostor threshold.
+     * The shade of each culling entry: NaN for orbits which never become impostors, 0 for rings which are just hidden.
+     */
+    private final PointSpriteMesh impostors = new PointSpriteMesh(Color.WHITE);
+    private double impostorThreshold = DEFAULT_IMPOSTOR_THRESHOLD_PX;
+    private float[] impostorShades = new float[0];
+    private float[] spritePositions = new float[0];
+    private float[] spriteSizes = new float[0];
+    private float[] spriteShades = new float[0];
+
+    /**
+     * Bodies with satellites whose subsystem is collapsed into the body while small on screen.
+     * For every subsystem the radius of the subsystem in the coordinates of the body, the objects of all
+     * satellites and whether it is collapsed.
+     */
+    private final List<AstronomicalObject> subsystems = new ArrayList<>();
+    private final List<List<AstronomicalObject>> subsystemSatellites = new ArrayList<>();
+    private double[] subsystemRadii = null;
+    private boolean[] subsystemAggregated = null;
+    private double aggregationThreshold = DEFAULT_AGGREGATION_THRESHOLD_PX;
+
+    /**
+     * Set by the quality governor: the factor for the impostor and aggregation thresholds and the orbit detail.
+     * Orbit entries are 1 for the orbits of planets and 2 for the orbits of moons, they are hidden above the orbit detail.
+     */
+    private double sphereLodBias = 1;
+    private int orbitDetail = 2;
+    private int[] orbitKinds = new int[0];
+
+    /**
+     * Attaches the planets and the other bodies orbiting the star with their moons, rings and orbits
+     * only while the camera is close to them
+     */
+    private SceneStreamer streamer = null;
+
+    /**
+     * Timing of the ray cast and the counts of the last frame, read by the gauges of {@link Metrics}
+     */
+    private final Histogram pickTime = Metrics.getInstance().histogram(Metrics.PICKING);
+    private volatile int visibleBodies = 0;
+    private volatile int spriteCount = 0;
+
 	public StarSystemScene(Parent root, Stage window) {
 		super(root, window);
 	}
@@ -64,12 +203,28 @@ public class StarSystemScene extends SmartScene {
 		starSystemResource = resource;
 	}
 
+	/**
+	 * @param model a star system which is already loaded, e.g. a generated one
+	 */
+	public StarSystemScene(Parent root, Stage window, StarSystemModel model) {
+		super(root, window);
+		starSystem = model;
+	}
+
 	/**
 	 * Add WindowListener for Resize Event
 	 * Window Width and Height are still not set!
 	 */
+	@SuppressWarnings("try")
 	public void init() {
-		starSystem = new SolarSystemModel(starSystemResource);
+		try (StartupTrace.Span span = StartupTrace.begin("StarSystemScene.init", "scene")) {
+			initScene();
+		}
+	}
+
+	@SuppressWarnings("try")
+	private void initScene() {
+		if (starSystem == null) starSystem = new SolarSystemModel(starSystemResource);
 
 		Stage stage = (Stage)getWindow();
 		ChangeListener<Number> sceneSizeListener = (observable, oldValue, newValue) ->
@@ -82,12 +237,21 @@ public class StarSystemScene extends SmartScene {
 	    stage.setMinHeight(PREF_MIN_HEIGHT+borderHeight);
 	    stage.setMinWidth(PREF_MIN_WIDTH+borderWidth);
 	    
-	    createCelestial();
+	    try (StartupTrace.Span span = StartupTrace.begin("createCelestial", "scene")) {
+	    	createCelestial();
+	    }
+	    initPicking();
+	    try (StartupTrace.Span span = StartupTrace.begin("initCulling", "scene")) {
+	    	initCulling();
+	    }
 	    center();
 	    
 	    initCamera();
 	    
 	    ((Group)getRoot()).getChildren().add(backgroundSkyBox);
+	    // picking is done with our own ray cast, see traverseNodes
+	    getRoot().setMouseTransparent(true);
+	    ((Group)getRoot()).getChildren().add(impostors);
 	    resetBackground();
 	    
 	    
@@ -133,6 +297,56 @@ public class StarSystemScene extends SmartScene {
 
 	}
 	
+	/**
+	 * Stops the animations of all bodies, they would otherwise keep running after the window is closed
+	 */
+	@Override
+	public void dispose() {
+		if (starSystem != null) AnimationHandler.getInstance().remove(starSystem.getAstronomicalObjects());
+		super.dispose();
+	}
+
+	public StarSystemModel getStarSystem() {
+		return starSystem;
+	}
+
+	/**
+	 * Estimates the heap of every body with its delegates, of the rest of the scene and of the textures
+	 * which are only held by the texture cache
+	 */
+	public HeapAccounting createHeapAccounting() {
+		HeapAccounting heap = new HeapAccounting();
+		if (starSystem != null) {
+			for (AstronomicalObject body : starSystem.getAstronomicalObjects()) {
+				heap.addOwner(body.getName(), body.getType(), subsystem(body).getName(), body.getModelBytes(),
+						body.getVisualAstronomicalDelegate(), body.getVisualOrbitalDelegate());
+			}
+		}
+		heap.walk(getRoot());
+		heap.addImages(HeapAccounting.TEXTURE_CACHE, ResourceLoader.getInstance().getTextureCache().getImages());
+		return heap;
+	}
+
+	/**
+	 * @return the body orbiting the star which the body belongs to, the star for the star itself
+	 */
+	private static AstronomicalObject subsystem(AstronomicalObject body) {
+		AstronomicalObject subsystem = body;
+		while (subsystem.getOrbit() != null && subsystem.getOrbit().getCentralObject() != null
+				&& subsystem.getOrbit().getCentralObject().getOrbit() != null) {
+			subsystem = subsystem.getOrbit().getCentralObject();
+		}
+		return subsystem;
+	}
+
+	/**
+	 * @return the simulated seconds per real second, 0 while the animation is paused
+	 */
+	public double getTimeScale() {
+		if (starSystem == null || !AnimationHandler.getInstance().isRunning()) return 0;
+		return starSystem.getStar().getTimeScale() * AnimationHandler.getInstance().getRate();
+	}
+
 	public void center() {
 		Stage stage = (Stage)getWindow();
 		double sceneHeight = getHeight();
@@ -154,106 +368,502 @@ public class StarSystemScene extends SmartScene {
 	}
 
 	/**
-	 * recursive call to get the node which includes the mouse coordinates in its bounds
-	 * of course the top most node will always include the coordinates
-	 * traverse down until we find the last sub node which still includes the coordinates
-	 * this traverse must either return a Shape3D object or null 
+	 * Picks the body under the mouse: a ray from the camera through the mouse position is tested
+	 * against the bounding volume hierarchy of all bodies, the first sphere hit is returned
 	 */
 	@Override
-	protected Shape3D traverseNodes(Node node, Point2D screenPoint) {
-
-		List<SmartSphere<AstronomicalObject>> visualDelegates = starSystem.getVisualDelegates();
-
-		double viewPort = ((PerspectiveCamera)getCamera()).getFieldOfView();
-		SmartSphere<AstronomicalObject> sphere = null;
-		Bounds localBounds = null;
-		Bounds screenBounds = null;
-		Bounds sceneBounds = null;
-		double angle = 0;
-		double distance = Double.MAX_VALUE;
-		Point3D center = null;
-		Point2D center2D = null;
-		Point3D camPos = camPosition();
-		Point3D viewDirection = viewDirection();
-		viewDirection = viewDirection.add(camPos);
-
-		Debug.out("(traverseNodes)", "screenPoint:  ", screenPoint);
-
-		for(SmartSphere<AstronomicalObject> s : visualDelegates) {
-			if (s instanceof SmartSphere<?>) {
-				localBounds = s.getBoundsInLocal();
-				sceneBounds = s.localToScene(localBounds);
-				screenBounds = s.localToScreen(localBounds);
-				
-				Point2D scenePt = localToScene(screenToLocal(screenPoint));
-				Debug.out("(traverseNodes)", "scenePt: ", scenePt);
-				Debug.out("", "sceneBounds:  ", sceneBounds);
-
-				center = CoordinateHelper.centerOfBounds(sceneBounds);
-				angle = camPos.angle(viewDirection, center);
-
-				if (angle < viewPort) {
-			        if (screenPoint.getX() >= screenBounds.getMinX() && screenPoint.getX() <= screenBounds.getMaxX()
-			        		&& screenPoint.getY() >= screenBounds.getMinY() && screenPoint.getY() <= screenBounds.getMaxY()) {
-			        	if (camPos.distance(center) < distance) {
-			        		distance = camPos.distance(center);
-			        		sphere = s;
-			        	}
-			        	
-			        }
-					
-				}
-			}
+	protected Shape3D traverseNodes(Node node, Point2D point) {
+		long start = System.nanoTime();
+		FlightEvents.PickEvent event = new FlightEvents.PickEvent();
+		event.begin();
+		double[] ray = pickRay(point.getX(), point.getY());
+		if (ray == null || pickables == null) return null;
+
+		int hit = pickingHierarchy.intersect(ray[0], ray[1], ray[2], ray[3], ray[4], ray[5]);
+		pickTime.record(System.nanoTime() - start);
+		event.end();
+		if (event.shouldCommit()) {
+			event.candidates = pickables.size();
+			event.hit = hit < 0 ? null : pickables.get(hit).getAstronomicalObject().getName();
+			event.commit();
+		}
+		if (hit < 0) return null;
+		return pickables.get(hit);
+	}
+
+	@Override
+	protected SmartSphere<?> findSphere(String name) {
+		if (pickables == null) return null;
+		for (SmartSphere<AstronomicalObject> sphere : pickables) {
+			if (sphere != null && sphere.getAstronomicalObject().getName().equals(name)) return sphere;
 		}
+		return null;
+	}
+
+	@Override
+	protected String sphereName(SmartSphere<?> sphere) {
+		Object object = sphere.getAstronomicalObject();
+		return object instanceof AstronomicalObject ? ((AstronomicalObject) object).getName() : super.sphereName(sphere);
+	}
 
-		if (sphere != null) {
-			localBounds = sphere.getBoundsInLocal();
-			screenBounds = sphere.localToScreen(localBounds);
-			sceneBounds = sphere.localToScene(localBounds);
-			center2D = CoordinateHelper.centerOfBounds2D(screenBounds);
+	/**
+	 * Sets up the picking, the bodies are added when their delegates are bound first, see bindDelegates
+	 */
+	private void initPicking() {
+		pickables = new ArrayList<>();
+		framesSinceRebuild = PICKING_REBUILD_INTERVAL;
+		addFrameListener(now -> updatePicking());
+	}
 
-			Debug.err("(traverseNodes)", sphere.getAstronomicalObject().getName() + "\n" + "sceneBounds : ", sceneBounds);
-			Debug.err("(traverseNodes)", "screenBounds: ", screenBounds);
-			Debug.err("(traverseNodes)", "center2D    : ", center2D);
-			Debug.err("(traverseNodes)", "screenPoint:  ", screenPoint);
+	private int addPickable(SmartSphere<AstronomicalObject> sphere) {
+		int i = pickables.size();
+		pickables.add(sphere);
+		if (i == pickRadii.length) {
+			pickRadii = Arrays.copyOf(pickRadii, Math.max(INITIAL_ENTRIES, i * 2));
+			pickCenters = Arrays.copyOf(pickCenters, pickRadii.length * 3);
+		}
+		worldTransforms.track(sphere);
+		// the hierarchy is only refitted over the bodies it was built with
+		framesSinceRebuild = PICKING_REBUILD_INTERVAL;
+		return i;
+	}
 
+	/**
+	 * Copies the centers and radii of all bodies from the world transform cache.
+	 * The hierarchy is refitted every frame and rebuilt every PICKING_REBUILD_INTERVAL frames
+	 * as the bodies move along their orbits.
+	 */
+	private void updatePicking() {
+		double[] world = worldTransforms.getWorldTransforms();
+		for (int i = 0; i < pickables.size(); i++) {
+			SmartSphere<AstronomicalObject> sphere = pickables.get(i);
+			int w = sphere == null ? -1 : worldTransforms.indexOf(sphere) * AffineMath.SIZE;
+			if (w < 0) {
+				// released by the streaming or not cached before the next rebuild
+				pickRadii[i] = 0;
+				continue;
+			}
+			pickCenters[i * 3] = world[w + 3];
+			pickCenters[i * 3 + 1] = world[w + 7];
+			pickCenters[i * 3 + 2] = world[w + 11];
+			// moons of a collapsed subsystem are hidden and can not be picked
+			boolean suspended = AnimationHandler.getInstance().isSuspended(sphere.getAstronomicalObject());
+			pickRadii[i] = suspended ? 0 : sphere.getRadius() * AffineMath.maxScale(world, w);
+		}
+		if (++framesSinceRebuild >= PICKING_REBUILD_INTERVAL) {
+			pickingHierarchy.build(pickCenters, pickRadii, pickables.size());
+			framesSinceRebuild = 0;
 		} else {
-			System.out.println("X-Y not matching!");
-			for(SmartSphere<AstronomicalObject> s : visualDelegates) {
-				localBounds = s.getBoundsInLocal();
-				screenBounds = s.localToScreen(localBounds);
-				sceneBounds = s.localToScene(localBounds);
-				center2D = new Point2D(screenBounds.getMinX()+screenBounds.getWidth()/2,
-						screenBounds.getMinY()+screenBounds.getHeight()/2);
+			pickingHierarchy.refit();
+		}
+	}
+
+	/**
+	 * Sets up frustum culling and impostors for the bodies and their orbits. The bodies whose delegates exist are
+	 * registered now, the streamed ones when they are attached first.
+	 */
+	private void initCulling() {
+		impostorThreshold = ResourceLoader.getInstance().getDoubleProperty("impostor.threshold.px", DEFAULT_IMPOSTOR_THRESHOLD_PX);
+		dynamicClip = Boolean.parseBoolean(ResourceLoader.getInstance().getProperty("clip.dynamic", "true"));
+		clipDepthRatio = ResourceLoader.getInstance().getDoubleProperty("clip.depth.ratio", DEFAULT_CLIP_DEPTH_RATIO);
+		for (AstronomicalObject object : starSystem.getAstronomicalObjects()) {
+			if (object.hasDelegates()) bindDelegates(object);
+		}
+		initAggregation();
+		initStreaming();
+		quality.addListener(this::applyQuality);
+		addFrameListener(now -> updateCulling());
+
+		int bodies = starSystem.getAstronomicalObjects().size();
+		gauge("bodies", () -> bodies);
+		gauge("bodies.visible", () -> visibleBodies);
+		gauge("bodies.impostors", () -> spriteCount);
+		if (streamer != null) gauge("subsystems.attached", streamer::getAttachedCount);
+	}
+
+	/**
+	 * Adds a node to the visibility set with its local bounding sphere
+	 *
+	 * @param shade the shade of its impostor, see impostorShades
+	 * @param kind 0 for a body, see orbitKinds for the orbits
+	 * @return the culling entry
+	 */
+	private int addCullingEntry(Node node, float shade, int kind) {
+		int i = visibility.add(node);
+		if (i == orbitKinds.length) {
+			int size = Math.max(INITIAL_ENTRIES, i * 2);
+			impostorShades = Arrays.copyOf(impostorShades, size);
+			spritePositions = Arrays.copyOf(spritePositions, size * 3);
+			spriteSizes = Arrays.copyOf(spriteSizes, size);
+			spriteShades = Arrays.copyOf(spriteShades, size);
+			cullBounds = Arrays.copyOf(cullBounds, size * 4);
+			cullWorld = Arrays.copyOf(cullWorld, size * 4);
+			cullDepth = Arrays.copyOf(cullDepth, size);
+			orbitKinds = Arrays.copyOf(orbitKinds, size);
+		}
+		impostorShades[i] = shade;
+		orbitKinds[i] = kind;
+		visibility.set(i, VisibilitySet.DETAIL, kind > orbitDetail);
+		worldTransforms.track(node);
+		Bounds b = node.getBoundsInLocal();
+		cullBounds[i * 4] = b.getMinX() + b.getWidth() / 2;
+		cullBounds[i * 4 + 1] = b.getMinY() + b.getHeight() / 2;
+		cullBounds[i * 4 + 2] = b.getMinZ() + b.getDepth() / 2;
+		cullBounds[i * 4 + 3] = Math.sqrt(b.getWidth() * b.getWidth() + b.getHeight() * b.getHeight() + b.getDepth() * b.getDepth()) / 2;
+		return i;
+	}
+
+	/**
+	 * Takes over the sphere LOD bias and the orbit detail of the quality level
+	 */
+	private void applyQuality(QualityGovernor.QualityLevel level) {
+		sphereLodBias = level.sphereLodBias;
+		orbitDetail = level.orbitDetail;
+		for (int i = 0; i < visibility.size(); i++) {
+			visibility.set(i, VisibilitySet.DETAIL, orbitKinds[i] > orbitDetail);
+		}
+	}
+
+	/**
+	 * Collects every body with satellites except the star, outer subsystems before the inner ones
+	 */
+	private void initAggregation() {
+		aggregationThreshold = ResourceLoader.getInstance().getDoubleProperty("aggregation.threshold.px", DEFAULT_AGGREGATION_THRESHOLD_PX);
+		if (starSystem.getStar().getSatellites() != null) {
+			for (AstronomicalObject body : starSystem.getStar().getSatellites()) {
+				addSubsystems(body);
+			}
+		}
+		subsystemRadii = new double[subsystems.size()];
+		subsystemAggregated = new boolean[subsystems.size()];
+		for (int i = 0; i < subsystems.size(); i++) {
+			subsystemRadii[i] = subsystems.get(i).getSystemRadius();
+		}
+	}
+
+	private void addSubsystems(AstronomicalObject object) {
+		if (object == null || object.getSatellites() == null || object.getSatellites().isEmpty()) return;
+		List<AstronomicalObject> satellites = new ArrayList<>();
+		collectSatellites(object, satellites);
+		subsystems.add(object);
+		subsystemSatellites.add(satellites);
+		for (AstronomicalObject satellite : object.getSatellites()) {
+			addSubsystems(satellite);
+		}
+	}
+
+	private void collectSatellites(AstronomicalObject object, List<AstronomicalObject> satellites) {
+		if (object.getSatellites() == null) return;
+		for (AstronomicalObject satellite : object.getSatellites()) {
+			if (satellite == null) continue;
+			satellites.add(satellite);
+			collectSatellites(satellite, satellites);
+		}
+	}
+
+	private int[] delegateSlots(AstronomicalObject object) {
+		return delegateSlots.computeIfAbsent(object, o -> new int[] { -1, -1, -1 });
+	}
+
+	/**
+	 * Puts the delegates of a body into its entries of the visibility set, the world transform cache and the
+	 * pickables. The entries are added when the delegates are bound first.
+	 */
+	@SuppressWarnings("unchecked")
+	private void bindDelegates(AstronomicalObject object) {
+		int[] slots = delegateSlots(object);
+		Shape3D shape = object.getVisualDelegate();
+		if (slots[0] < 0) {
+			slots[0] = addCullingEntry(shape, !(shape instanceof SmartSphere<?>) ? 0f : object instanceof Star ? 1f : 0.8f, 0);
+			if (object.getVisualOrbitalDelegate() != null) {
+				slots[1] = addCullingEntry(object.getVisualOrbitalDelegate(), Float.NaN,
+						object.getOrbit().getCentralObject() instanceof Star ? 1 : 2);
+			}
+			if (shape instanceof SmartSphere<?>) slots[2] = addPickable((SmartSphere<AstronomicalObject>) shape);
+			return;
+		}
+		visibility.setNode(slots[0], shape);
+		worldTransforms.track(shape);
+		if (slots[1] >= 0) {
+			visibility.setNode(slots[1], object.getVisualOrbitalDelegate());
+			worldTransforms.track(object.getVisualOrbitalDelegate());
+		}
+		if (slots[2] >= 0) pickables.set(slots[2], (SmartSphere<AstronomicalObject>) shape);
+	}
+
+	/**
+	 * Clears the entries of a body before its delegates are released, so nothing keeps the released nodes
+	 */
+	private void unbindDelegates(AstronomicalObject object) {
+		int[] slots = delegateSlots.get(object);
+		if (slots == null) return;
+		for (int i = 0; i < 2; i++) {
+			if (slots[i] < 0) continue;
+			worldTransforms.untrack(visibility.getNode(slots[i]));
+			visibility.setNode(slots[i], null);
+		}
+		if (slots[2] >= 0) pickables.set(slots[2], null);
+	}
+
+	/**
+	 * Sets a flag of the visibility set for the body and its orbit, if they were bound
+	 */
+	private void setFlag(AstronomicalObject object, int flag, boolean set) {
+		int[] slots = delegateSlots.get(object);
+		if (slots == null) return;
+		for (int i = 0; i < 2; i++) {
+			if (slots[i] >= 0) visibility.set(slots[i], flag, set);
+		}
+	}
+
+	/**
+	 * @return the load factor of the streaming, 0 or less if the streaming is disabled
+	 */
+	private static double streamingLoadFactor() {
+		return ResourceLoader.getInstance().getDoubleProperty("streaming.load.factor", DEFAULT_STREAMING_LOAD_FACTOR);
+	}
+
+	/**
+	 * Registers every body orbiting the star, the planets and e.g. the bodies of a belt, as one streaming entry
+	 * anchored at the star. The delegates of the body, its satellites and their satellites only exist while the
+	 * entry is attached, so a large catalog holds nodes for the bodies near the camera only.
+	 */
+	private void initStreaming() {
+		double loadFactor = streamingLoadFactor();
+		if (loadFactor <= 0) return;
+		streamer = new SceneStreamer(worldTransforms, loadFactor,
+				ResourceLoader.getInstance().getDoubleProperty("streaming.unload.factor", DEFAULT_STREAMING_UNLOAD_FACTOR));
+
+		Star star = starSystem.getStar();
+		if (star.getSatellites() == null) return;
+		Parent translationPane = star.getVisualDelegate().getParent();
+		worldTransforms.track(translationPane);
+		for (AstronomicalObject body : star.getSatellites()) {
+			streamer.add(translationPane, body.getSystemRadius(), body.getOrbitMinDistance(), body.getOrbitMaxDistance(),
+					new BodyStreamable(body));
+		}
+	}
+
+	/**
+	 * Streaming entry of a body orbiting the star together with its moons, moons of moons and rings
+	 */
+	private class BodyStreamable implements SceneStreamer.Streamable {
+		private final AstronomicalObject body;
+
+		BodyStreamable(AstronomicalObject body) {
+			this.body = body;
+		}
+
+		@Override
+		public void locate(double[] center) {
+			body.getOrbitPosition(center);
+		}
+
+		@Override
+		public void prepare() {
+			for (AstronomicalObject o : bodies()) o.prepareVisualResources();
+		}
+
+		@Override
+		public void attach() {
+			body.createDelegates();
+			for (AstronomicalObject o : bodies()) {
+				bindDelegates(o);
+				AnimationHandler.getInstance().resume(o);
+				setFlag(o, VisibilitySet.STREAMED, false);
+			}
+		}
+
+		@Override
+		public void detach() {
+			List<AstronomicalObject> bodies = bodies();
+			// the chase camera is a child of the body it follows
+			Sphere pivot = getPivotSphere();
+			if (pivot instanceof SmartSphere<?> && bodies.contains(((SmartSphere<?>) pivot).getAstronomicalObject())) {
+				releaseChaseCam();
+			}
+			for (AstronomicalObject o : bodies) {
+				AnimationHandler.getInstance().suspend(o);
+				unbindDelegates(o);
+				setFlag(o, VisibilitySet.STREAMED, true);
+			}
+			body.releaseDelegates();
+		}
+
+		/**
+		 * @return the body and all its satellites, collected on demand so a detached entry holds no list
+		 */
+		private List<AstronomicalObject> bodies() {
+			List<AstronomicalObject> bodies = new ArrayList<>();
+			bodies.add(body);
+			collectSatellites(body, bodies);
+			return bodies;
+		}
+	}
+
+	/**
+	 * Collapses every moon system which is smaller than the aggregation threshold on screen into its central body:
+	 * the moons, rings and orbits are hidden and their animations suspended, the body (or its impostor) stands
+	 * for the whole subsystem. The moons are restored where they would be once the subsystem grows again.
+	 * A subsystem whose body is culled keeps its state.
+	 */
+	private void updateAggregation() {
+		double aggregationThreshold = this.aggregationThreshold * sphereLodBias;
+		if (aggregationThreshold <= 0 || subsystemRadii == null) return;
+		double[] world = worldTransforms.getWorldTransforms();
+		for (int s = 0; s < subsystemRadii.length; s++) {
+			int[] slots = delegateSlots.get(subsystems.get(s));
+			int body = slots == null ? -1 : slots[0];
+			// a subsystem which was never attached or is inside an aggregated subsystem is hidden anyway
+			if (body < 0 || (visibility.getMask(body) & ~VisibilitySet.IMPOSTOR) != 0) continue;
+
+			int w = worldTransforms.indexOf(visibility.getNode(body)) * AffineMath.SIZE;
+			double radius = subsystemRadii[s] * AffineMath.maxScale(world, w);
+			double size = frustumCuller.projectedSize(world[w + 3], world[w + 7], world[w + 11], radius, getHeight());
+			boolean aggregated = subsystemAggregated[s];
+			boolean aggregate = aggregated ? size < aggregationThreshold * IMPOSTOR_HYSTERESIS : size < aggregationThreshold;
+			if (aggregate == aggregated) continue;
+
+			subsystemAggregated[s] = aggregate;
+			for (AstronomicalObject satellite : subsystemSatellites.get(s)) {
+				setFlag(satellite, VisibilitySet.AGGREGATED, aggregate);
+				if (aggregate) {
+					AnimationHandler.getInstance().suspend(satellite);
+				} else {
+					AnimationHandler.getInstance().resume(satellite);
+				}
+			}
+		}
+	}
 
+	/**
+	 * Tests the bounding sphere of every body and orbit against the view frustum.
+	 * Visible bodies below the impostor threshold are replaced by a point sprite of about the threshold size,
+	 * small moon systems are collapsed into their central body first.
+	 * The visibility of the nodes is changed in one batch and only for nodes which crossed the frustum or the threshold.
+	 */
+	private void updateCulling() {
+		if (!(getCamera() instanceof PerspectiveCamera) || getHeight() <= 0) return;
+		PerspectiveCamera camera = (PerspectiveCamera) getCamera();
+		worldTransforms.getWorldTransform(camera, cameraToWorld);
+		// the clip planes are derived from the bodies in view, so the frustum test is against the side planes only
+		frustumCuller.setCamera(cameraToWorld, camera.getFieldOfView(), camera.isVerticalFieldOfView(),
+				getWidth() / getHeight(), dynamicClip ? 0 : camera.getNearClip(), dynamicClip ? Double.POSITIVE_INFINITY : camera.getFarClip());
+
+		if (streamer != null) streamer.update(cameraToWorld[3], cameraToWorld[7], cameraToWorld[11]);
+		updateAggregation();
+
+		double[] world = worldTransforms.getWorldTransforms();
+		for (int i = 0; i < visibility.size(); i++) {
+			if ((visibility.getMask(i) & (VisibilitySet.AGGREGATED | VisibilitySet.STREAMED | VisibilitySet.DETAIL)) != 0) continue;
+			int w = worldTransforms.indexOf(visibility.getNode(i)) * AffineMath.SIZE;
+			AffineMath.transform(world, w, cullBounds[i * 4], cullBounds[i * 4 + 1], cullBounds[i * 4 + 2], cullCenter);
+			double radius = cullBounds[i * 4 + 3] * AffineMath.maxScale(world, w);
+			cullWorld[i * 4] = cullCenter[0];
+			cullWorld[i * 4 + 1] = cullCenter[1];
+			cullWorld[i * 4 + 2] = cullCenter[2];
+			cullWorld[i * 4 + 3] = radius;
+			cullDepth[i] = frustumCuller.depth(cullCenter[0], cullCenter[1], cullCenter[2]);
+			boolean visible = frustumCuller.isVisible(cullCenter[0], cullCenter[1], cullCenter[2], radius);
+			visibility.set(i, VisibilitySet.CULLED, !visible);
+		}
+		if (dynamicClip) updateClipRange();
+
+		double impostorThreshold = this.impostorThreshold * sphereLodBias;
+		int sprites = 0;
+		for (int i = 0; i < visibility.size(); i++) {
+			if ((visibility.getMask(i) & ~VisibilitySet.IMPOSTOR) != 0) continue;
+			double x = cullWorld[i * 4], y = cullWorld[i * 4 + 1], z = cullWorld[i * 4 + 2], radius = cullWorld[i * 4 + 3];
+
+			// beyond the far clip plane: only bodies are kept, as sprites on a shell inside the clip range
+			double shell = 1;
+			if (cullDepth[i] - frustumCuller.viewRadius(radius) > clipDepth) {
+				visibility.set(i, VisibilitySet.CULLED, true);
+				if (Float.isNaN(impostorShades[i]) || impostorShades[i] == 0) continue;
+				shell = FAR_PARTITION_SHELL * clipDepth / cullDepth[i];
+			} else if (Float.isNaN(impostorShades[i]) || impostorThreshold <= 0) {
+				continue;
 			}
+
+			double size = frustumCuller.projectedSize(x, y, z, radius, getHeight());
+			boolean impostor = visibility.isSet(i, VisibilitySet.IMPOSTOR)
+					? size < impostorThreshold * IMPOSTOR_HYSTERESIS : size < impostorThreshold;
+			if (shell == 1) visibility.set(i, VisibilitySet.IMPOSTOR, impostor);
+			if (shell == 1 && !impostor || impostorShades[i] == 0 || size <= 0) continue;
+
+			// moving the sprite towards the camera keeps its position and size on screen
+			spritePositions[sprites * 3] = (float) (cameraToWorld[3] + (x - cameraToWorld[3]) * shell);
+			spritePositions[sprites * 3 + 1] = (float) (cameraToWorld[7] + (y - cameraToWorld[7]) * shell);
+			spritePositions[sprites * 3 + 2] = (float) (cameraToWorld[11] + (z - cameraToWorld[11]) * shell);
+			// world size of a sprite which covers the threshold in pixels at the distance of the body
+			spriteSizes[sprites] = (float) (Math.max(size, impostorThreshold) * 2 * radius / size * shell);
+			spriteShades[sprites] = impostorShades[i];
+			sprites++;
+		}
+		visibility.apply();
+		visibleBodies = 0;
+		for (int i = 0; i < visibility.size(); i++) {
+			if (orbitKinds[i] == 0 && visibility.getMask(i) == 0) visibleBodies++;
 		}
 
-		return sphere;
+		// the sprites face the camera
+		impostors.setSprites(spritePositions, spriteSizes, spriteShades, sprites,
+				cameraToWorld[0], cameraToWorld[4], cameraToWorld[8], cameraToWorld[1], cameraToWorld[5], cameraToWorld[9]);
+		spriteCount = sprites;
+	}
+
+	/**
+	 * Sets the near clip plane in front of the nearest visible body and the far clip plane behind the farthest
+	 * visible body or orbit. If the ratio of the two gets too large for the depth buffer the near range wins,
+	 * everything beyond is the far partition which is drawn as sprites, see updateCulling.
+	 */
+	private void updateClipRange() {
+		double nearest = Double.POSITIVE_INFINITY;
+		double farthest = 0;
+		for (int i = 0; i < visibility.size(); i++) {
+			if ((visibility.getMask(i) & ~VisibilitySet.IMPOSTOR) != 0) continue;
+			double radius = frustumCuller.viewRadius(cullWorld[i * 4 + 3]);
+			farthest = Math.max(farthest, cullDepth[i] + radius);
+			// the camera is inside most orbits, they do not limit the near plane
+			if (!Float.isNaN(impostorShades[i])) nearest = Math.min(nearest, cullDepth[i] - radius);
+		}
+		if (farthest <= 0) {
+			clipDepth = Double.POSITIVE_INFINITY;
+			setClipRange(NEAR_CLIP, FARCLIP / getFarClipFactor());
+			return;
+		}
+		double near = Double.isInfinite(nearest) ? NEAR_CLIP : Math.max(NEAR_CLIP, nearest * NEAR_CLIP_MARGIN);
+		double depth = Math.max(near * 2, farthest * FAR_CLIP_MARGIN);
+		double maxDepth = near * clipDepthRatio / getFarClipFactor();
+		clipDepth = depth > maxDepth ? maxDepth : Double.POSITIVE_INFINITY;
+		setClipRange(near, Math.min(depth, maxDepth));
 	}
 
 	/**
 	 * Hook up the astronomical delegates to the scene
 	 */
 	private void createCelestial() {
-		System.out.println("StarSystemScene.createCelestial");
+		Log.SCENE.debug("StarSystemScene.createCelestial");
 
-		Pane starPane = starSystem.getStar().getVisualAstronomicalDelegate();
+		// with the streaming the bodies orbiting the star are attached by the streamer, see initStreaming
+		Star star = starSystem.getStar();
+		star.createDelegates(streamingLoadFactor() <= 0);
+		Parent starPane = star.getVisualAstronomicalDelegate();
 
-		Pane cassiniPane = createSpaceShip("src/main/resources/Cassini/Cassini_66.obj");
+		Group cassiniPane = createSpaceShip("src/main/resources/Cassini/Cassini_66.obj");
 		cassiniPane.translateXProperty().set(100);
 		cassiniPane.translateYProperty().set(100);
 		cassiniPane.setMouseTransparent(true);
 
-		starPane.getChildren().addAll(cassiniPane);
+		((SmartParent) starPane).getChildren().addAll(cassiniPane);
 
 		Group root = (Group)getRoot();
 		root.getChildren().addAll(starPane);
 	}
 	
-	private Pane createSpaceShip(String meshResource) {
+	private Group createSpaceShip(String meshResource) {
 		MeshView[] spaceShip = MeshShape.loadMeshViews(meshResource);
-		Pane g = new Pane();
+		Group g = new Group();
 		if (spaceShip != null) g.getChildren().addAll(spaceShip);
 		g.scaleXProperty().set(1);
 		g.scaleYProperty().set(1);
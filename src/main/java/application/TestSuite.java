@@ -7,6 +7,7 @@ import javafx.stage.Stage;
 import util.ResourceLoader;
 import util.SmartApplication;
 import util.SmartController;
+import util.StartupTrace;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
 
@@ -15,15 +16,18 @@ public class TestSuite extends SmartApplication {
 	ResourceLoader rl = ResourceLoader.getInstance();
 
 	
-	@SuppressWarnings("unchecked")
+	@SuppressWarnings({ "unchecked", "try" })
 	@Override
 	public void start(Stage stage) {
-		try {
+		try (StartupTrace.Span span = StartupTrace.begin("TestSuite.start")) {
 			URL resource = getClass().getResource("TestSuite.fxml");
 			FXMLLoader loader = new FXMLLoader(resource);
 			System.out.println("Resource location: " + resource);
 			loader.setLocation(resource);
-			Parent root = loader.load();
+			Parent root;
+			try (StartupTrace.Span load = StartupTrace.begin("FXMLLoader.load", "fxml", "TestSuite.fxml")) {
+				root = loader.load();
+			}
 			SmartController<SmartApplication, Stage> controller = (SmartController<SmartApplication, Stage>)loader.getController();
 			controller.setApplication(this);
 			controller.setStage(stage);
@@ -11,6 +11,8 @@ import javax.imageio.ImageIO;
 
 import datamodel.AstronomicalObject;
 import datamodel.PhysicalCharacteristics;
+import datamodel.StarSystemModel;
+import datamodel.SystemGenerator;
 import javafx.application.Application;
 import javafx.embed.swing.SwingFXUtils;
 import javafx.event.ActionEvent;
@@ -34,6 +36,7 @@ import javafx.scene.shape.Ellipse;
 import javafx.stage.FileChooser;
 import javafx.stage.FileChooser.ExtensionFilter;
 import javafx.stage.Stage;
+import util.ResourceLoader;
 import util.SmartController;
 import util.SmartStage;
 
@@ -52,6 +55,8 @@ public class TestSuiteController extends SmartController<TestSuite, SmartStage<A
 	@FXML
 	private Button eventTestButton;
 	@FXML
+	private Button generatedSystemButton;
+	@FXML
 	private Button startStopButton;
 	@FXML
 	private Button clearCanvasButton;
@@ -135,6 +140,34 @@ public class TestSuiteController extends SmartController<TestSuite, SmartStage<A
 	}
 	
 	
+	/**
+	 * Open a generated star system, the sizes and the seed are read from the generator.* properties
+	 * @param event
+	 */
+	@FXML
+	public void generatedSystemViewAction(ActionEvent event) {
+		try {
+			ResourceLoader rl = ResourceLoader.getInstance();
+			StarSystemModel model = new SystemGenerator.Builder(rl.getIntProperty("generator.seed", 42))
+					.planets(rl.getIntProperty("generator.planets", 8))
+					.moonsPerPlanet(rl.getIntProperty("generator.moons.per.planet", 4))
+					.rings(rl.getIntProperty("generator.rings", 2))
+					.beltBodies(rl.getIntProperty("generator.belt.bodies", 200))
+					.build()
+					.createModel();
+			Stage owner = getStage();
+		    Stage3D<TestSuite> stage = new Stage3D<TestSuite>(owner, model);
+		    stage.setApplication(getApplication());
+		    stage.init();
+		    stage.setTitle("Generated System");
+		    AnimationHandler.getInstance().start();
+		    starScene = stage.getScene();
+		    stage.show();
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+	}
+
 //	TestStage3D<TestSuite> testStage;
 	/**
 	 * Open a test-system simulation
@@ -180,6 +213,7 @@ public class TestSuiteController extends SmartController<TestSuite, SmartStage<A
 	                .rotationPeriod(0.0)
 	                .axialTilt(0.0)
 	                .build(), null);
+			a1.createDelegates();
 			
 			root.getChildren().add(a1.getVisualAstronomicalDelegate());
 
@@ -192,6 +226,7 @@ public class TestSuiteController extends SmartController<TestSuite, SmartStage<A
 	                .rotationPeriod(0.0)
 	                .axialTilt(0.0)
 	                .build(), null);
+			a2.createDelegates();
 			
 			root.getChildren().add(a2.getVisualAstronomicalDelegate());
 
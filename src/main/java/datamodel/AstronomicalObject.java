@@ -4,31 +4,40 @@ import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 import application.AnimationHandler;
 import javafx.animation.AnimationTimer;
 import javafx.animation.Interpolator;
 import javafx.animation.PathTransition;
 import javafx.animation.Timeline;
-import javafx.geometry.Bounds;
+import javafx.animation.Transition;
+import javafx.collections.ObservableList;
 import javafx.geometry.Point3D;
 import javafx.scene.Node;
 import javafx.scene.Parent;
 import javafx.scene.image.Image;
-import javafx.scene.layout.Pane;
 import javafx.scene.paint.Color;
 import javafx.scene.paint.PhongMaterial;
 import javafx.scene.shape.Cylinder;
 import javafx.scene.shape.Ellipse;
 import javafx.scene.shape.Shape3D;
+import javafx.scene.transform.Affine;
 import javafx.scene.transform.Rotate;
 import javafx.scene.transform.Transform;
 import javafx.util.Duration;
 import util.ResourceLoader;
+import util.AffineMath;
+import util.Histogram;
+import util.Log;
+import util.Metrics;
+import util.OrbitTransition;
+import util.SmartGroup;
 import util.SmartPane;
-import util.SmartScene;
+import util.SmartParent;
 import util.SmartSphere;
-import util.SmartStage;
+import util.TextureCache;
 
 /**
  * This is the base class for all astronomical objects.
@@ -72,6 +81,39 @@ public class AstronomicalObject {
 	// test scale factor for the inclination of the orbits
 	protected static final double SCALE_INCLINATION = 1.0;
 
+	/**
+	 * Height of the cylinder of a ring
+	 */
+	protected static final double RING_HEIGHT = 0.1;
+
+	/**
+	 * Stroke width of the drawn orbits, it adds to the bounds the orbits of the central objects are fitted to
+	 */
+	private static final double ORBIT_STROKE_WIDTH = 1;
+
+	/**
+	 * Containers of the delegate hierarchy: "group" for the lightweight SmartGroup (default),
+	 * "pane" for the Region based SmartPane
+	 */
+	public static final String DELEGATE_MODE_GROUP = "group";
+	public static final String DELEGATE_MODE_PANE = "pane";
+	protected static final boolean PANE_DELEGATES =
+			DELEGATE_MODE_PANE.equals(ResourceLoader.getInstance().getProperty("delegate.mode", DELEGATE_MODE_GROUP));
+
+	/**
+	 * Transforms of the delegates: "affine" composes the orbital plane and the axial tilt with the spin into
+	 * a single Affine per node (default), "rotate" keeps the separate Rotates and the rotate property
+	 */
+	public static final String TRANSFORM_MODE_AFFINE = "affine";
+	public static final String TRANSFORM_MODE_ROTATE = "rotate";
+	protected static final boolean AFFINE_TRANSFORMS =
+			!TRANSFORM_MODE_ROTATE.equals(ResourceLoader.getInstance().getProperty("transform.mode", TRANSFORM_MODE_AFFINE));
+
+	/**
+	 * time spent in the spin timers, summed up per frame
+	 */
+	private static final Histogram ANIMATION_TIME = Metrics.getInstance().histogram(Metrics.ANIMATION);
+
 	/**
 	 * Multiplier for rotation period of all objects, higher absolute values speed up the rotation.
 	 * This value is used as divisor for the rotation speed of all astronomical objects.
@@ -96,6 +138,13 @@ public class AstronomicalObject {
 	protected double ORBITAL_PERIOD_SPEED = 86400/1;
 //	protected double ORBITAL_PERIOD_SPEED = 1086400;
 
+	/**
+	 * @return the simulated seconds per real second of the orbital movement
+	 */
+	public double getTimeScale() {
+		return ORBITAL_PERIOD_SPEED;
+	}
+
 	/**
 	 * Name of this astronomical object.
 	 */
@@ -121,22 +170,53 @@ public class AstronomicalObject {
 	 */
 	private List<AstronomicalObject> satellites;
 
-	private Pane _visualAstronomicalDelegate;
 	/**
-	 * @return the _visualAstronomicalDelegate
+	 * Inclination and longitude of the ascending node as one transform, shared by the delegate and the orbit delegate
+	 */
+	private Affine orbitalPlane = null;
+
+	/**
+	 * Spin of the body in the affine transform mode: the axial tilt, the spin axis and the current spin angle
+	 * are composed into bodyTransform every frame without allocating. The tilt only exists with the delegates,
+	 * the spin timers share the scratch matrices as they all run on the FX Application thread.
+	 */
+	private static final double[] SPIN_MATRIX = new double[AffineMath.SIZE];
+	private static final double[] BODY_MATRIX = new double[AffineMath.SIZE];
+	private Node spinNode = null;
+	private Affine bodyTransform = null;
+	private double[] tiltMatrix = null;
+	private double spinAxisX = 0;
+	private double spinAxisZ = 1;
+	private double spinAngle = 0;
+
+	private Parent _visualAstronomicalDelegate;
+	/**
+	 * @return the _visualAstronomicalDelegate, a SmartParent
 	 */
-	public Pane getVisualAstronomicalDelegate() {
+	public Parent getVisualAstronomicalDelegate() {
 		return _visualAstronomicalDelegate;
 	}
 
-	private Pane _visualOrbitalDelegate;
+	private Parent _visualOrbitalDelegate;
 	/**
-	 * @return the _visualOrbitalDelegate
+	 * @return the _visualOrbitalDelegate, a SmartParent
 	 */
-	public Pane getVisualOrbitalDelegate() {
+	public Parent getVisualOrbitalDelegate() {
 		return _visualOrbitalDelegate;
 	}
 
+	/**
+	 * The drawn orbit as center x, radius x and radius y and the offset of the transition path in the pane
+	 * delegate mode. Derived from the data of the central object and the satellites on first use, so neither
+	 * the layout nor the streaming needs any delegate, see {@link #getOrbitGeometry()}.
+	 */
+	private double[] orbitGeometry = null;
+	private Transition orbitalTransition = null;
+	/**
+	 * Position on the orbit when the delegates were released
+	 */
+	private Duration orbitTime = null;
+
 	/**
 	 * Initializes a new instance of the AstronomicalObject class. Sets the name of
 	 * the new object and its physical properties, such as radius, mass and so on.
@@ -145,6 +225,7 @@ public class AstronomicalObject {
 	 * @param type                    Type of the new object ("Star", "Planet", "Satellite", "Ring")
 	 * @param physicalCharacteristics Physical characteristics for the new object.
 	 * @param orbitalCharacteristics  Orbit characteristics for the new object.
+	 * @see #createDelegates()
 	 */
 	public AstronomicalObject(final String name, final String type, final PhysicalCharacteristics physicalCharacteristics,
 			final OrbitalCharacteristics orbitalCharacteristics) {
@@ -152,8 +233,6 @@ public class AstronomicalObject {
 		this.type = type;
 		this.physicalCharacteristics = physicalCharacteristics;
 		this.orbit = orbitalCharacteristics;
-		
-		this._visualAstronomicalDelegate = createDelegate();
 	}
 
 	/**
@@ -252,6 +331,22 @@ public class AstronomicalObject {
 		satellites.add(satellite);
 	}
 
+	/**
+	 * Rough estimate of the heap used by the data of this object without its delegates and satellites,
+	 * assuming 12 byte object headers and compressed references, see {@link util.HeapAccounting}
+	 *
+	 * @return the estimated size in bytes
+	 */
+	public long getModelBytes() {
+		// the object itself and the physical characteristics
+		long bytes = 112 + 48;
+		// the name as latin-1 string
+		bytes += 40 + name.length();
+		if (orbit != null) bytes += 88;
+		if (satellites != null) bytes += 32 + 24 * satellites.size();
+		return bytes;
+	}
+
 	//////////////////////////////////////////////////////////////////////////////////////////////////////////////////
 	//
 	// All functionality for the visual delegate
@@ -274,69 +369,94 @@ public class AstronomicalObject {
        	if (img == null) {
         	//retry for .png format
         	//if no png found either the exception escalates
-            System.out.println("No jpg resource for Star System object of name " + name + ". Retrying for png.");
+            Log.RESOURCES.info("No jpg resource, retrying for png: ", name);
         	resourceName = "2k_" + name.toLowerCase() + ".png";
 //        	resourceName = "/res/2k_" + name.toLowerCase() + ".png";
            	img = rl.loadImage(resourceName);
            	if (img == null) {
-           		System.out.println("No png resource for Star System object of name " + name + ".");
+           		Log.RESOURCES.warn("No png resource for Star System object of name ", name);
 			}
        	}
         return img;
     }
 
     /**
-     * Interface for the creation of the orbit delegate and the orbital translation
-     * This is necessary as we can't create the orbit delegate at instantiation time as
-     * we can't assure that all objects we need are already instantiated.
+     * Loads the local image for the astronomical object in the background, the .jpg is tried first then the .png.
+     * Returns at once, the consumer is called on the FX Application thread once the image is decoded
+     * so the caller can swap it into the placeholder material.
+     * 
+     * @param name Astronomical object unique name.
+     * @param onLoaded called with the decoded image on the FX Application thread
+     * @return the future which can be used to wait for the image
+     */
+    protected CompletableFuture<Image> loadObjectLocalImageAsync(String name, Consumer<Image> onLoaded) {
+    	String baseName = "2k_" + name.toLowerCase();
+    	return ResourceLoader.getInstance().loadImageAsync(onLoaded, baseName + ".jpg", baseName + ".png");
+    }
+
+    /**
+     * Returns the shared material for the astronomical object from the texture cache.
+     * Until the texture is decoded in the background the material shows a placeholder color.
      * 
-     * We need both the central object which this astronomical objects orbits and all
-     * the satellites and rings so we can calculate the actual size of the orbit.
+     * @param name Astronomical object unique name.
+     * @param maps the maps of the material which are set to the texture
+     * @return the material
+     */
+    protected PhongMaterial loadObjectLocalMaterial(String name, int maps) {
+    	String baseName = "2k_" + name.toLowerCase();
+    	return ResourceLoader.getInstance().getTextureCache().getMaterial(0, maps, ResourceLoader.PLACEHOLDER_COLOR,
+    			baseName + ".jpg", baseName + ".png");
+    }
+
+    /**
+     * Creates the orbit delegate and the orbital translation.
+     * The size of the orbit is derived from the data of the central object which this astronomical
+     * objects orbits and of all the satellites and rings, see {@link #getOrbitGeometry()}.
      */
-	public void createOrbitalDelegate() {
+	private void createOrbitalDelegate() {
 		if (_visualOrbitalDelegate != null) {
 			// ASSERT FAIL - may happen later when we can change our viewpoint, right now we throw exception
 			throw new IllegalStateException("Visual Orbital Delegate already set!");
 		}
-		// This is legal as we don't set orbit for stars
-    	if (getOrbit() == null || (getOrbit().getPerihelion() == 0.0 && getOrbit().getAphelion() == 0.0)) return;
+		// This is legal as we don't set orbit for stars and rings
+    	if (!hasOrbit()) return;
 		
-		_visualOrbitalDelegate = new SmartPane();
+		_visualOrbitalDelegate = createContainer();
 		_visualOrbitalDelegate.setMouseTransparent(true);
 
-    	Ellipse ellipse = createEllipticalOrbit(false);
+    	Ellipse ellipse = createOrbitEllipse(false);
     	if (getType() != "Satellite") {
-    		_visualOrbitalDelegate.getChildren().addAll(ellipse);
+    		children(_visualOrbitalDelegate).addAll(ellipse);
     	} else {
-    		_visualOrbitalDelegate.getChildren().addAll(ellipse);
+    		children(_visualOrbitalDelegate).addAll(ellipse);
             ellipse.setStroke(Color.TRANSPARENT);
 //            ellipse.setStrokeWidth(1);
     	}
     	
-		Pane translationPane = (Pane)getVisualAstronomicalDelegate().getChildrenUnmodifiable().get(0);
+		Parent translationPane = (Parent)getVisualAstronomicalDelegate().getChildrenUnmodifiable().get(0);
     	applyOrbitalTransition(translationPane);
     	applyInclination();
     	applyLongitudeOfAscendingNode();
 	}
 	
-	public void buildHierarchy() {
+	private void buildHierarchy() {
 		// for all but the star hook up the visual hierarchy
 		OrbitalCharacteristics orbit = getOrbit();
 		if (orbit == null) {
-			System.out.println("orbit == null for " + getName());
+			Log.ORBIT.warn("orbit == null for ", getName());
 			return;
 		}
 		AstronomicalObject centralObject = orbit.getCentralObject();
 		if (centralObject == null) {
-			System.out.println("centralObject == null for " + getName());
+			Log.ORBIT.warn("centralObject == null for ", getName());
 		}
-		Pane centralVisualAstronomicalDelegate = centralObject.getVisualAstronomicalDelegate();
+		Parent centralVisualAstronomicalDelegate = centralObject.getVisualAstronomicalDelegate();
 		if (centralVisualAstronomicalDelegate == null) {
-			System.out.println("centralVisualAstronomicalDelegate == null for " + getName());
+			Log.ORBIT.warn("centralVisualAstronomicalDelegate == null for ", getName());
 		}
-		Pane centralObjectTranslationPane = (Pane)centralVisualAstronomicalDelegate.getChildren().get(0);
+		SmartParent centralObjectTranslationPane = (SmartParent)centralVisualAstronomicalDelegate.getChildrenUnmodifiable().get(0);
 		if (centralObjectTranslationPane == null) {
-			System.out.println("centralObjectTranslationPane == null for " + getName());
+			Log.ORBIT.warn("centralObjectTranslationPane == null for ", getName());
 		}
 		
 		
@@ -347,39 +467,110 @@ public class AstronomicalObject {
     	}
 	}
 
-	@SuppressWarnings("unchecked")
-	private Pane createDelegate() {
+	/**
+	 * @return true if the object moves along an orbit, false for stars and for rings which stay centered on their planet
+	 */
+	public boolean hasOrbit() {
+		return getOrbit() != null && !(getOrbit().getPerihelion() == 0.0 && getOrbit().getAphelion() == 0.0)
+				&& !"Ring".equals(getType());
+	}
+
+	/**
+	 * @return true if the delegates are created, see {@link #createDelegates()} and {@link #releaseDelegates()}
+	 */
+	public boolean hasDelegates() {
+		return _visualAstronomicalDelegate != null;
+	}
+
+	/**
+	 * Removes the delegates of this object and its satellites from the scene graph and drops them together
+	 * with their animations and materials, so a far away moon system holds no nodes, transitions or textures.
+	 * The position on the orbit is kept, {@link #createDelegates()} builds the delegates again.
+	 * Suspensions of the AnimationHandler are kept as well.
+	 */
+	public void releaseDelegates() {
+		if (_visualAstronomicalDelegate == null) return;
+		if (satellites != null) {
+			for (AstronomicalObject satellite : satellites) satellite.releaseDelegates();
+		}
+		AnimationHandler animationHandler = AnimationHandler.getInstance();
+		if (orbitalTransition != null) orbitTime = animationHandler.getCurrentTime(orbitalTransition);
+		animationHandler.removeAnimations(this);
+		releaseVisualResources();
+
+		Parent parent = _visualAstronomicalDelegate.getParent();
+		if (parent != null) children(parent).removeAll(_visualAstronomicalDelegate, _visualOrbitalDelegate);
+		_visualAstronomicalDelegate = null;
+		_visualOrbitalDelegate = null;
+		orbitalTransition = null;
+		orbitalPlane = null;
+		spinNode = null;
+		bodyTransform = null;
+		tiltMatrix = null;
+	}
+
+	/**
+	 * Builds the delegates of this object and its satellites, first or again after {@link #releaseDelegates()},
+	 * and adds them to the translation pane of the central object, which must have its delegates.
+	 * The model creates no delegates itself, so a catalog only holds nodes for the bodies the scene attaches.
+	 * Must be called on the FX Application thread.
+	 */
+	public void createDelegates() {
+		createDelegates(true);
+	}
+
+	/**
+	 * @param withSatellites false to build the delegates of this object only, e.g. of the star whose satellites
+	 * are attached one by one by the streaming
+	 * @see #createDelegates()
+	 */
+	public void createDelegates(boolean withSatellites) {
+		if (_visualAstronomicalDelegate == null) {
+			_visualAstronomicalDelegate = createDelegate();
+			createOrbitalDelegate();
+			// the star is the root of the hierarchy
+			if (getOrbit() != null) buildHierarchy();
+		}
+		if (withSatellites && satellites != null) {
+			for (AstronomicalObject satellite : satellites) satellite.createDelegates();
+		}
+	}
+
+	/**
+	 * Creates an empty container of the delegate hierarchy depending on the delegate mode
+	 */
+	private static Parent createContainer() {
+		return PANE_DELEGATES ? new SmartPane() : new SmartGroup();
+	}
+
+	private static ObservableList<Node> children(Parent container) {
+		return ((SmartParent)container).getChildren();
+	}
+
+	private Parent createDelegate() {
 		//the topmost enclosing container is used for the inclination
 		//the 2nd container is for the orbital translation which will hold the actual visual object
 		//and - if present the objects which are bound gravitationally to this one like rings and moons
 		// the inclinationPane will be added to the central objects translationPane 
-		SmartPane inclinationPane = new SmartPane();
-		SmartPane translationPane = new SmartPane();
+		Parent inclinationPane = createContainer();
+		Parent translationPane = createContainer();
 
 		Shape3D planet = createAstronomicalDelegate();
 
-		translationPane.getChildren().addAll(planet);
-		inclinationPane.getChildren().addAll(translationPane);
+		children(translationPane).add(planet);
+		children(inclinationPane).add(translationPane);
 
 		
 		
+		// clicks are picked by the SmartScene with a ray cast, see SmartScene#traverseNodes
+		planet.setMouseTransparent(true);
 		if (!(planet instanceof SmartSphere<?>)) {
-			planet.setMouseTransparent(true);
 			return inclinationPane;
 		}
 
 //		Box boundingBox1 = ((SmartSphere<?>)planet).getBoundingBox();
 //		translationPane.getChildren().addAll(boundingBox1);
 //		boundingBox1.setMouseTransparent(true);
-
-		planet.setOnMouseClicked((event) -> {
-//			System.out.println("(CLICKED) Planet "+ planet + " " + ((SmartSphere<AstronomicalObject>)planet).getAstronomicalObject().getName());
-//			System.out.println("(CLICKED) Planet "+ planet + " pickOnBounds: " + planet.pickOnBoundsProperty().get());
-
-			SmartScene subScene = ((SmartStage<?>)planet.getScene().getWindow()).getSubScene();
-			subScene.onMouseClicked((SmartSphere<AstronomicalObject>)planet);
-		});
-		System.out.println("Register (CLICKED) Planet "+ ((SmartSphere<AstronomicalObject>)planet).getAstronomicalObject().getName());
 		
 //		planet.addEventFilter(MouseEvent.MOUSE_ENTERED_TARGET, event ->
 //			System.out.println(
@@ -400,22 +591,26 @@ public class AstronomicalObject {
 		return inclinationPane;
 	}
 
-	/*
-	 * Helper to find and return the actual sphere object representing the Star, Planet or Satellite.
-	 * We just traverse the FIRST child in a given node until we find a  child which is not a instance of Parent.
-	 * Its guaranteed that somewhere in the hierarchy of the first child we find a Shape3D object
+	/**
+	 * Decodes the texture of the visual delegate into the texture cache so attaching it does not stall.
+	 * May be called on any thread.
+	 */
+	public void prepareVisualResources() {
+		String baseName = "2k_" + getName().toLowerCase();
+		TextureCache cache = ResourceLoader.getInstance().getTextureCache();
+		if (cache.getImage(baseName + ".jpg", 0) == null) cache.getImage(baseName + ".png", 0);
+	}
+
+	/**
+	 * Drops the material of the visual delegate and evicts it from the texture cache,
+	 * so the material and its texture are not kept for a released delegate
 	 */
-	private Shape3D getVisualDelegateShape3D() {
-		Node node = _visualAstronomicalDelegate;
-		while (node instanceof Parent) node = ((Parent)node).getChildrenUnmodifiable().get(0);
-		
-		Shape3D s = null;
-		if (node instanceof Shape3D) {
-			s = (Shape3D)node;
-		} else {
-			throw new NullPointerException();
+	private void releaseVisualResources() {
+		Shape3D shape = getVisualDelegate();
+		if (shape.getMaterial() instanceof PhongMaterial) {
+			ResourceLoader.getInstance().getTextureCache().releaseMaterial((PhongMaterial) shape.getMaterial());
 		}
-		return s;
+		shape.setMaterial(null);
 	}
 
 	public Shape3D getVisualDelegate() {
@@ -435,12 +630,11 @@ public class AstronomicalObject {
 		// test scale
 		inclination *= SCALE_INCLINATION * -1;
 
-		System.out.println("(inclination): " + getName() + inclination);
+		Log.ORBIT.debug("(inclination): ", getName(), inclination);
 		
 		
 		Rotate rotate = new Rotate(inclination, Rotate.Y_AXIS);
-		getVisualAstronomicalDelegate().getTransforms().add(rotate);
-		getVisualOrbitalDelegate().getTransforms().add(rotate);
+		addOrbitalPlaneRotate(rotate);
 	}
 	
 	/**
@@ -455,12 +649,29 @@ public class AstronomicalObject {
 
 		double longitudeOfAscendingNode = getOrbit().getLongitudeOfAscendingNode();
 
-		System.out.println("(applyLongitudeOfAscendingNode): " + getName() + " " + longitudeOfAscendingNode);
+		Log.ORBIT.debug("(applyLongitudeOfAscendingNode): ", getName(), longitudeOfAscendingNode);
 		
 		
 		Rotate rotate = new Rotate(longitudeOfAscendingNode, Rotate.Z_AXIS);
-		getVisualAstronomicalDelegate().getTransforms().add(rotate);
-		getVisualOrbitalDelegate().getTransforms().add(rotate);
+		addOrbitalPlaneRotate(rotate);
+	}
+
+	/**
+	 * Adds the rotate to both the delegate and the orbit delegate.
+	 * In the affine transform mode the rotates are concatenated into a single Affine instead.
+	 */
+	private void addOrbitalPlaneRotate(Rotate rotate) {
+		if (!AFFINE_TRANSFORMS) {
+			getVisualAstronomicalDelegate().getTransforms().add(rotate);
+			getVisualOrbitalDelegate().getTransforms().add(rotate);
+			return;
+		}
+		if (orbitalPlane == null) {
+			orbitalPlane = new Affine();
+			getVisualAstronomicalDelegate().getTransforms().add(orbitalPlane);
+			getVisualOrbitalDelegate().getTransforms().add(orbitalPlane);
+		}
+		orbitalPlane.append(rotate);
 	}
 	
 	/**
@@ -469,16 +680,15 @@ public class AstronomicalObject {
 	 * The translationPane needs to be manipulated here
 	 * 
 	 */
-	private void applyArgumentOfPerihelion(PathTransition transition, double orbitalPeriod) {
+	private void applyArgumentOfPerihelion(Transition transition, double orbitalPeriod) {
 		if (getOrbit() == null) return;
 
 		double argumentOfPerihelion = getOrbit().getArgumentOfPerihelion();
-		orbitalPeriod = orbitalPeriod * argumentOfPerihelion / 360;
-		
-		Duration time = Duration.seconds(orbitalPeriod);
+		// a body created after the start continues where it would be if it had been created at the start
+		double time = AnimationHandler.getInstance().getStartTime(orbitalPeriod * 1000 * argumentOfPerihelion / 360);
 
-		transition.jumpTo(time);
-		System.out.println("(applyArgumentOfPerihelion): " + getName() + " " + argumentOfPerihelion);
+		transition.jumpTo(Duration.millis(time % (orbitalPeriod * 1000)));
+		Log.ORBIT.debug("(applyArgumentOfPerihelion): ", getName(), argumentOfPerihelion);
 		
 	}
 	
@@ -495,126 +705,140 @@ public class AstronomicalObject {
 		}
 	}
 	
+	/**
+	 * Radius of the visual delegate in the coordinates of the translation pane
+	 */
+	protected double getDelegateRadius() {
+		return getRadius() / SCALE_RADIUS;
+	}
+
+	/**
+	 * Height of the visual delegate before the axial tilt, its width and depth are the diameter
+	 */
+	private double getDelegateHeight() {
+		return "Ring".equals(getType()) ? RING_HEIGHT : 2 * getDelegateRadius();
+	}
+
+	/**
+	 * Width of the visual delegate turned by the axial tilt, the width of the delegate hierarchy
+	 * without the satellites
+	 */
+	private double getTiltedDelegateWidth() {
+		double tilt = Math.toRadians(getAxialTilt());
+		return 2 * getDelegateRadius() * Math.abs(Math.cos(tilt)) + getDelegateHeight() * Math.abs(Math.sin(tilt));
+	}
+
+	/**
+	 * Width and height of the drawn orbit, the stroke is centered on the ellipse
+	 */
+	private double getOrbitWidth() {
+		return 2 * getOrbitGeometry()[1] + ORBIT_STROKE_WIDTH;
+	}
+
+	private double getOrbitHeight() {
+		return 2 * getOrbitGeometry()[2] + ORBIT_STROKE_WIDTH;
+	}
+
 	private double calculateXTranslation() {
-		double x = 0;
+		double width = 2 * getDelegateRadius();
 		//if no moons or rings we translate for half satellite size
 		if (getSatellites() == null) {
-			x = getVisualDelegateShape3D().getBoundsInLocal().getWidth() / 2;
-			return x;
+			return width / 2;
 		}
 
-		double width = getVisualDelegateShape3D().getBoundsInLocal().getWidth();
 		double satelliteWidth = 0;
 		
 		for (AstronomicalObject o : getSatellites()) {
 			// Rings - now handle rings
-			if (o == null || o.getVisualOrbitalDelegate() == null) {
-				double ringWidth = o.getVisualDelegateShape3D().getBoundsInLocal().getWidth();
-				satelliteWidth = Math.max(satelliteWidth, ringWidth);
-
-				System.out.println("(calculateXTranslation): " + getName() + " : " + o.getName() +
-						" Width: " + o.getVisualDelegateShape3D().getBoundsInLocal().getWidth() +
-						" Height: " + o.getVisualDelegateShape3D().getBoundsInLocal().getHeight() +
-						" Depth: " + o.getVisualDelegateShape3D().getBoundsInLocal().getDepth());
+			if (!o.hasOrbit()) {
+				satelliteWidth = Math.max(satelliteWidth, 2 * o.getDelegateRadius());
 			} else {
-				double orbitWidth = o.getVisualOrbitalDelegate().getBoundsInLocal().getWidth();
-				satelliteWidth = Math.max(satelliteWidth, orbitWidth);
+				satelliteWidth = Math.max(satelliteWidth, o.getOrbitWidth());
 			}
 		}
 		width = width / 2 + satelliteWidth;
-		x = width / 2;
-		
+		double x = width / 2;
+
+		Log.ORBIT.debug("(calculateXTranslation) translation: ", getName(), x);
+
 		return x;
 	}
 	private double calculateYTranslation() {
-		double y = 0;
 		//if no moons or rings we translate for half satellite size
 		if (getSatellites() == null) {
-			y = getVisualDelegateShape3D().getBoundsInLocal().getDepth() / 2;
-			return y;
+			return getDelegateRadius();
 		}
 		//with moons we need orbit + moon size / 2
-		double height = getVisualDelegateShape3D().getBoundsInLocal().getHeight();
+		double height = getDelegateHeight();
 		double satelliteHeight = 0;
 		
-		System.out.println("(calculateYTranslation): " + getName() +
-		" Width: " + getVisualDelegateShape3D().getBoundsInLocal().getWidth() +
-		" Height: " + getVisualDelegateShape3D().getBoundsInLocal().getHeight() +
-		" Depth: " + getVisualDelegateShape3D().getBoundsInLocal().getDepth());
-		
 		for (AstronomicalObject o : getSatellites()) {
 			// Rings - very strange behavior
 			// if moons with larger orbits are present, there is no problem - the size of moon orbit will take
 			// precedence
 			// without moons or moons inside the rings it gets quite strange as the ring size has no influence
 			// on the Y-Translation but we need to add an extra satellite radius
-			if (o == null || o.getVisualOrbitalDelegate() == null) {
+			if (!o.hasOrbit()) {
 				satelliteHeight = Math.max(satelliteHeight, height / 2);
 			} else {
-				double orbitHeight = o.getVisualOrbitalDelegate().getBoundsInLocal().getHeight();
-				satelliteHeight = Math.max(satelliteHeight, orbitHeight);
-
-				System.out.println("(calculateYTranslation): " + getName() + " : " + o.getName() +
-						" Orbit Width: " + o.getVisualOrbitalDelegate().getBoundsInLocal().getWidth() +
-						" Orbit Height: " + o.getVisualOrbitalDelegate().getBoundsInLocal().getHeight() +
-						" Orbit Depth: " + o.getVisualOrbitalDelegate().getBoundsInLocal().getDepth());
-			
-				System.out.println("(calculateYTranslation): " + getName() + " : " + o.getName() +
-						" Width: " + o.getVisualDelegateShape3D().getBoundsInLocal().getWidth() +
-						" Height: " + o.getVisualDelegateShape3D().getBoundsInLocal().getHeight() +
-						" Depth: " + o.getVisualDelegateShape3D().getBoundsInLocal().getDepth());
-			
+				satelliteHeight = Math.max(satelliteHeight, o.getOrbitHeight());
 			}
 		}
 		height = height / 2 + satelliteHeight;
-		y = height / 2;
+		double y = height / 2;
 
-		System.out.println("(calculateYTranslation): " + getName() +
-				" Translation: " + y);
+		Log.ORBIT.debug("(calculateYTranslation) translation: ", getName(), y);
 
 		return y;
 	}
 	private Size2D sizeWithSatellites() {
-		double width = getVisualDelegateShape3D().getBoundsInLocal().getWidth();
-		double height = getVisualDelegateShape3D().getBoundsInLocal().getHeight();
+		double width = 2 * getDelegateRadius();
+		double height = getDelegateHeight();
 
 		double satelliteWidth = 0;
 		double satelliteHeight = 0;
 		
 		if (getSatellites() != null) {
 			for (AstronomicalObject o : getSatellites()) {
-				// check this later o == null ????
-				if (o == null || o.getVisualOrbitalDelegate() == null) {
-					System.out.println("sizeWithSatellites NULL for " + getName() + " Satellite: " + o.getName());
-					Bounds ringsBounds = o.getVisualDelegateShape3D().getBoundsInLocal();
-					double ringSize = Math.max(Math.max(ringsBounds.getWidth(), ringsBounds.getHeight()), ringsBounds.getDepth());
+				if (!o.hasOrbit()) {
+					Log.ORBIT.debug("(sizeWithSatellites) no orbit for satellite ", o.getName());
+					double ringSize = Math.max(2 * o.getDelegateRadius(), o.getDelegateHeight());
 					satelliteWidth = Math.max(satelliteWidth, ringSize);
 					satelliteHeight = Math.max(satelliteHeight, ringSize);
 				} else {
-					satelliteWidth = Math.max(satelliteWidth, o.getVisualOrbitalDelegate().getBoundsInLocal().getWidth());
-					satelliteHeight = Math.max(satelliteHeight, o.getVisualOrbitalDelegate().getBoundsInLocal().getHeight());
+					satelliteWidth = Math.max(satelliteWidth, o.getOrbitWidth());
+					satelliteHeight = Math.max(satelliteHeight, o.getOrbitHeight());
 				}
 			}
 		}
 		width = Math.max(width, satelliteWidth);
 		height = Math.max(height, satelliteHeight);
 		
-		System.out.println("(sizeWithSatellites): " + getName() +
-				" Width: " + width +
-				" Height: " + height);
+		Log.ORBIT.debug("(sizeWithSatellites) width/height: ", getName(), width, height);
 		return new Size2D(width, height);
 	}
 
+	/**
+	 * Radius of the object together with the orbits of its satellites and its rings,
+	 * in the coordinates of the translation pane. Same bounds as used to fit the orbits.
+	 * 
+	 * @return the radius of the whole subsystem
+	 */
+	public double getSystemRadius() {
+		Size2D size = sizeWithSatellites();
+		return Math.max(size.width, size.height) / 2;
+	}
+
 	/**
 	 * Apply the orbital translation - movement of an astronomical object along its orbital path
 	 * 
 	 * @param translationPane
 	 */
-	private void applyOrbitalTransition(Pane translationPane) {
-    	if (getOrbit() == null || (getOrbit().getPerihelion() == 0.0 && getOrbit().getAphelion() == 0.0)) return;
+	private void applyOrbitalTransition(Parent translationPane) {
+    	if (!hasOrbit()) return;
 
-    	Ellipse ellipse = createEllipticalOrbit(false);
-		double orbitalPeriod = getOrbit().getOrbitalPeriod() * 60 * 60 * 24 / ORBITAL_PERIOD_SPEED;
+    	Ellipse ellipse = createOrbitEllipse(PANE_DELEGATES);
+		double orbitalPeriod = getOrbitalPeriodSeconds();
 		
 
 		// Do some translation to compensate for the size of the satellite - pathTransition is along the top left corner
@@ -622,21 +846,92 @@ public class AstronomicalObject {
 //		double translateX = Math.cos(inclination) * satelliteSize.width/2;
 //		double translateY = Math.sin(inclination) * satelliteSize.height/2;
 
-		ellipse.setCenterX(ellipse.getCenterX() + calculateXTranslation());
-		ellipse.setCenterY(ellipse.getCenterY() + calculateYTranslation());
-		
-		PathTransition transition = new PathTransition();
-		transition.setPath(ellipse);
+		Transition transition;
+		if (PANE_DELEGATES) {
+			// the PathTransition moves the center of the pane's layout bounds along the path
+			PathTransition pathTransition = new PathTransition();
+			pathTransition.setPath(ellipse);
+			pathTransition.setNode(translationPane);
+			pathTransition.setDuration(Duration.seconds(orbitalPeriod));
+			transition = pathTransition;
+		} else {
+			// the origin of the group - the center of the body - follows the drawn orbit
+			transition = new OrbitTransition(translationPane, ellipse, Duration.seconds(orbitalPeriod));
+		}
         transition.setAutoReverse(false);
-        transition.setNode(translationPane);
         transition.setInterpolator(Interpolator.LINEAR);
-        transition.setDuration(Duration.seconds(orbitalPeriod));
         transition.setCycleCount(Timeline.INDEFINITE);
         
     	applyArgumentOfPerihelion(transition, orbitalPeriod);
+    	if (orbitTime != null) transition.jumpTo(orbitTime);
         
-        AnimationHandler.getInstance().addTransition(transition);
+    	orbitalTransition = transition;
+        AnimationHandler.getInstance().addTransition(this, transition);
     }
+
+	/**
+	 * @return the duration of one orbit of the orbital transition in seconds
+	 */
+	private double getOrbitalPeriodSeconds() {
+		return getOrbit().getOrbitalPeriod() * 60 * 60 * 24 / ORBITAL_PERIOD_SPEED;
+	}
+
+	/**
+	 * @return the time on the orbit in milliseconds: the time of the orbital transition or, while there are no
+	 * delegates, the time the transition would have, see {@link AnimationHandler#getStartTime(double)}
+	 */
+	private double getOrbitMillis() {
+		AnimationHandler animationHandler = AnimationHandler.getInstance();
+		if (orbitalTransition != null) return animationHandler.getCurrentTime(orbitalTransition).toMillis();
+		// released delegates catch up on the time they were suspended when they are created again
+		if (orbitTime != null) return orbitTime.toMillis() + animationHandler.getSuspendedMillis(this);
+		return animationHandler.getStartTime(getOrbitalPeriodSeconds() * 1000 * getOrbit().getArgumentOfPerihelion() / 360);
+	}
+
+	/**
+	 * Position of the body on its orbit in the coordinates of the translation pane of the central object,
+	 * also while there are no delegates, e.g. for the streaming. The body is placed at the angle of the time
+	 * on the orbit, close to the constant speed of the orbital transition for the eccentricities of the catalogs.
+	 * 
+	 * @param position receives x, y and z, the origin for objects without an orbit
+	 */
+	public void getOrbitPosition(double[] position) {
+		position[0] = position[1] = position[2] = 0;
+		if (!hasOrbit()) return;
+
+		double[] geometry = getOrbitGeometry();
+		double cycle = getOrbitalPeriodSeconds() * 1000;
+		double angle = cycle > 0 ? 2 * Math.PI * (getOrbitMillis() % cycle) / cycle : 0;
+		double x = geometry[0] + geometry[1] * Math.cos(angle);
+		double y = geometry[2] * Math.sin(angle);
+
+		// the orbital plane: the longitude of the ascending node around z, then the inclination around y
+		double node = Math.toRadians(getOrbit().getLongitudeOfAscendingNode());
+		double nodeX = x * Math.cos(node) - y * Math.sin(node);
+		double nodeY = x * Math.sin(node) + y * Math.cos(node);
+		double inclination = Math.toRadians(-getOrbit().getInclination() * SCALE_INCLINATION);
+		position[0] = nodeX * Math.cos(inclination);
+		position[1] = nodeY;
+		position[2] = -nodeX * Math.sin(inclination);
+	}
+
+	/**
+	 * @return the smallest distance of {@link #getOrbitPosition(double[])} from the central object, 0 without an orbit
+	 */
+	public double getOrbitMinDistance() {
+		if (!hasOrbit()) return 0;
+		double[] geometry = getOrbitGeometry();
+		return geometry[1] - Math.abs(geometry[0]);
+	}
+
+	/**
+	 * @return the largest distance of {@link #getOrbitPosition(double[])} from the central object, 0 without an orbit
+	 */
+	public double getOrbitMaxDistance() {
+		if (!hasOrbit()) return 0;
+		double[] geometry = getOrbitGeometry();
+		return geometry[1] + Math.abs(geometry[0]);
+	}
 //	/**
 //	 */
 //	public PathTransition getOrbitalTransition() {
@@ -694,10 +989,23 @@ public class AstronomicalObject {
 	 * Creates the visual representation of the orbit.
 	 * Adjustments are made to "fit" the ellipse to the size of the astronomical objects
 	 * 
-	 * @param translationPane
+	 * Package-private for the orbit benchmark.
+	 * 
+	 * @param invertedOrbit depending on invertedOrbit focus1 or focus2 which will be set as center
 	 * @return the ellipse used both for visual representation of orbits and for path translation
 	 */
-	private Ellipse createEllipticalOrbit(boolean invertedOrbit) {
+	Ellipse createEllipticalOrbit(boolean invertedOrbit) {
+		double[] orbit = fitOrbit();
+		if (orbit == null) return null;
+		return createEllipse(invertedOrbit ? -orbit[0] : orbit[0], orbit[1], orbit[2]);
+	}
+
+	/**
+	 * Fits the orbit to the size of the central object and of the satellites, from their data
+	 * 
+	 * @return center x, radius x and radius y of the ellipse, null without an orbit
+	 */
+	private double[] fitOrbit() {
     	if (getOrbit() == null || (getOrbit().getPerihelion() == 0.0 && getOrbit().getAphelion() == 0.0)) return null;
 		/*
 		 * Orbital data to place the object at the correct space
@@ -715,25 +1023,52 @@ public class AstronomicalObject {
 		 * with the SCALE_DISTANCE we use so we can see the outer planets this would result in all moons to orbit 
 		 * within the planets.
 		 */
-		Pane parent = getOrbit().getCentralObject().getVisualAstronomicalDelegate();
-		double parentSize = parent.getBoundsInLocal().getWidth();
+		double parentSize = getOrbit().getCentralObject().getTiltedDelegateWidth();
 		Size2D satelliteSize = sizeWithSatellites();
 		double orbitAdaptationToSize = parentSize/2 + satelliteSize.width/2;
 
-		Ellipse ellipse = createEllipticalOrbit(aphelion+orbitAdaptationToSize, perihelion+orbitAdaptationToSize, invertedOrbit);
+		return fitEllipse(aphelion+orbitAdaptationToSize, perihelion+orbitAdaptationToSize);
+	}
+
+	/**
+	 * @return the geometry of the orbit, see orbitGeometry, derived on the first call
+	 */
+	private double[] getOrbitGeometry() {
+		if (orbitGeometry == null) {
+			double[] orbit = fitOrbit();
+			orbitGeometry = new double[] { orbit[0], orbit[1], orbit[2], 0, 0 };
+			if (PANE_DELEGATES) {
+				orbitGeometry[3] = calculateXTranslation();
+				orbitGeometry[4] = calculateYTranslation();
+			}
+		}
+		return orbitGeometry;
+	}
+
+	/**
+	 * Creates the ellipse of the orbit from its geometry
+	 * 
+	 * @param path true for the path of the orbital transition, which is offset in the pane delegate mode
+	 * @return the ellipse used both for visual representation of orbits and for path translation
+	 */
+	private Ellipse createOrbitEllipse(boolean path) {
+		double[] geometry = getOrbitGeometry();
+		Ellipse ellipse = createEllipse(geometry[0], geometry[1], geometry[2]);
+		if (path) {
+			ellipse.setCenterX(ellipse.getCenterX() + geometry[3]);
+			ellipse.setCenterY(ellipse.getCenterY() + geometry[4]);
+		}
 		return ellipse;
 	}
 
 	/**
-	 * Basic method to create a ellipse with the given parameters
+	 * Basic method to compute a ellipse with the given parameters
 	 * 
 	 * @param aphelion
 	 * @param perihelion
-	 * @return the ellipse used both for visual representation of orbits and for path translation
+	 * @return center x, radius x and radius y of the ellipse
 	 */
-	private Ellipse createEllipticalOrbit(double aphelion, double perihelion) {
-        Ellipse ellipse = new Ellipse();
-        
+	private static double[] fitEllipse(double aphelion, double perihelion) {
         /*
          * aphelion is the point where the 2 objects are farthest away from each other
          * perihelion is the point where both objects are closest
@@ -746,10 +1081,15 @@ public class AstronomicalObject {
         // semiMinorAxis b = sqrt(a-c) where a = semiMajorAxis and c = focusDistance from center
         double sMinorA = Math.sqrt(Math.pow(sMajorA, 2.0)-Math.pow(focus, 2.0));
         
-        ellipse.setCenterX(focus);
+        return new double[] { focus, sMajorA, sMinorA };
+	}
+
+	private static Ellipse createEllipse(double centerX, double radiusX, double radiusY) {
+        Ellipse ellipse = new Ellipse();
+        ellipse.setCenterX(centerX);
         ellipse.setCenterY(0);
-        ellipse.setRadiusX(sMajorA);
-        ellipse.setRadiusY(sMinorA);
+        ellipse.setRadiusX(radiusX);
+        ellipse.setRadiusY(radiusY);
 
         /*
          * The stroke width for the ellipse adds to the bounds!!!!
@@ -761,28 +1101,11 @@ public class AstronomicalObject {
          */
         ellipse.setStroke(Color.SLATEGREY);
         ellipse.setFill(Color.TRANSPARENT);
-        ellipse.setStrokeWidth(1);
+        ellipse.setStrokeWidth(ORBIT_STROKE_WIDTH);
 
         return ellipse;
 	}
 
-	/**
-	 * Basic method to create a ellipse with the given parameters
-	 * 
-	 * @param aphelion
-	 * @param perihelion
-	 * @param invertedOrbit depending on invertedOrbit focus1 or focus2 which will be set as center
-	 * @return the ellipse used both for visual representation of orbits and for path translation
-	 */
-	private Ellipse createEllipticalOrbit(double aphelion, double perihelion, boolean invertedOrbit) {
-		Ellipse ellipse = createEllipticalOrbit(aphelion, perihelion);
-
-		if (invertedOrbit == true) {
-	        ellipse.setCenterX(-(ellipse.getCenterX()));
-		}
-        return ellipse;
-	}
-	
 	/**
      * Creates the actual Shape3D object representing the astronomical object.
      * For stars, planets and moons we use a javafx.shape.Sphere class
@@ -798,20 +1121,15 @@ public class AstronomicalObject {
 		 */
 		String name = getName();
 		String type = getType();
-		double radius = getRadius();
 		double rotationPeriod = getRotationPeriod();
 		double axialTilt = getAxialTilt();
 
-		double scale = SCALE_RADIUS;
-
 		Shape3D celestial = null;
 
-		Image img = loadObjectLocalImage(name);
-		PhongMaterial material = new PhongMaterial();
-		material.setDiffuseMap(img);
+		PhongMaterial material = loadObjectLocalMaterial(name, TextureCache.DIFFUSE_MAP);
 
 		if (type.equals("Ring")) {
-			celestial = new Cylinder(radius / scale, 0.1);
+			celestial = new Cylinder(getDelegateRadius(), RING_HEIGHT);
 //			material.setDiffuseColor(Color.WHITE);
 //			material.setSpecularColor(Color.WHITE);
 //			material.setSpecularMap(img);
@@ -820,7 +1138,7 @@ public class AstronomicalObject {
 //			celestial.setDrawMode(DrawMode.LINE);
 //			celestial.setOpacity(90.0);
 		} else {
-			celestial = new SmartSphere<AstronomicalObject>(radius / scale, this);
+			celestial = new SmartSphere<AstronomicalObject>(getDelegateRadius(), this);
 		}
 		celestial.setMaterial(material);
 
@@ -856,7 +1174,7 @@ public class AstronomicalObject {
 		z = Math.cos(radians);
 		
 		Point3D rotationAxis = new Point3D(x, y, z);
-		s.setRotationAxis(rotationAxis);
+		if (!AFFINE_TRANSFORMS) s.setRotationAxis(rotationAxis);
 		/*
 		 * here we need the negative angle as we rotate around the Z-axis 
 		 */
@@ -870,7 +1188,28 @@ public class AstronomicalObject {
 		 */
 		axialTiltRotate = new Rotate(90.0, Rotate.X_AXIS).createConcatenation(axialTiltRotate);
 		axialTiltRotate = axialTiltRotate.createConcatenation(new Rotate(180.0, Rotate.X_AXIS));
-		s.getTransforms().add(axialTiltRotate);
+		if (!AFFINE_TRANSFORMS) {
+			s.getTransforms().add(axialTiltRotate);
+			return;
+		}
+		// the spin is applied before the tilt like the rotate property, see prepareAnimation
+		spinNode = s;
+		spinAxisX = x;
+		spinAxisZ = z;
+		tiltMatrix = new double[AffineMath.SIZE];
+		AffineMath.set(axialTiltRotate, tiltMatrix, 0);
+		bodyTransform = new Affine(axialTiltRotate);
+		s.getTransforms().add(bodyTransform);
+	}
+
+	/**
+	 * Turns the body by the angle around its spin axis and updates the single body transform in place
+	 */
+	private void spin(double angle) {
+		spinAngle = (spinAngle + angle) % 360;
+		AffineMath.rotation(spinAxisX, 0, spinAxisZ, spinAngle, SPIN_MATRIX, 0);
+		AffineMath.multiply(SPIN_MATRIX, 0, tiltMatrix, 0, BODY_MATRIX, 0);
+		AffineMath.apply(BODY_MATRIX, 0, bodyTransform);
 	}
 	
 	/**
@@ -879,26 +1218,35 @@ public class AstronomicalObject {
 	 * 
 	 * angleForOneNano = 360 / 24 / 60 / 60 / 1000 / 1000 / 1000 / rotation
 	 * 
+	 * The angle is scaled by the rate of the {@link AnimationHandler} like the orbital transitions.
+	 * 
 	 * @see application.StarSystemScene#prepareAnimation(javafx.scene.Node, double)
 	 */
 	protected void prepareAnimation(Node node, double rotation) {
-		System.out.println("PrepareAnimation: " + " Rotation: " + rotation);
+		Log.ANIMATION.debug("(prepareAnimation) rotation: ", getName(), rotation);
 		// now we scale - the higher our scale factor the less time a full rotation needs
 		rotation = rotation / ROTATION_PERIOD_SPEED;
 		// the angle in degree for exactly 1 nano
 		double angleForOneNano = 360 / rotation / 24 / 60 / 60 / 1000 / 1000 / 1000;
 		
+		boolean affine = AFFINE_TRANSFORMS && node == spinNode;
 		AnimationTimer timer = new AnimationTimer() {
 			long oldTimeStamp = 0;
 
 			@Override
 			public void handle(long now) {
+				long start = System.nanoTime();
 				long passed = now - oldTimeStamp;
 				oldTimeStamp = now;
-				double angle = angleForOneNano * passed;
-				node.rotateProperty().set(node.getRotate() +  angle);
+				double angle = angleForOneNano * passed * AnimationHandler.getInstance().getRate();
+				if (affine) {
+					spin(angle);
+				} else {
+					node.rotateProperty().set(node.getRotate() +  angle);
+				}
+				ANIMATION_TIME.accumulate(System.nanoTime() - start);
 			}
 		};
-		AnimationHandler.getInstance().addAnimationTimer(timer);
+		AnimationHandler.getInstance().addAnimationTimer(this, timer);
 	}
 }
\ No newline at end of file
@@ -0,0 +1,104 @@
+package datamodel;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.function.Consumer;
+
+/**
+ * Binary catalog format with the same content as the JSON catalogs, read without a parser and without
+ * building a document tree first, so catalogs with millions of bodies load in a fraction of the time.
+ *
+ * The file is the magic number followed by one record per body in the order star, planets, satellites, rings,
+ * terminated by the type byte -1. A record is the type byte, the name, the central object and the epoch as
+ * modified UTF-8 followed by the four physical and nine orbital values as doubles in the order of {@link CatalogEntry}.
+ */
+class BinaryCatalog implements Closeable {
+	/**
+	 * file extension by which {@link SolarSystemModel} recognizes a binary catalog
+	 */
+	static final String EXTENSION = ".ssc";
+	private static final int MAGIC = 0x53534331;
+	private static final String[] TYPES = { SolarSystemModel.TYPE_STAR, SolarSystemModel.TYPE_PLANET,
+			SolarSystemModel.TYPE_SATELLITE, SolarSystemModel.TYPE_RING };
+
+	private final DataOutputStream out;
+
+	/**
+	 * Starts a catalog, the bodies are written with {@link #write(CatalogEntry)}
+	 */
+	BinaryCatalog(OutputStream out) throws IOException {
+		this.out = new DataOutputStream(new BufferedOutputStream(out, 1 << 16));
+		this.out.writeInt(MAGIC);
+	}
+
+	void write(CatalogEntry entry) throws IOException {
+		out.writeByte(typeCode(entry.type));
+		out.writeUTF(entry.name);
+		out.writeUTF(entry.centralObject == null ? "" : entry.centralObject);
+		out.writeUTF(entry.epoch == null ? "" : entry.epoch);
+		out.writeDouble(entry.radius);
+		out.writeDouble(entry.mass);
+		out.writeDouble(entry.rotationPeriod);
+		out.writeDouble(entry.axialTilt);
+		out.writeDouble(entry.aphelion);
+		out.writeDouble(entry.perihelion);
+		out.writeDouble(entry.semiMajorAxis);
+		out.writeDouble(entry.orbitalPeriod);
+		out.writeDouble(entry.averageOrbitalSpeed);
+		out.writeDouble(entry.inclination);
+		out.writeDouble(entry.longitudeOfAscendingNode);
+		out.writeDouble(entry.argumentOfPerihelion);
+	}
+
+	/**
+	 * Terminates the catalog and closes the stream
+	 */
+	@Override
+	public void close() throws IOException {
+		out.writeByte(-1);
+		out.close();
+	}
+
+	private static int typeCode(String type) {
+		for (int i = 0; i < TYPES.length; i++) {
+			if (TYPES[i].equals(type)) return i;
+		}
+		throw new IllegalArgumentException("unknown type " + type);
+	}
+
+	/**
+	 * Reads all bodies of a catalog, the entry passed to the consumer is reused for the next body
+	 */
+	static void read(InputStream stream, Consumer<CatalogEntry> consumer) throws IOException {
+		DataInputStream in = new DataInputStream(new BufferedInputStream(stream, 1 << 16));
+		if (in.readInt() != MAGIC) throw new IOException("not a binary star system catalog");
+		CatalogEntry entry = new CatalogEntry();
+		int type;
+		while ((type = in.readByte()) >= 0) {
+			if (type >= TYPES.length) throw new IOException("unknown type " + type);
+			entry.type = TYPES[type];
+			entry.name = in.readUTF();
+			entry.centralObject = in.readUTF();
+			entry.epoch = in.readUTF();
+			entry.radius = in.readDouble();
+			entry.mass = in.readDouble();
+			entry.rotationPeriod = in.readDouble();
+			entry.axialTilt = in.readDouble();
+			entry.aphelion = in.readDouble();
+			entry.perihelion = in.readDouble();
+			entry.semiMajorAxis = in.readDouble();
+			entry.orbitalPeriod = in.readDouble();
+			entry.averageOrbitalSpeed = in.readDouble();
+			entry.inclination = in.readDouble();
+			entry.longitudeOfAscendingNode = in.readDouble();
+			entry.argumentOfPerihelion = in.readDouble();
+			consumer.accept(entry);
+		}
+	}
+}
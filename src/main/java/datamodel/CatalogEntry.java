@@ -0,0 +1,29 @@
+package datamodel;
+
+/**
+ * One body of a star system catalog with the fields of SolarSystemData.json, see {@link SolarSystemModel}.
+ * The units are the ones of the JSON document: radius in km, mass in earth masses, periods in days,
+ * distances in AU and angles in degree. Readers and generators reuse one instance for all bodies.
+ */
+class CatalogEntry {
+	/**
+	 * one of the types of {@link SolarSystemModel}, the central object is only read for other types than the star
+	 */
+	String type;
+	String name;
+	double radius;
+	double mass;
+	double rotationPeriod;
+	double axialTilt;
+
+	String centralObject;
+	double aphelion;
+	double perihelion;
+	double semiMajorAxis;
+	double orbitalPeriod;
+	double averageOrbitalSpeed;
+	double inclination;
+	double longitudeOfAscendingNode;
+	double argumentOfPerihelion;
+	String epoch = "J2000";
+}
@@ -1,9 +1,9 @@
 package datamodel;
 
-import javafx.scene.image.Image;
 import javafx.scene.paint.PhongMaterial;
 import javafx.scene.shape.Shape3D;
 import util.SmartSphere;
+import util.TextureCache;
 
 /**
  * This class represents a planet model.
@@ -36,18 +36,14 @@ public class Planet extends AstronomicalObject {
 		 * All the data necessary to create the actual astronomical object as a sphere
 		 */
 		String name = getName();
-		double radius = getRadius();
 		double rotationPeriod = getRotationPeriod();
 		double axialTilt = getAxialTilt();
 
-		double scale = SCALE_RADIUS;
 		Shape3D celestial = null;
 
-		Image img = loadObjectLocalImage(name);
-		PhongMaterial material = new PhongMaterial();
-		material.setDiffuseMap(img);
+		PhongMaterial material = loadObjectLocalMaterial(name, TextureCache.DIFFUSE_MAP);
 
-		celestial = new SmartSphere<Planet>(radius / scale, this);
+		celestial = new SmartSphere<Planet>(getDelegateRadius(), this);
 
 		celestial.setMaterial(material);
 		celestial.setPickOnBounds(false);
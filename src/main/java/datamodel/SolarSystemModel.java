@@ -6,10 +6,16 @@ import org.json.simple.parser.JSONParser;
 
 import application.TestSuite;
 import javafx.scene.shape.Shape3D;
+import util.FlightEvents;
+import util.StartupTrace;
 import util.SmartSphere;
 
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.Reader;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
@@ -20,12 +26,20 @@ import java.util.Map;
  */
 public class SolarSystemModel implements StarSystemModel {
 	private static final String DEFAULT_RESOURCE_LOCATION = "/datamodel/SolarSystemData.json";
-	private static final String TYPE_STAR = "Star";
-	private static final String TYPE_PLANET = "Planet";
-	private static final String TYPE_RING = "Ring";
-	private static final String TYPE_SATELLITE = "Satellite";
+	static final String TYPE_STAR = "Star";
+	static final String TYPE_PLANET = "Planet";
+	static final String TYPE_RING = "Ring";
+	static final String TYPE_SATELLITE = "Satellite";
 
 	private Map<String, AstronomicalObject> objects = new HashMap<>();
+	private Star star = null;
+
+	/**
+	 * Reads the bodies of a catalog into the model, see {@link #load(String, Parser)}
+	 */
+	private interface Parser {
+		void parse() throws Exception;
+	}
 
     /**
      * Initializes a new instance of the SolarSystemModel class. Reads data from the JSON
@@ -42,49 +56,106 @@ public class SolarSystemModel implements StarSystemModel {
      * we create the orbiting objects.
      */
     public SolarSystemModel(String resource) {
-    	if (resource == null || resource.isEmpty()) {
-    		resource = DEFAULT_RESOURCE_LOCATION;
+    	String location = orDefault(resource);
+    	if (location.endsWith(BinaryCatalog.EXTENSION)) {
+    		load(location, () -> {
+    			try (InputStream in = open(location)) {
+    				BinaryCatalog.read(in, this::add);
+    			}
+    		});
+    	} else {
+    		Reader reader = in(open(location));
+    		load(location, () -> parse(reader));
     	}
+    }
+
+    /**
+     * Initializes a new instance of the SolarSystemModel class from a JSON document which is not
+     * a resource, e.g. a generated catalog.
+     *
+     * @param reader the JSON document
+     * @param name the name used in the diagnostics
+     */
+    public SolarSystemModel(Reader reader, String name) {
+    	load(name, () -> parse(reader));
+    }
+
+    /**
+     * Initializes a new instance of the SolarSystemModel class with a generated star system
+     */
+    SolarSystemModel(SystemGenerator generator, String name) {
+    	load(name, () -> generator.generate(this::add));
+    }
+
+    private static String orDefault(String resource) {
+    	return resource == null || resource.isEmpty() ? DEFAULT_RESOURCE_LOCATION : resource;
+    }
+
+    /**
+     * Opens a resource or, if there is no such resource, a file, e.g. a generated catalog
+     * 
+     * @return the stream or null if it was not found, reported when it is parsed
+     */
+    private static InputStream open(String resource) {
+    	InputStream in = TestSuite.class.getResourceAsStream(resource);
+    	if (in != null) return in;
+    	try {
+    		File file = new File(resource);
+    		return file.isFile() ? new FileInputStream(file) : null;
+    	} catch (IOException e) {
+    		return null;
+    	}
+    }
+
+    private static Reader in(InputStream in) {
+    	return in == null ? null : new InputStreamReader(in);
+    }
+
+    private void parse(Reader inReader) throws Exception {
         JSONParser parser = new JSONParser();
+        Object obj = parser.parse(inReader);
+        JSONObject solarSystemData = (JSONObject) obj;
+
+        JSONObject sunData = (JSONObject) solarSystemData.get(TYPE_STAR);
+        createStar(sunData);
+        JSONArray planetsData = (JSONArray) solarSystemData.get(TYPE_PLANET);
+        createPlanets(planetsData);
+        JSONArray satellitesData = (JSONArray) solarSystemData.get(TYPE_SATELLITE);
+        createAstronomicalObjects(satellitesData, TYPE_SATELLITE);
+        JSONArray ringsData = (JSONArray) solarSystemData.get(TYPE_RING);
+        createAstronomicalObjects(ringsData, TYPE_RING);
+    }
+
+    /**
+     * Reads the bodies with the parser. No visual delegates are created, the scene creates them
+     * for the parts of the catalog it shows, see {@link AstronomicalObject#createDelegates()}
+     */
+    private void load(String resource, Parser parser) {
+        FlightEvents.LoadPhaseEvent phase = new FlightEvents.LoadPhaseEvent();
+        phase.begin();
+        StartupTrace.Span span = StartupTrace.begin("parse", "load", resource);
         try {
-        	InputStream in = TestSuite.class.getResourceAsStream(resource);
-        	InputStreamReader inReader = new InputStreamReader(in);
-            Object obj = parser.parse(inReader);
-            JSONObject solarSystemData = (JSONObject) obj;
-
-            JSONObject sunData = (JSONObject) solarSystemData.get(TYPE_STAR);
-            createStar(sunData);
-            JSONArray planetsData = (JSONArray) solarSystemData.get(TYPE_PLANET);
-            createPlanets(planetsData);
-            JSONArray satellitesData = (JSONArray) solarSystemData.get(TYPE_SATELLITE);
-            createAstronomicalObjects(satellitesData, TYPE_SATELLITE);
-            JSONArray ringsData = (JSONArray) solarSystemData.get(TYPE_RING);
-            createAstronomicalObjects(ringsData, TYPE_RING);
-            
-            createOrbits();
-            buildHierarchy();
-            
+            parser.parse();
+            commitPhase(phase, resource, "parse");
+            span.close();
         } catch (Exception e) {
             System.out.println(e.getMessage());
             e.printStackTrace();
         }
     }
 
-    private void buildHierarchy() {
-        for (AstronomicalObject object : getAstronomicalObjects()) {
-            object.buildHierarchy();
+    /**
+     * Commits the flight recorder event of a load phase
+     */
+    private void commitPhase(FlightEvents.LoadPhaseEvent event, String resource, String phase) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.resource = resource;
+            event.phase = phase;
+            event.bodies = objects.size();
+            event.commit();
         }
     }
-    
-    //create the orbits in order from satellites to planets as the planetary orbits need the size of the satellite orbits
-    private void createOrbits() {
-    	for (AstronomicalObject object : getSatellites()) {
-            object.createOrbitalDelegate();
-    	}
-        for (AstronomicalObject object : getPlanets()) {
-            object.createOrbitalDelegate();
-        }
-	}
 
 	/**
      * Creates the Solar System star (the Sun) model. Data is being read from the JSON object given
@@ -95,6 +166,49 @@ public class SolarSystemModel implements StarSystemModel {
         PhysicalCharacteristics physicalCharacteristics = readPhysicalCharacteristics(sunData);
         Star sun = new Star((String)sunData.get("name"), physicalCharacteristics, null);
         objects.put(sun.getName(), sun);
+        star = sun;
+    }
+
+    /**
+     * Creates a body of a binary or generated catalog, the central object must already exist
+     * @param entry Data for the model, the entry may be reused by the caller.
+     */
+    private void add(CatalogEntry entry) {
+        PhysicalCharacteristics physicalCharacteristics = new PhysicalCharacteristics
+                .Builder(entry.radius)
+                .mass(entry.mass)
+                .rotationPeriod(entry.rotationPeriod)
+                .axialTilt(entry.axialTilt)
+                .build();
+        if (TYPE_STAR.equals(entry.type)) {
+            star = new Star(entry.name, physicalCharacteristics, null);
+            objects.put(star.getName(), star);
+            return;
+        }
+        AstronomicalObject parent = objects.get(entry.centralObject);
+        OrbitalCharacteristics orbitalCharacteristics = new OrbitalCharacteristics
+                .Builder(parent)
+                .aphelion(entry.aphelion)
+                .perihelion(entry.perihelion)
+                .semiMajorAxis(entry.semiMajorAxis)
+                .orbitalPeriod(entry.orbitalPeriod)
+                .averageOrbitalSpeed(entry.averageOrbitalSpeed)
+                .inclination(entry.inclination)
+                .longitudeOfAscendingNode(entry.longitudeOfAscendingNode)
+                .argumentOfPerihelion(entry.argumentOfPerihelion)
+                .epoch(entry.epoch)
+                .build();
+        if (TYPE_PLANET.equals(entry.type)) {
+            Planet planet = new Planet(entry.name, physicalCharacteristics, orbitalCharacteristics);
+            objects.put(planet.getName(), planet);
+            parent.addSatellite(planet);
+            return;
+        }
+        // the type constants are compared by identity in AstronomicalObject
+        String type = TYPE_RING.equals(entry.type) ? TYPE_RING : TYPE_SATELLITE;
+        AstronomicalObject object = new AstronomicalObject(entry.name, type, physicalCharacteristics, orbitalCharacteristics);
+        objects.put(object.getName(), object);
+        parent.addSatellite(object);
     }
 
     /**
@@ -143,6 +257,7 @@ public class SolarSystemModel implements StarSystemModel {
         OrbitalCharacteristics orbitalCharacteristics = readOrbitCharacteristics((JSONObject)planetData.get("orbit"));
         Planet planet = new Planet((String)planetData.get("name"), physicalCharacteristics, orbitalCharacteristics);
         objects.put(planet.getName(), planet);
+        planet.getOrbit().getCentralObject().addSatellite(planet);
     }
 
     /**
@@ -186,10 +301,7 @@ public class SolarSystemModel implements StarSystemModel {
      */
     @Override
     public Star getStar() {
-        for (AstronomicalObject data : getAstronomicalObjects()) {
-        	if (data.getType().equals(TYPE_STAR)) return (Star)data;
-        }
-        return null;
+        return star;
     }
 
     /**
@@ -270,6 +382,8 @@ public class SolarSystemModel implements StarSystemModel {
 	public List<SmartSphere<AstronomicalObject>> getVisualDelegates() {
         List<SmartSphere<AstronomicalObject>> visualDelegates = new LinkedList<>();
         for (AstronomicalObject object : objects.values()) {
+        	// the delegates of streamed out moons are released
+        	if (!object.hasDelegates()) continue;
         	Shape3D shape = object.getVisualDelegate();
         	if (shape instanceof SmartSphere) visualDelegates.add((SmartSphere<AstronomicalObject>)shape);
         }
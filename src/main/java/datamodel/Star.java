@@ -1,10 +1,10 @@
 package datamodel;
 
-import javafx.scene.image.Image;
 import javafx.scene.paint.Color;
 import javafx.scene.paint.PhongMaterial;
 import javafx.scene.shape.Shape3D;
 import util.SmartSphere;
+import util.TextureCache;
 
 public class Star extends AstronomicalObject {
     /**
@@ -32,28 +32,18 @@ public class Star extends AstronomicalObject {
 		 * All the data necessary to create the actual astronomical object as a sphere
 		 */
 		String name = getName();
-		double radius = getRadius();
 		double rotationPeriod = getRotationPeriod();
 		double axialTilt = getAxialTilt();
 
-		double scale = SCALE_RADIUS;
-
 		Shape3D celestial = null;
 
-		Image img = loadObjectLocalImage(name);
-		PhongMaterial material = new PhongMaterial();
-		material.setDiffuseMap(img);
+		PhongMaterial material = loadObjectLocalMaterial(name, TextureCache.DIFFUSE_MAP | TextureCache.SELF_ILLUMINATION_MAP);
 
 		// some extra effects for lighting for a star type
 		// parameterize the lighting e.g. red dwarfs or super giants do have different colors and light effects 
-		material.setDiffuseColor(Color.WHITE);
 		material.setSpecularColor(Color.WHITE);
-		material.setSelfIlluminationMap(img);
 		material.setSpecularPower(10000.0);
-		//special case for objects of type "Star" - no way we can show stars - planets and moons on the same scale
-		scale *= SCALE_SOL_RADIUS;
-
-		celestial = new SmartSphere<Star>(radius / scale, this);
+		celestial = new SmartSphere<Star>(getDelegateRadius(), this);
 
 		celestial.setMaterial(material);
 		celestial.setPickOnBounds(false);
@@ -63,4 +53,12 @@ public class Star extends AstronomicalObject {
 
 		return celestial;
 	}
+
+	/**
+	 * Special case for objects of type "Star" - no way we can show stars - planets and moons on the same scale
+	 */
+	@Override
+	protected double getDelegateRadius() {
+		return getRadius() / (SCALE_RADIUS * SCALE_SOL_RADIUS);
+	}
 }
@@ -0,0 +1,442 @@
+package datamodel;
+
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.function.Consumer;
+
+/**
+ * Generates star systems for stress and scale tests, as model or as catalog in the JSON format of
+ * SolarSystemData.json or in the {@link BinaryCatalog} format.
+ *
+ * The bodies follow simple physical rules: the planets are spaced geometrically with rocky planets inside
+ * and giants outside the frost line, radii follow the mass, periods and speeds follow Kepler's third law,
+ * moons stay inside the Hill sphere of their planet and are tidally locked, rings belong to the heaviest
+ * planets and the belt lies at the frost line. The random values of a body are derived from the seed, its kind
+ * and its index (a moon by its planet and its index), so the same seed always gives the same system.
+ * Changing the number of belt bodies or rings keeps the planets and moons, but the spacing of the planets
+ * depends on the number of planets and the spacing of the moons on the number of moons per planet.
+ *
+ * Usage: java datamodel.SystemGenerator [--seed=42] [--planets=8] [--moons=4] [--rings=2] [--belt=0] --out=system.json|system.ssc
+ */
+public class SystemGenerator {
+	private static final double AU_KM = 1.495978707e8;
+	private static final double SUN_MASS = 332946;
+	private static final double SUN_RADIUS = 696342;
+	private static final double EARTH_RADIUS = 6371;
+	private static final double EARTH_SPEED = 29.78;
+	private static final double YEAR = 365.25;
+	private static final double JUPITER_RADIUS = 71492;
+	/**
+	 * the frost line of the sun in AU, scaled with the luminosity of the star
+	 */
+	private static final double FROST_LINE = 2.7;
+	/**
+	 * the planets stay inside this distance in AU however many there are
+	 */
+	private static final double MAX_AXIS = 100;
+
+	private static final long STAR = 1, PLANET = 2, MOON = 3, RING = 4, BELT = 5;
+
+	private final long seed;
+	private final int planets;
+	private final int moonsPerPlanet;
+	private final int rings;
+	private final int beltBodies;
+
+	/**
+	 * the planets are needed for their moons and rings, so they are generated once
+	 */
+	private CatalogEntry star = null;
+	private CatalogEntry[] planetEntries = null;
+
+	public static class Builder {
+		private final long seed;
+		private int planets = 8;
+		private int moonsPerPlanet = 4;
+		private int rings = 2;
+		private int beltBodies = 0;
+
+		/**
+		 * @param seed the seed the whole system is derived from
+		 */
+		public Builder(long seed) {
+			this.seed = seed;
+		}
+
+		public Builder planets(int planets) {
+			this.planets = Math.max(0, planets);
+			return this;
+		}
+
+		public Builder moonsPerPlanet(int moonsPerPlanet) {
+			this.moonsPerPlanet = Math.max(0, moonsPerPlanet);
+			return this;
+		}
+
+		/**
+		 * @param rings the number of planets with rings, the heaviest planets get them
+		 */
+		public Builder rings(int rings) {
+			this.rings = Math.max(0, rings);
+			return this;
+		}
+
+		/**
+		 * @param beltBodies the number of minor bodies in the belt at the frost line
+		 */
+		public Builder beltBodies(int beltBodies) {
+			this.beltBodies = Math.max(0, beltBodies);
+			return this;
+		}
+
+		public SystemGenerator build() {
+			return new SystemGenerator(this);
+		}
+	}
+
+	private SystemGenerator(Builder builder) {
+		seed = builder.seed;
+		planets = builder.planets;
+		moonsPerPlanet = builder.moonsPerPlanet;
+		rings = Math.min(builder.rings, builder.planets);
+		beltBodies = builder.beltBodies;
+	}
+
+	/**
+	 * @return the number of bodies including the star
+	 */
+	public long getBodyCount() {
+		return 1L + planets + (long) planets * moonsPerPlanet + rings + beltBodies;
+	}
+
+	/**
+	 * Creates the model of the generated system including all visual delegates
+	 */
+	public StarSystemModel createModel() {
+		return new SolarSystemModel(this, "generated " + seed);
+	}
+
+	/**
+	 * Passes all bodies in the order of the catalogs: star, planets, satellites, rings.
+	 * The entry is reused for the next body.
+	 */
+	void generate(Consumer<CatalogEntry> consumer) {
+		createPlanets();
+		consumer.accept(star);
+		for (CatalogEntry planet : planetEntries) consumer.accept(planet);
+
+		CatalogEntry entry = new CatalogEntry();
+		for (int p = 0; p < planets; p++) {
+			for (int m = 0; m < moonsPerPlanet; m++) {
+				moon(entry, p, m);
+				consumer.accept(entry);
+			}
+		}
+		for (int i = 0; i < beltBodies; i++) {
+			beltBody(entry, i);
+			consumer.accept(entry);
+		}
+		Integer[] heaviest = new Integer[planets];
+		for (int p = 0; p < planets; p++) heaviest[p] = p;
+		Arrays.sort(heaviest, Comparator.comparingDouble((Integer p) -> -planetEntries[p].mass).thenComparingInt(p -> p));
+		for (int r = 0; r < rings; r++) {
+			ring(entry, heaviest[r]);
+			consumer.accept(entry);
+		}
+	}
+
+	/**
+	 * Writes the system in the JSON format of SolarSystemData.json, streamed so it works for any size
+	 */
+	public void writeJson(Writer out) throws IOException {
+		Writer writer = new BufferedWriter(out, 1 << 16);
+		StringBuilder json = new StringBuilder(512);
+		String[] section = { null };
+		try {
+			generate(entry -> {
+				json.setLength(0);
+				if (!entry.type.equals(section[0])) {
+					if (section[0] == null) {
+						json.append("{\n");
+					} else {
+						json.append(section[0].equals(SolarSystemModel.TYPE_STAR) ? ",\n" : "\n  ],\n");
+					}
+					json.append("  \"").append(entry.type).append("\": ");
+					if (!entry.type.equals(SolarSystemModel.TYPE_STAR)) json.append("[\n");
+					section[0] = entry.type;
+				} else {
+					json.append(",\n");
+				}
+				appendJson(json, entry);
+				write(writer, json);
+			});
+			json.setLength(0);
+			json.append(section[0] != null && !section[0].equals(SolarSystemModel.TYPE_STAR) ? "\n  ]" : "");
+			// the parser expects all four sections
+			for (String type : new String[] { SolarSystemModel.TYPE_PLANET, SolarSystemModel.TYPE_SATELLITE, SolarSystemModel.TYPE_RING }) {
+				if (!hasSection(type)) json.append(",\n  \"").append(type).append("\": []");
+			}
+			json.append("\n}\n");
+			writer.write(json.toString());
+			writer.flush();
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+
+	private boolean hasSection(String type) {
+		if (type.equals(SolarSystemModel.TYPE_PLANET)) return planets > 0;
+		if (type.equals(SolarSystemModel.TYPE_SATELLITE)) return moonsPerPlanet > 0 && planets > 0 || beltBodies > 0;
+		return rings > 0;
+	}
+
+	private static void write(Writer writer, StringBuilder json) {
+		try {
+			writer.append(json);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private static void appendJson(StringBuilder json, CatalogEntry entry) {
+		json.append("    {\"name\": \"").append(entry.name)
+			.append("\", \"radius\": ").append(entry.radius)
+			.append(", \"mass\": ").append(entry.mass)
+			.append(", \"rotationPeriod\": ").append(entry.rotationPeriod)
+			.append(", \"axialTilt\": ").append(entry.axialTilt);
+		if (!entry.type.equals(SolarSystemModel.TYPE_STAR)) {
+			json.append(", \"orbit\": {\"centralObject\": \"").append(entry.centralObject)
+				.append("\", \"aphelion\": ").append(entry.aphelion)
+				.append(", \"perihelion\": ").append(entry.perihelion)
+				.append(", \"semiMajorAxis\": ").append(entry.semiMajorAxis)
+				.append(", \"orbitalPeriod\": ").append(entry.orbitalPeriod)
+				.append(", \"averageOrbitalSpeed\": ").append(entry.averageOrbitalSpeed)
+				.append(", \"inclination\": ").append(entry.inclination)
+				.append(", \"longitudeOfAscendingNode\": ").append(entry.longitudeOfAscendingNode)
+				.append(", \"argumentOfPerihelion\": ").append(entry.argumentOfPerihelion)
+				.append(", \"epoch\": \"").append(entry.epoch).append("\"}");
+		}
+		json.append("}");
+	}
+
+	/**
+	 * Writes the system in the {@link BinaryCatalog} format
+	 */
+	public void writeBinary(OutputStream out) throws IOException {
+		try (BinaryCatalog catalog = new BinaryCatalog(out)) {
+			generate(entry -> {
+				try {
+					catalog.write(entry);
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			});
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+
+	/**
+	 * @return a random generator for the body of a parent e.g. a moon of a planet, which only depends on the seed,
+	 * the kind of body, the index of the parent and its own index
+	 */
+	private Random random(long kind, int parent, int index) {
+		return random(kind, (long) parent << 32 | index);
+	}
+
+	/**
+	 * @return a random generator for one body which only depends on the seed, the kind of body and its index
+	 */
+	private Random random(long kind, long index) {
+		long h = seed * 0x9E3779B97F4A7C15L + kind * 0xBF58476D1CE4E5B9L + index * 0x94D049BB133111EBL;
+		h ^= h >>> 31;
+		return new Random(h);
+	}
+
+	private static double uniform(Random random, double min, double max) {
+		return min + random.nextDouble() * (max - min);
+	}
+
+	private static double logUniform(Random random, double min, double max) {
+		return Math.exp(uniform(random, Math.log(min), Math.log(max)));
+	}
+
+	/**
+	 * @return an eccentricity with a Rayleigh distribution like the ones observed, limited to max
+	 */
+	private static double eccentricity(Random random, double sigma, double max) {
+		return Math.min(max, sigma * Math.sqrt(-2 * Math.log(1 - random.nextDouble())));
+	}
+
+	/**
+	 * @param mass in earth masses
+	 * @return the radius in km, rocky bodies grow with about the cube root, giants barely grow above the mass of saturn
+	 */
+	private static double radius(double mass) {
+		if (mass < 2) return EARTH_RADIUS * Math.pow(mass, 0.28);
+		return Math.min(JUPITER_RADIUS * 1.1, EARTH_RADIUS * Math.pow(2, 0.28) * Math.pow(mass / 2, 0.55));
+	}
+
+	/**
+	 * @param axis the semi-major axis in AU
+	 * @param centralMass the mass of the central body in earth masses
+	 * @return the orbital period in days
+	 */
+	private static double period(double axis, double centralMass) {
+		return YEAR * Math.sqrt(axis * axis * axis / (centralMass / SUN_MASS));
+	}
+
+	private static void orbit(CatalogEntry entry, String centralObject, double centralMass, double axis, double eccentricity, double inclination, Random random) {
+		entry.centralObject = centralObject;
+		entry.semiMajorAxis = axis;
+		entry.aphelion = axis * (1 + eccentricity);
+		entry.perihelion = axis * (1 - eccentricity);
+		entry.orbitalPeriod = period(axis, centralMass);
+		entry.averageOrbitalSpeed = EARTH_SPEED * Math.sqrt(centralMass / SUN_MASS / axis);
+		entry.inclination = inclination;
+		entry.longitudeOfAscendingNode = uniform(random, 0, 360);
+		entry.argumentOfPerihelion = uniform(random, 0, 360);
+		entry.epoch = "J2000";
+	}
+
+	private void createPlanets() {
+		if (planetEntries != null) return;
+		Random random = random(STAR, 0);
+		double solarMasses = uniform(random, 0.6, 1.4);
+		star = new CatalogEntry();
+		star.type = SolarSystemModel.TYPE_STAR;
+		star.name = "Star";
+		star.mass = SUN_MASS * solarMasses;
+		star.radius = SUN_RADIUS * Math.pow(solarMasses, 0.8);
+		star.rotationPeriod = uniform(random, 10, 40);
+		star.axialTilt = uniform(random, 0, 10);
+		// the luminosity grows with about the fourth power of the mass
+		double frostLine = FROST_LINE * solarMasses * solarMasses;
+		double axis = uniform(random, 0.25, 0.45);
+		double spacing = Math.min(uniform(random, 1.4, 1.9), Math.pow(MAX_AXIS / axis, 1.0 / Math.max(1, planets)));
+
+		planetEntries = new CatalogEntry[planets];
+		for (int p = 0; p < planets; p++) {
+			Random r = random(PLANET, p);
+			CatalogEntry planet = new CatalogEntry();
+			planet.type = SolarSystemModel.TYPE_PLANET;
+			planet.name = "Planet " + (p + 1);
+			boolean giant = axis > frostLine && r.nextDouble() < 0.8;
+			planet.mass = giant ? logUniform(r, 10, 1000) : logUniform(r, 0.05, 5);
+			planet.radius = radius(planet.mass);
+			planet.rotationPeriod = giant ? uniform(r, 0.3, 0.7) : logUniform(r, 0.5, 250);
+			// a few planets are tipped over like uranus or rotate retrograde like venus
+			planet.axialTilt = r.nextDouble() < 0.1 ? uniform(r, 60, 180) : uniform(r, 0, 30);
+			orbit(planet, star.name, star.mass, axis, eccentricity(r, 0.04, 0.3), Math.abs(r.nextGaussian() * 2), r);
+			planetEntries[p] = planet;
+			axis *= spacing * uniform(r, 0.9, 1.1);
+		}
+	}
+
+	/**
+	 * The moons start at three planet radii and are spaced geometrically inside half the Hill sphere
+	 */
+	private void moon(CatalogEntry entry, int p, int m) {
+		CatalogEntry planet = planetEntries[p];
+		Random r = random(MOON, p, m);
+		// the Hill sphere at the closest approach to the star
+		double hill = planet.perihelion * Math.cbrt(planet.mass / (3 * star.mass));
+		double inner = 3 * planet.radius / AU_KM;
+		double outer = Math.max(inner * 1.5, hill / 2);
+		double spacing = Math.pow(outer / inner, 1.0 / moonsPerPlanet);
+		double axis = inner * Math.pow(spacing, m + uniform(r, 0.2, 0.8));
+
+		entry.type = SolarSystemModel.TYPE_SATELLITE;
+		entry.name = planet.name + " Moon " + (m + 1);
+		// the mass of a moon is a small fraction of its planet, the inner large moons like the galilean ones are rare
+		entry.mass = planet.mass * logUniform(r, 1e-7, m < 4 ? 1e-2 : 1e-4);
+		entry.radius = radius(entry.mass);
+		entry.axialTilt = uniform(r, 0, 5);
+		orbit(entry, planet.name, planet.mass, axis, eccentricity(r, 0.02, 0.2), Math.abs(r.nextGaussian() * 3), r);
+		// tidally locked
+		entry.rotationPeriod = entry.orbitalPeriod;
+	}
+
+	/**
+	 * The ring of a planet, with the orbit of the planet like the rings of SolarSystemData.json
+	 */
+	private void ring(CatalogEntry entry, int p) {
+		CatalogEntry planet = planetEntries[p];
+		Random r = random(RING, p);
+		entry.type = SolarSystemModel.TYPE_RING;
+		entry.name = planet.name + " Rings";
+		entry.radius = planet.radius * uniform(r, 1.8, 2.4);
+		entry.mass = 0;
+		entry.rotationPeriod = planet.rotationPeriod;
+		entry.axialTilt = planet.axialTilt;
+		entry.centralObject = planet.name;
+		entry.aphelion = planet.aphelion;
+		entry.perihelion = 0;
+		entry.semiMajorAxis = 0;
+		entry.orbitalPeriod = 0;
+		entry.averageOrbitalSpeed = 0;
+		entry.inclination = 0;
+		entry.longitudeOfAscendingNode = 0;
+		entry.argumentOfPerihelion = 0;
+		entry.epoch = "J2000";
+	}
+
+	/**
+	 * Minor bodies between 0.8 and 1.2 times the frost line, the sizes follow a power law
+	 */
+	private void beltBody(CatalogEntry entry, int i) {
+		Random r = random(BELT, i);
+		double frostLine = FROST_LINE * Math.pow(star.mass / SUN_MASS, 2);
+		entry.type = SolarSystemModel.TYPE_SATELLITE;
+		entry.name = "Asteroid " + (i + 1);
+		entry.radius = 1 / Math.pow(1 - r.nextDouble() * 0.999, 1 / 1.5);
+		// rocky, about the density of ceres: 1e-6 earth masses at 470 km
+		entry.mass = 1e-6 * Math.pow(entry.radius / 470, 3);
+		entry.rotationPeriod = logUniform(r, 0.1, 2);
+		entry.axialTilt = uniform(r, 0, 180);
+		orbit(entry, star.name, star.mass, frostLine * uniform(r, 0.8, 1.2), eccentricity(r, 0.1, 0.4), Math.abs(r.nextGaussian() * 8), r);
+	}
+
+	public static void main(String[] args) {
+		long seed = 42;
+		int planets = 8, moons = 4, rings = 2, belt = 0;
+		String out = null;
+		for (String arg : args) {
+			String[] option = arg.split("=", 2);
+			if (option.length < 2) continue;
+			switch (option[0]) {
+			case "--seed": seed = Long.parseLong(option[1]); break;
+			case "--planets": planets = Integer.parseInt(option[1]); break;
+			case "--moons": moons = Integer.parseInt(option[1]); break;
+			case "--rings": rings = Integer.parseInt(option[1]); break;
+			case "--belt": belt = Integer.parseInt(option[1]); break;
+			case "--out": out = option[1]; break;
+			default: System.out.println("unknown option " + arg);
+			}
+		}
+		if (out == null) {
+			System.out.println("usage: SystemGenerator [--seed=42] [--planets=8] [--moons=4] [--rings=2] [--belt=0] --out=system.json|system" + BinaryCatalog.EXTENSION);
+			return;
+		}
+		SystemGenerator generator = new Builder(seed).planets(planets).moonsPerPlanet(moons).rings(rings).beltBodies(belt).build();
+		try (OutputStream stream = new FileOutputStream(out)) {
+			if (out.endsWith(BinaryCatalog.EXTENSION)) {
+				generator.writeBinary(stream);
+			} else {
+				generator.writeJson(new OutputStreamWriter(stream, StandardCharsets.UTF_8));
+			}
+			System.out.println(generator.getBodyCount() + " bodies written to " + out);
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+}
@@ -0,0 +1,133 @@
+package util;
+
+import javafx.scene.transform.Affine;
+import javafx.scene.transform.Transform;
+
+/**
+ * Helper for 3D affine transforms stored as 12 doubles in a primitive array,
+ * row major without the last row: mxx, mxy, mxz, tx, myx, myy, myz, ty, mzx, mzy, mzz, tz
+ *
+ * Used where many transforms are kept per frame and allocating Transform or Point3D objects is too expensive.
+ */
+public class AffineMath {
+	public static final int SIZE = 12;
+
+	private AffineMath() {
+	}
+
+	/**
+	 * Copies the transform to out[o..o+11]
+	 */
+	public static void set(Transform t, double[] out, int o) {
+		out[o] = t.getMxx(); out[o + 1] = t.getMxy(); out[o + 2] = t.getMxz(); out[o + 3] = t.getTx();
+		out[o + 4] = t.getMyx(); out[o + 5] = t.getMyy(); out[o + 6] = t.getMyz(); out[o + 7] = t.getTy();
+		out[o + 8] = t.getMzx(); out[o + 9] = t.getMzy(); out[o + 10] = t.getMzz(); out[o + 11] = t.getTz();
+	}
+
+	/**
+	 * out = a * t, out may not be a
+	 */
+	public static void multiply(double[] a, int ao, Transform t, double[] out, int o) {
+		double bxx = t.getMxx(), bxy = t.getMxy(), bxz = t.getMxz(), btx = t.getTx();
+		double byx = t.getMyx(), byy = t.getMyy(), byz = t.getMyz(), bty = t.getTy();
+		double bzx = t.getMzx(), bzy = t.getMzy(), bzz = t.getMzz(), btz = t.getTz();
+		for (int r = 0; r < 3; r++) {
+			double x = a[ao + r * 4], y = a[ao + r * 4 + 1], z = a[ao + r * 4 + 2], w = a[ao + r * 4 + 3];
+			out[o + r * 4] = x * bxx + y * byx + z * bzx;
+			out[o + r * 4 + 1] = x * bxy + y * byy + z * bzy;
+			out[o + r * 4 + 2] = x * bxz + y * byz + z * bzz;
+			out[o + r * 4 + 3] = x * btx + y * bty + z * btz + w;
+		}
+	}
+
+	/**
+	 * out = a * b, out may not be a or b
+	 */
+	public static void multiply(double[] a, int ao, double[] b, int bo, double[] out, int o) {
+		for (int r = 0; r < 3; r++) {
+			double x = a[ao + r * 4], y = a[ao + r * 4 + 1], z = a[ao + r * 4 + 2], w = a[ao + r * 4 + 3];
+			out[o + r * 4] = x * b[bo] + y * b[bo + 4] + z * b[bo + 8];
+			out[o + r * 4 + 1] = x * b[bo + 1] + y * b[bo + 5] + z * b[bo + 9];
+			out[o + r * 4 + 2] = x * b[bo + 2] + y * b[bo + 6] + z * b[bo + 10];
+			out[o + r * 4 + 3] = x * b[bo + 3] + y * b[bo + 7] + z * b[bo + 11] + w;
+		}
+	}
+
+	/**
+	 * Writes the rotation around the axis through the origin to out[o..o+11], same as a Rotate with this angle and axis
+	 *
+	 * @param x x of the axis
+	 * @param y y of the axis
+	 * @param z z of the axis
+	 * @param angle the angle in degrees
+	 */
+	public static void rotation(double x, double y, double z, double angle, double[] out, int o) {
+		double length = Math.sqrt(x * x + y * y + z * z);
+		x /= length;
+		y /= length;
+		z /= length;
+		double radians = Math.toRadians(angle);
+		double sin = Math.sin(radians);
+		double cos = Math.cos(radians);
+		double c = 1 - cos;
+		out[o] = cos + x * x * c; out[o + 1] = x * y * c - z * sin; out[o + 2] = x * z * c + y * sin; out[o + 3] = 0;
+		out[o + 4] = y * x * c + z * sin; out[o + 5] = cos + y * y * c; out[o + 6] = y * z * c - x * sin; out[o + 7] = 0;
+		out[o + 8] = z * x * c - y * sin; out[o + 9] = z * y * c + x * sin; out[o + 10] = cos + z * z * c; out[o + 11] = 0;
+	}
+
+	/**
+	 * Sets the affine to m[o..o+11] in place
+	 */
+	public static void apply(double[] m, int o, Affine affine) {
+		affine.setToTransform(m[o], m[o + 1], m[o + 2], m[o + 3], m[o + 4], m[o + 5], m[o + 6], m[o + 7],
+				m[o + 8], m[o + 9], m[o + 10], m[o + 11]);
+	}
+
+	/**
+	 * Transforms the point (x, y, z) and writes the result to out[0..2]
+	 */
+	public static void transform(double[] m, int o, double x, double y, double z, double[] out) {
+		out[0] = m[o] * x + m[o + 1] * y + m[o + 2] * z + m[o + 3];
+		out[1] = m[o + 4] * x + m[o + 5] * y + m[o + 6] * z + m[o + 7];
+		out[2] = m[o + 8] * x + m[o + 9] * y + m[o + 10] * z + m[o + 11];
+	}
+
+	/**
+	 * out = inverse of m, out may not be m
+	 *
+	 * @return false if the matrix is not invertible
+	 */
+	public static boolean invert(double[] m, int o, double[] out, int oo) {
+		double a = m[o], b = m[o + 1], c = m[o + 2];
+		double d = m[o + 4], e = m[o + 5], f = m[o + 6];
+		double g = m[o + 8], h = m[o + 9], i = m[o + 10];
+		double ca = e * i - f * h, cb = f * g - d * i, cc = d * h - e * g;
+		double det = a * ca + b * cb + c * cc;
+		if (det == 0 || Double.isNaN(det)) return false;
+		double inv = 1 / det;
+		out[oo] = ca * inv;
+		out[oo + 1] = (c * h - b * i) * inv;
+		out[oo + 2] = (b * f - c * e) * inv;
+		out[oo + 4] = cb * inv;
+		out[oo + 5] = (a * i - c * g) * inv;
+		out[oo + 6] = (c * d - a * f) * inv;
+		out[oo + 8] = cc * inv;
+		out[oo + 9] = (b * g - a * h) * inv;
+		out[oo + 10] = (a * e - b * d) * inv;
+		double tx = m[o + 3], ty = m[o + 7], tz = m[o + 11];
+		out[oo + 3] = -(out[oo] * tx + out[oo + 1] * ty + out[oo + 2] * tz);
+		out[oo + 7] = -(out[oo + 4] * tx + out[oo + 5] * ty + out[oo + 6] * tz);
+		out[oo + 11] = -(out[oo + 8] * tx + out[oo + 9] * ty + out[oo + 10] * tz);
+		return true;
+	}
+
+	/**
+	 * @return the largest scale factor of the three axes, e.g. to transform the radius of a sphere
+	 */
+	public static double maxScale(double[] m, int o) {
+		double sx = m[o] * m[o] + m[o + 4] * m[o + 4] + m[o + 8] * m[o + 8];
+		double sy = m[o + 1] * m[o + 1] + m[o + 5] * m[o + 5] + m[o + 9] * m[o + 9];
+		double sz = m[o + 2] * m[o + 2] + m[o + 6] * m[o + 6] + m[o + 10] * m[o + 10];
+		return Math.sqrt(Math.max(sx, Math.max(sy, sz)));
+	}
+}
@@ -0,0 +1,254 @@
+package util;
+
+/**
+ * Bounding volume hierarchy of spheres for fast ray picking.
+ *
+ * The tree is built top down by splitting the spheres at the median of the axis with the largest extent.
+ * All nodes are kept in flat primitive arrays, the children of a node are always stored after the node,
+ * so {@link #refit()} can update the bounds bottom up in one backward pass when the spheres moved.
+ * A refit keeps the tree valid but it gets less efficient the further the spheres moved, so it should
+ * be rebuilt from time to time.
+ *
+ * Rays are tested exactly against the spheres, a pick costs O(log n) for well separated spheres.
+ */
+public class BoundingVolumeHierarchy {
+	private static final int LEAF_SIZE = 4;
+	private static final int MAX_DEPTH = 64;
+
+	private double[] centers = new double[0];
+	private double[] radii = new double[0];
+	private int count = 0;
+
+	/**
+	 * sphere indices, each node references a range of this array
+	 */
+	private int[] order = new int[0];
+
+	private double[] nodeBounds = new double[0];
+	private int[] nodeStart = new int[0];
+	private int[] nodeEnd = new int[0];
+	private int[] nodeLeft = new int[0];
+	private int[] nodeRight = new int[0];
+	private int nodeCount = 0;
+
+	private final int[] stack = new int[MAX_DEPTH * 2];
+	private double hitDistance = Double.NaN;
+
+	/**
+	 * Builds the tree for the given spheres.
+	 * The arrays are referenced, not copied, so a later {@link #refit()} picks up changed values.
+	 *
+	 * @param centers x, y, z of the sphere centers
+	 * @param radii the radius of each sphere
+	 * @param count the number of spheres
+	 */
+	public void build(double[] centers, double[] radii, int count) {
+		this.centers = centers;
+		this.radii = radii;
+		this.count = count;
+
+		if (order.length < count) order = new int[count];
+		for (int i = 0; i < count; i++) order[i] = i;
+
+		// a binary tree with at most count leaves
+		int maxNodes = 2 * count + 1;
+		if (nodeStart.length < maxNodes) {
+			nodeBounds = new double[maxNodes * 6];
+			nodeStart = new int[maxNodes];
+			nodeEnd = new int[maxNodes];
+			nodeLeft = new int[maxNodes];
+			nodeRight = new int[maxNodes];
+		}
+		nodeCount = 0;
+		if (count > 0) buildNode(0, count, 0);
+	}
+
+	private int buildNode(int start, int end, int depth) {
+		int node = nodeCount++;
+		nodeStart[node] = start;
+		nodeEnd[node] = end;
+		nodeLeft[node] = -1;
+		nodeRight[node] = -1;
+		updateBounds(node);
+
+		if (end - start <= LEAF_SIZE || depth >= MAX_DEPTH - 1) return node;
+
+		// split at the median of the centers along the longest axis of the bounds
+		int b = node * 6;
+		double ex = nodeBounds[b + 3] - nodeBounds[b];
+		double ey = nodeBounds[b + 4] - nodeBounds[b + 1];
+		double ez = nodeBounds[b + 5] - nodeBounds[b + 2];
+		int axis = ex >= ey && ex >= ez ? 0 : (ey >= ez ? 1 : 2);
+		int mid = (start + end) >>> 1;
+		select(start, end - 1, mid, axis);
+
+		nodeLeft[node] = buildNode(start, mid, depth + 1);
+		nodeRight[node] = buildNode(mid, end, depth + 1);
+		return node;
+	}
+
+	/**
+	 * Partially sorts order[lo..hi] so the element at k is in its sorted place along the axis (quickselect)
+	 */
+	private void select(int lo, int hi, int k, int axis) {
+		while (hi > lo) {
+			double pivot = centers[order[(lo + hi) >>> 1] * 3 + axis];
+			int i = lo;
+			int j = hi;
+			while (i <= j) {
+				while (centers[order[i] * 3 + axis] < pivot) i++;
+				while (centers[order[j] * 3 + axis] > pivot) j--;
+				if (i <= j) {
+					int t = order[i];
+					order[i] = order[j];
+					order[j] = t;
+					i++;
+					j--;
+				}
+			}
+			if (k <= j) {
+				hi = j;
+			} else if (k >= i) {
+				lo = i;
+			} else {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Updates the bounds of all nodes after the spheres moved, the tree structure is kept
+	 */
+	public void refit() {
+		for (int node = nodeCount - 1; node >= 0; node--) {
+			int left = nodeLeft[node];
+			if (left < 0) {
+				updateBounds(node);
+				continue;
+			}
+			int right = nodeRight[node];
+			int b = node * 6;
+			int l = left * 6;
+			int r = right * 6;
+			for (int a = 0; a < 3; a++) {
+				nodeBounds[b + a] = Math.min(nodeBounds[l + a], nodeBounds[r + a]);
+				nodeBounds[b + 3 + a] = Math.max(nodeBounds[l + 3 + a], nodeBounds[r + 3 + a]);
+			}
+		}
+	}
+
+	private void updateBounds(int node) {
+		int b = node * 6;
+		double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY, minZ = Double.POSITIVE_INFINITY;
+		double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY, maxZ = Double.NEGATIVE_INFINITY;
+		for (int i = nodeStart[node]; i < nodeEnd[node]; i++) {
+			int s = order[i];
+			double r = radii[s];
+			double x = centers[s * 3], y = centers[s * 3 + 1], z = centers[s * 3 + 2];
+			minX = Math.min(minX, x - r); maxX = Math.max(maxX, x + r);
+			minY = Math.min(minY, y - r); maxY = Math.max(maxY, y + r);
+			minZ = Math.min(minZ, z - r); maxZ = Math.max(maxZ, z + r);
+		}
+		nodeBounds[b] = minX; nodeBounds[b + 1] = minY; nodeBounds[b + 2] = minZ;
+		nodeBounds[b + 3] = maxX; nodeBounds[b + 4] = maxY; nodeBounds[b + 5] = maxZ;
+	}
+
+	/**
+	 * Returns the sphere which is hit first by the ray.
+	 *
+	 * @param ox x of the ray origin
+	 * @param oy y of the ray origin
+	 * @param oz z of the ray origin
+	 * @param dx x of the ray direction
+	 * @param dy y of the ray direction
+	 * @param dz z of the ray direction
+	 * @return the index of the sphere or -1 if no sphere is hit
+	 */
+	public int intersect(double ox, double oy, double oz, double dx, double dy, double dz) {
+		hitDistance = Double.NaN;
+		if (nodeCount == 0) return -1;
+
+		double length = Math.sqrt(dx * dx + dy * dy + dz * dz);
+		if (length == 0) return -1;
+		dx /= length;
+		dy /= length;
+		dz /= length;
+		double ix = 1 / dx, iy = 1 / dy, iz = 1 / dz;
+
+		int hit = -1;
+		double best = Double.POSITIVE_INFINITY;
+		int top = 0;
+		stack[top++] = 0;
+		while (top > 0) {
+			int node = stack[--top];
+			if (!intersectsBounds(node, ox, oy, oz, ix, iy, iz, best)) continue;
+
+			int left = nodeLeft[node];
+			if (left >= 0) {
+				stack[top++] = left;
+				stack[top++] = nodeRight[node];
+				continue;
+			}
+			for (int i = nodeStart[node]; i < nodeEnd[node]; i++) {
+				int s = order[i];
+				double t = intersectSphere(s, ox, oy, oz, dx, dy, dz);
+				if (t >= 0 && t < best) {
+					best = t;
+					hit = s;
+				}
+			}
+		}
+		if (hit >= 0) hitDistance = best;
+		return hit;
+	}
+
+	/**
+	 * Slab test of the ray against the bounds of the node
+	 */
+	private boolean intersectsBounds(int node, double ox, double oy, double oz, double ix, double iy, double iz, double maxT) {
+		int b = node * 6;
+		double t1 = (nodeBounds[b] - ox) * ix, t2 = (nodeBounds[b + 3] - ox) * ix;
+		double tmin = Math.min(t1, t2), tmax = Math.max(t1, t2);
+		t1 = (nodeBounds[b + 1] - oy) * iy;
+		t2 = (nodeBounds[b + 4] - oy) * iy;
+		tmin = Math.max(tmin, Math.min(t1, t2));
+		tmax = Math.min(tmax, Math.max(t1, t2));
+		t1 = (nodeBounds[b + 2] - oz) * iz;
+		t2 = (nodeBounds[b + 5] - oz) * iz;
+		tmin = Math.max(tmin, Math.min(t1, t2));
+		tmax = Math.min(tmax, Math.max(t1, t2));
+		return tmax >= Math.max(tmin, 0) && tmin < maxT;
+	}
+
+	/**
+	 * Exact ray sphere test for a normalized direction
+	 *
+	 * @return the distance along the ray or -1 if the sphere is missed
+	 */
+	private double intersectSphere(int s, double ox, double oy, double oz, double dx, double dy, double dz) {
+		double cx = ox - centers[s * 3];
+		double cy = oy - centers[s * 3 + 1];
+		double cz = oz - centers[s * 3 + 2];
+		double r = radii[s];
+		double b = cx * dx + cy * dy + cz * dz;
+		double c = cx * cx + cy * cy + cz * cz - r * r;
+		double discriminant = b * b - c;
+		if (discriminant < 0) return -1;
+		double root = Math.sqrt(discriminant);
+		double t = -b - root;
+		// the origin is inside the sphere
+		if (t < 0) t = -b + root;
+		return t < 0 ? -1 : t;
+	}
+
+	/**
+	 * @return the distance to the sphere hit by the last {@link #intersect(double, double, double, double, double, double)}
+	 */
+	public double getHitDistance() {
+		return hitDistance;
+	}
+
+	public int size() {
+		return count;
+	}
+}
@@ -0,0 +1,235 @@
+package util;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.io.Reader;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * A recorded sequence of camera operations which can be replayed on a {@link SmartScene}.
+ *
+ * Every step belongs to a frame, counted from the start of the recording. The text format has one step per line:
+ * <pre>
+ * # comment
+ * 0 zoom 500
+ * 12 rotate 4 -2 0
+ * 30 translate -10 5 0
+ * 60 focus Earth
+ * 200 free
+ * 320 end
+ * </pre>
+ * rotate takes the mouse deltas of a drag like the drag handler, so it works in both camera modes.
+ * focus switches to the chase camera of the named body through {@link SmartScene#onMouseClicked}, free switches back.
+ * end only extends the path to the given frame.
+ */
+public class CameraPath {
+	public static final String ROTATE = "rotate";
+	public static final String TRANSLATE = "translate";
+	public static final String ZOOM = "zoom";
+	public static final String FOCUS = "focus";
+	public static final String FREE = "free";
+	public static final String END = "end";
+
+	private static class Step {
+		final int frame;
+		final String operation;
+		final double x, y, z;
+		final String target;
+
+		Step(int frame, String operation, double x, double y, double z, String target) {
+			this.frame = frame;
+			this.operation = operation;
+			this.x = x;
+			this.y = y;
+			this.z = z;
+			this.target = target;
+		}
+	}
+
+	private final List<Step> steps = new ArrayList<>();
+	private int length = 0;
+	private int next = 0;
+
+	/**
+	 * @return the number of frames of the path
+	 */
+	public int getLength() {
+		return length;
+	}
+
+	public int getStepCount() {
+		return steps.size();
+	}
+
+	void rotate(int frame, double dX, double dY, double dZ) {
+		add(new Step(frame, ROTATE, dX, dY, dZ, null));
+	}
+
+	void translate(int frame, double dX, double dY, double dZ) {
+		add(new Step(frame, TRANSLATE, dX, dY, dZ, null));
+	}
+
+	void focus(int frame, String target) {
+		add(new Step(frame, FOCUS, 0, 0, 0, target));
+	}
+
+	void free(int frame) {
+		add(new Step(frame, FREE, 0, 0, 0, null));
+	}
+
+	void end(int frame) {
+		length = Math.max(length, frame + 1);
+	}
+
+	private void add(Step step) {
+		steps.add(step);
+		end(step.frame);
+	}
+
+	/**
+	 * Starts the replay from the first frame, see {@link #apply(SmartScene, int)}
+	 */
+	public void rewind() {
+		next = 0;
+	}
+
+	/**
+	 * Applies all steps up to the given frame which were not applied yet.
+	 * Frames must be passed in ascending order after {@link #rewind()}.
+	 *
+	 * @return false once the frame is beyond the end of the path
+	 */
+	public boolean apply(SmartScene scene, int frame) {
+		while (next < steps.size() && steps.get(next).frame <= frame) {
+			Step step = steps.get(next++);
+			switch (step.operation) {
+			case ROTATE:
+				scene.cameraRotate(scene.getPivot(), step.x, step.y, step.z);
+				break;
+			case TRANSLATE:
+				scene.translate(step.x, step.y, step.z);
+				break;
+			case ZOOM:
+				scene.zoom(step.z);
+				break;
+			case FOCUS:
+				SmartSphere<?> sphere = scene.findSphere(step.target);
+				if (sphere == null) {
+					Log.CAMERA.warn("camera path: no body ", step.target);
+				} else {
+					scene.onMouseClicked(sphere);
+				}
+				break;
+			case FREE:
+				scene.releaseChaseCam();
+				break;
+			default:
+			}
+		}
+		return frame < length;
+	}
+
+	/**
+	 * Loads a path from a file or, if there is no such file, from a resource on the class path
+	 *
+	 * @return the path or null if it could not be read
+	 */
+	public static CameraPath load(String location) {
+		try {
+			File file = new File(location);
+			if (file.isFile()) {
+				try (Reader reader = new FileReader(file)) {
+					return read(reader);
+				}
+			}
+			URL url = ResourceLoader.getInstance().getResourceURL(location);
+			if (url == null) {
+				Log.CAMERA.error("camera path not found: ", location);
+				return null;
+			}
+			try (Reader reader = new InputStreamReader(url.openStream(), "UTF-8")) {
+				return read(reader);
+			}
+		} catch (IOException | RuntimeException e) {
+			Log.CAMERA.error("camera path not readable: ", location);
+			e.printStackTrace();
+			return null;
+		}
+	}
+
+	public static CameraPath read(Reader in) throws IOException {
+		CameraPath path = new CameraPath();
+		BufferedReader reader = new BufferedReader(in);
+		String line;
+		while ((line = reader.readLine()) != null) {
+			line = line.trim();
+			if (line.isEmpty() || line.startsWith("#")) continue;
+			String[] token = line.split("\\s+", 3);
+			int frame = Integer.parseInt(token[0]);
+			String operation = token[1];
+			String arguments = token.length > 2 ? token[2] : "";
+			switch (operation) {
+			case ROTATE:
+			case TRANSLATE:
+				double[] v = parseVector(arguments);
+				path.add(new Step(frame, operation, v[0], v[1], v[2], null));
+				break;
+			case ZOOM:
+				path.add(new Step(frame, ZOOM, 0, 0, Double.parseDouble(arguments), null));
+				break;
+			case FOCUS:
+				path.focus(frame, arguments);
+				break;
+			case FREE:
+				path.free(frame);
+				break;
+			case END:
+				path.end(frame);
+				break;
+			default:
+				throw new IOException("unknown camera path operation: " + line);
+			}
+		}
+		// the replay relies on ascending frames, a stable sort keeps the order within a frame
+		path.steps.sort((a, b) -> Integer.compare(a.frame, b.frame));
+		return path;
+	}
+
+	private static double[] parseVector(String arguments) {
+		String[] token = arguments.split("\\s+");
+		double[] v = new double[3];
+		for (int i = 0; i < 3 && i < token.length; i++) {
+			v[i] = Double.parseDouble(token[i]);
+		}
+		return v;
+	}
+
+	public void save(File file) throws IOException {
+		try (PrintWriter out = new PrintWriter(file, "UTF-8")) {
+			out.println("# frame operation arguments");
+			for (Step step : steps) {
+				switch (step.operation) {
+				case FOCUS:
+					out.println(step.frame + " " + FOCUS + " " + step.target);
+					break;
+				case FREE:
+					out.println(step.frame + " " + FREE);
+					break;
+				case ZOOM:
+					out.println(String.format(Locale.ROOT, "%d %s %.3f", step.frame, ZOOM, step.z));
+					break;
+				default:
+					out.println(String.format(Locale.ROOT, "%d %s %.3f %.3f %.3f", step.frame, step.operation, step.x, step.y, step.z));
+				}
+			}
+			out.println((length > 0 ? length - 1 : 0) + " " + END);
+		}
+	}
+}
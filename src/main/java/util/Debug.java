@@ -11,80 +11,69 @@ import javafx.geometry.Point2D;
 import javafx.geometry.Point3D;
 
 public class Debug {
+	/**
+	 * All output goes to the category {@link Log#DEBUG_OUTPUT}, nothing is formatted unless it is enabled
+	 * on level debug (out) or warn (err).
+	 */
+	private static final Log LOG = Log.DEBUG_OUTPUT;
+
 	public static void out(String caller, String info, Bounds b, boolean size) {
 		if (!size) {
 			out(caller, info, b);
 			return;
 		}
+		if (!LOG.isDebug()) return;
 
 		Point3D center = CoordinateHelper.centerOfBounds(b);
-		System.out.println(caller + "" + info +
+		LOG.debug(caller + info +
 				" CenterX: " + String.format("%.2f", center.getX()) +
 				" Width: " + String.format("%.2f", b.getWidth()) + 
 				" CenterY: " + String.format("%.2f", center.getY()) +
 				" Height: " + String.format("%.2f", b.getHeight()) + 
 				" CenterZ: " + String.format("%.2f", center.getZ()) +
-				" Depth: " + String.format("%.2f", b.getDepth()) + 
-				"");
+				" Depth: " + String.format("%.2f", b.getDepth()));
 
 	}
 	public static void out(String caller, String info, Bounds b) {
-		System.out.println(caller + "" + info +
-				" MinX: " + String.format("%.2f", b.getMinX()) +
-				" MaxX: " + String.format("%.2f", b.getMaxX()) + 
-				" MinY: " + String.format("%.2f", b.getMinY()) +
-				" MaxY: " + String.format("%.2f", b.getMaxY()) + 
-				" MinZ: " + String.format("%.2f", b.getMinZ()) +
-				" MaxZ: " + String.format("%.2f", b.getMaxZ()) + 
-				"");
-
+		if (!LOG.isDebug()) return;
+		LOG.debug(caller + info + bounds(b));
 	}
 	public static void out(String caller, String info, Point3D p) {
-		System.out.println(caller + "" + info +
-				" X: " + String.format("%.2f", p.getX()) +
-				" Y: " + String.format("%.2f", p.getY()) + 
-				" Z: " + String.format("%.2f", p.getZ()) +
-				"");
+		if (!LOG.isDebug()) return;
+		LOG.debug(caller + info, " X/Y/Z:", p.getX(), p.getY(), p.getZ());
 	}
 	public static void out(String caller, String info, Point2D p) {
-		System.out.println(caller + "" + info +
-				" X: " + String.format("%.2f", p.getX()) +
-				" Y: " + String.format("%.2f", p.getY()) +
-				"");
+		if (!LOG.isDebug()) return;
+		LOG.debug(caller + info, " X/Y:", p.getX(), p.getY());
 	}
 	public static void out(String caller, String info, double value) {
-		System.out.println(caller + "" + info +
-				"" + String.format("%.2f", value) +
-				"");
+		if (!LOG.isDebug()) return;
+		LOG.debug(caller + info, value);
 	}
 
 	public static void err(String caller, String info, Bounds b) {
-		System.err.println(caller + "" + info +
-				" MinX: " + String.format("%.2f", b.getMinX()) +
-				" MaxX: " + String.format("%.2f", b.getMaxX()) + 
-				" MinY: " + String.format("%.2f", b.getMinY()) +
-				" MaxY: " + String.format("%.2f", b.getMaxY()) + 
-				" MinZ: " + String.format("%.2f", b.getMinZ()) +
-				" MaxZ: " + String.format("%.2f", b.getMaxZ()) + 
-				"");
-
+		if (!LOG.isWarn()) return;
+		LOG.warn(caller + info + bounds(b));
 	}
 	public static void err(String caller, String info, Point3D p) {
-		System.err.println(caller + "" + info +
-				" X: " + String.format("%.2f", p.getX()) +
-				" Y: " + String.format("%.2f", p.getY()) + 
-				" Z: " + String.format("%.2f", p.getZ()) +
-				"");
+		if (!LOG.isWarn()) return;
+		LOG.warn(caller + info, p);
 	}
 	public static void err(String caller, String info, Point2D p) {
-		System.err.println(caller + "" + info +
-				" X:    " + String.format("%.2f", p.getX()) +
-				"              Y:    " + String.format("%.2f", p.getY()) +
-				"");
+		if (!LOG.isWarn()) return;
+		LOG.warn(caller + info, p);
 	}
 	public static void err(String caller, String info, double value) {
-		System.err.println(caller + "" + info +
-				"" + String.format("%.2f", value) +
-				"");
+		if (!LOG.isWarn()) return;
+		LOG.warn(caller + info, "", value);
+	}
+
+	private static String bounds(Bounds b) {
+		return " MinX: " + String.format("%.2f", b.getMinX()) +
+				" MaxX: " + String.format("%.2f", b.getMaxX()) + 
+				" MinY: " + String.format("%.2f", b.getMinY()) +
+				" MaxY: " + String.format("%.2f", b.getMaxY()) + 
+				" MinZ: " + String.format("%.2f", b.getMinZ()) +
+				" MaxZ: " + String.format("%.2f", b.getMaxZ());
 	}
 }
@@ -0,0 +1,116 @@
+package util;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Custom JDK Flight Recorder events of the application, shown in JMC under the category "SolarSystem3D".
+ *
+ * The events are recorded with e.g. -XX:StartFlightRecording=filename=solar.jfr. Without a recording
+ * the events are disabled, shouldCommit() is false and the short-lived event objects are removed by the JIT.
+ * Events which live longer than a method are only created if their type is enabled, see {@link #isFrameEnabled()}.
+ */
+public final class FlightEvents {
+	private static final String CATEGORY = "SolarSystem3D";
+
+	private FlightEvents() {
+	}
+
+	@Name("SolarSystem3D.LoadPhase")
+	@Label("Load Phase")
+	@Description("One phase of loading a star system model")
+	@Category({ CATEGORY, "Load" })
+	@StackTrace(false)
+	public static class LoadPhaseEvent extends Event {
+		@Label("Resource")
+		public String resource;
+		@Label("Phase")
+		@Description("parse, the delegates are created by the scene")
+		public String phase;
+		@Label("Bodies")
+		public int bodies;
+	}
+
+	@Name("SolarSystem3D.ImageDecode")
+	@Label("Image Decode")
+	@Description("Decode of a texture, from the raw texture cache or the image file")
+	@Category({ CATEGORY, "Resources" })
+	@StackTrace(false)
+	public static class ImageDecodeEvent extends Event {
+		@Label("Resource")
+		public String resource;
+		@Label("LOD")
+		public int lod;
+		@Label("Width")
+		public int width;
+		@Label("Height")
+		public int height;
+		@Label("Bytes")
+		@DataAmount
+		public long bytes;
+		@Label("Raw Cache Hit")
+		public boolean rawCache;
+	}
+
+	@Name("SolarSystem3D.Frame")
+	@Label("Frame")
+	@Description("Layout pass and frame listeners of one pulse together with the animation update of the frame")
+	@Category({ CATEGORY, "Render" })
+	@StackTrace(false)
+	public static class FrameEvent extends Event {
+		@Label("Animation Time")
+		@Description("Time spent in the orbit transitions and spin timers of all bodies")
+		@Timespan
+		public long animationTime;
+		@Label("Bodies")
+		public long bodies;
+		@Label("Visible Bodies")
+		public long visibleBodies;
+		@Label("Sprites")
+		public long sprites;
+	}
+
+	@Name("SolarSystem3D.Pick")
+	@Label("Pick")
+	@Description("Ray cast for the body under the mouse")
+	@Category({ CATEGORY, "Input" })
+	@StackTrace(false)
+	public static class PickEvent extends Event {
+		@Label("Candidates")
+		public int candidates;
+		@Label("Hit")
+		public String hit;
+	}
+
+	@Name("SolarSystem3D.CameraMode")
+	@Label("Camera Mode Switch")
+	@Description("Switch between the free camera and the chase camera")
+	@Category({ CATEGORY, "Input" })
+	@StackTrace(false)
+	public static class CameraModeEvent extends Event {
+		@Label("From")
+		public String from;
+		@Label("To")
+		public String to;
+		@Label("Target")
+		public String target;
+		@Label("Bodies")
+		public long bodies;
+	}
+
+	private static final EventType FRAME_TYPE = EventType.getEventType(FrameEvent.class);
+
+	/**
+	 * @return true if frame events are recorded, checked once per frame before the event is created
+	 */
+	public static boolean isFrameEnabled() {
+		return FRAME_TYPE.isEnabled();
+	}
+}
@@ -0,0 +1,15 @@
+package util;
+
+/**
+ * Listener which is called once per rendered frame on the FX Application thread,
+ * after the layout pass and before the scene is rendered.
+ * 
+ * Registered with {@link SmartScene#addFrameListener(FrameListener)}
+ */
+@FunctionalInterface
+public interface FrameListener {
+	/**
+	 * @param now the current time in nanoseconds, see System.nanoTime()
+	 */
+	void onFrame(long now);
+}
@@ -0,0 +1,134 @@
+package util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Records the time between frames while recording is on and reports the average FPS, the 1% lows,
+ * percentiles and a histogram of the frame times. FX Application thread only.
+ */
+public class FrameTimeRecorder implements FrameListener {
+	/**
+	 * upper bounds of the histogram rows in milliseconds, the last row takes the rest
+	 */
+	private static final double[] HISTOGRAM_MS = { 4, 8, 12, 16.7, 20, 25, 33.3, 50, 100 };
+	private static final int BAR_WIDTH = 50;
+
+	private long[] frames = new long[1024];
+	private int count = 0;
+	private long lastFrame = 0;
+	private boolean recording = false;
+
+	@Override
+	public void onFrame(long now) {
+		if (recording && lastFrame != 0) {
+			if (count == frames.length) frames = Arrays.copyOf(frames, count * 2);
+			frames[count++] = now - lastFrame;
+		}
+		lastFrame = now;
+	}
+
+	/**
+	 * Drops all frames recorded so far and records from the next frame on
+	 */
+	public void start() {
+		count = 0;
+		lastFrame = 0;
+		recording = true;
+	}
+
+	public void stop() {
+		recording = false;
+	}
+
+	public int getFrameCount() {
+		return count;
+	}
+
+	/**
+	 * @return the frame times in nanoseconds in the order they were recorded
+	 */
+	public long[] getFrameTimes() {
+		return Arrays.copyOf(frames, count);
+	}
+
+	public double getAverageFps() {
+		long total = 0;
+		for (int i = 0; i < count; i++) total += frames[i];
+		return total == 0 ? 0 : count * 1e9 / total;
+	}
+
+	/**
+	 * @return the average FPS over the slowest 1% of the frames, at least one frame
+	 */
+	public double getOnePercentLowFps() {
+		if (count == 0) return 0;
+		long[] sorted = getFrameTimes();
+		Arrays.sort(sorted);
+		int n = Math.max(1, count / 100);
+		long total = 0;
+		for (int i = count - n; i < count; i++) total += sorted[i];
+		return n * 1e9 / total;
+	}
+
+	/**
+	 * @param p the percentile between 0 and 100
+	 * @return the frame time of the percentile in milliseconds
+	 */
+	public double getPercentileMillis(double p) {
+		if (count == 0) return 0;
+		long[] sorted = getFrameTimes();
+		Arrays.sort(sorted);
+		int index = (int) Math.ceil(p / 100 * count) - 1;
+		return sorted[Math.max(0, Math.min(count - 1, index))] / 1e6;
+	}
+
+	/**
+	 * Prints the summary and the frame time histogram
+	 */
+	public void report(String title, PrintStream out) {
+		out.println(title);
+		out.println(String.format(Locale.ROOT, "frames      %d", count));
+		out.println(String.format(Locale.ROOT, "average fps %.1f", getAverageFps()));
+		out.println(String.format(Locale.ROOT, "1%% low fps  %.1f", getOnePercentLowFps()));
+		out.println(String.format(Locale.ROOT, "p50 ms      %.2f", getPercentileMillis(50)));
+		out.println(String.format(Locale.ROOT, "p90 ms      %.2f", getPercentileMillis(90)));
+		out.println(String.format(Locale.ROOT, "p99 ms      %.2f", getPercentileMillis(99)));
+		out.println(String.format(Locale.ROOT, "max ms      %.2f", getPercentileMillis(100)));
+		out.println("frame time histogram");
+
+		int[] rows = new int[HISTOGRAM_MS.length + 1];
+		for (int i = 0; i < count; i++) {
+			double ms = frames[i] / 1e6;
+			int row = 0;
+			while (row < HISTOGRAM_MS.length && ms > HISTOGRAM_MS[row]) row++;
+			rows[row]++;
+		}
+		int max = 1;
+		for (int r : rows) max = Math.max(max, r);
+		for (int row = 0; row < rows.length; row++) {
+			String range = row < HISTOGRAM_MS.length
+					? String.format(Locale.ROOT, "<= %5.1f ms", HISTOGRAM_MS[row])
+					: String.format(Locale.ROOT, " > %5.1f ms", HISTOGRAM_MS[HISTOGRAM_MS.length - 1]);
+			char[] bar = new char[(int) Math.round((double) rows[row] * BAR_WIDTH / max)];
+			Arrays.fill(bar, '#');
+			out.println(String.format(Locale.ROOT, "%s %6d %s", range, rows[row], new String(bar)));
+		}
+	}
+
+	/**
+	 * Writes one line per frame: the frame number and the frame time in milliseconds
+	 */
+	public void writeFrames(File file) throws IOException {
+		try (PrintWriter out = new PrintWriter(file, "UTF-8")) {
+			out.println("frame,ms");
+			for (int i = 0; i < count; i++) {
+				out.println(String.format(Locale.ROOT, "%d,%.3f", i, frames[i] / 1e6));
+			}
+		}
+	}
+}
@@ -0,0 +1,94 @@
+package util;
+
+/**
+ * Tests bounding spheres against the view frustum of a perspective camera.
+ *
+ * {@link #setCamera(double[], double, boolean, double, double, double)} is called once per frame, the
+ * spheres are then tested in camera coordinates against the near, far and the four side planes.
+ */
+public class FrustumCuller {
+	private final double[] view = new double[AffineMath.SIZE];
+	private double viewScale = 1;
+	private double near = 0;
+	private double far = Double.POSITIVE_INFINITY;
+	/**
+	 * tangent of the half field of view and the length of the plane normals (1, tan)
+	 */
+	private double tanX = 1, tanY = 1;
+	private double normX = Math.sqrt(2), normY = Math.sqrt(2);
+	private boolean valid = false;
+
+	private final double[] point = new double[3];
+
+	/**
+	 * @param cameraToWorld the world transform of the camera
+	 * @param fieldOfView the field of view in degree
+	 * @param verticalFieldOfView true if the field of view is the vertical one
+	 * @param aspect width / height of the viewport
+	 * @param nearClip the near clip distance
+	 * @param farClip the far clip distance
+	 */
+	public void setCamera(double[] cameraToWorld, double fieldOfView, boolean verticalFieldOfView, double aspect, double nearClip, double farClip) {
+		valid = AffineMath.invert(cameraToWorld, 0, view, 0);
+		viewScale = valid ? AffineMath.maxScale(view, 0) : 1;
+		double tan = Math.tan(Math.toRadians(fieldOfView) / 2);
+		tanX = verticalFieldOfView ? tan * aspect : tan;
+		tanY = verticalFieldOfView ? tan : tan / aspect;
+		normX = Math.sqrt(1 + tanX * tanX);
+		normY = Math.sqrt(1 + tanY * tanY);
+		near = nearClip;
+		far = farClip;
+	}
+
+	/**
+	 * @param x world x of the center
+	 * @param y world y of the center
+	 * @param z world z of the center
+	 * @param radius world radius of the sphere
+	 * @return false only if the sphere is completely outside the frustum
+	 */
+	public boolean isVisible(double x, double y, double z, double radius) {
+		if (!valid) return true;
+		AffineMath.transform(view, 0, x, y, z, point);
+		double r = radius * viewScale;
+		double cz = point[2];
+		if (cz + r < near || cz - r > far) return false;
+		// side planes through the eye, the camera looks along +z
+		if ((point[0] - cz * tanX) / normX > r || (-point[0] - cz * tanX) / normX > r) return false;
+		if ((point[1] - cz * tanY) / normY > r || (-point[1] - cz * tanY) / normY > r) return false;
+		return true;
+	}
+
+	/**
+	 * @param x world x of the center
+	 * @param y world y of the center
+	 * @param z world z of the center
+	 * @param radius world radius of the sphere
+	 * @param viewportHeight the height of the viewport in pixels
+	 * @return the projected diameter of the sphere in pixels, infinite if the sphere reaches the near plane
+	 */
+	public double projectedSize(double x, double y, double z, double radius, double viewportHeight) {
+		if (!valid) return Double.POSITIVE_INFINITY;
+		AffineMath.transform(view, 0, x, y, z, point);
+		double r = radius * viewScale;
+		double depth = point[2];
+		if (depth - r <= near) return Double.POSITIVE_INFINITY;
+		return r / (depth * tanY) * viewportHeight;
+	}
+
+	/**
+	 * @return the distance of the point in front of the camera along the view direction, in camera coordinates
+	 */
+	public double depth(double x, double y, double z) {
+		if (!valid) return 0;
+		AffineMath.transform(view, 0, x, y, z, point);
+		return point[2];
+	}
+
+	/**
+	 * @return the world radius in camera coordinates
+	 */
+	public double viewRadius(double radius) {
+		return radius * viewScale;
+	}
+}
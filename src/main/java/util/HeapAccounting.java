@@ -0,0 +1,326 @@
+package util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import javafx.scene.Node;
+import javafx.scene.Parent;
+import javafx.scene.SubScene;
+import javafx.scene.image.Image;
+import javafx.scene.image.ImageView;
+import javafx.scene.layout.Region;
+import javafx.scene.paint.PhongMaterial;
+import javafx.scene.shape.Box;
+import javafx.scene.shape.Cylinder;
+import javafx.scene.shape.Mesh;
+import javafx.scene.shape.MeshView;
+import javafx.scene.shape.Shape;
+import javafx.scene.shape.Shape3D;
+import javafx.scene.shape.Sphere;
+import javafx.scene.shape.TriangleMesh;
+import javafx.scene.transform.Affine;
+import javafx.scene.transform.Transform;
+
+/**
+ * Estimates the heap retained by a scene graph, split by owner and by category:
+ * image pixels, TriangleMesh arrays, node overhead including transforms, materials and the model data of the owners.
+ *
+ * Owners are registered with the root nodes of their delegates, every node below a root belongs to that owner
+ * until the root of another owner is reached. Nodes which belong to no owner are counted as {@link #SCENE}.
+ * Images, meshes and materials shared by several nodes are counted once, for the owner which reached them first.
+ *
+ * The numbers are estimates of the Java heap: images are counted with 4 bytes per pixel like in {@link TextureCache},
+ * meshes with the sizes of their arrays and the overhead of nodes, transforms and materials with the shallow sizes
+ * of freshly created JavaFX 13 objects with compressed references. Copies on the GPU or in the native renderer
+ * are not included.
+ */
+public class HeapAccounting {
+	public static final String SCENE = "(scene)";
+	public static final String TEXTURE_CACHE = "(texture cache)";
+
+	private static final long NODE_BYTES = 800;
+	private static final long PARENT_BYTES = 1550;
+	private static final long REGION_BYTES = 1960;
+	private static final long SHAPE_BYTES = 920;
+	private static final long SHAPE3D_BYTES = 760;
+	/**
+	 * the lazily created translate, rotate and scale properties of a node
+	 */
+	private static final long NODE_TRANSFORMATION_BYTES = 420;
+	private static final long AFFINE_BYTES = 350;
+	private static final long TRANSFORM_BYTES = 200;
+	private static final long MATERIAL_BYTES = 240;
+	private static final long ARRAY_HEADER_BYTES = 16;
+
+	/**
+	 * The heap of one owner
+	 */
+	public static final class Row {
+		public final String name;
+		public final String type;
+		/**
+		 * the top level body this owner belongs to, e.g. the planet of a moon
+		 */
+		public final String subsystem;
+		public int nodes;
+		public int transforms;
+		public long nodeBytes;
+		public int meshes;
+		public long meshBytes;
+		public int images;
+		public long imageBytes;
+		public int materials;
+		public long materialBytes;
+		public long modelBytes;
+
+		Row(String name, String type, String subsystem) {
+			this.name = name;
+			this.type = type;
+			this.subsystem = subsystem;
+		}
+
+		public long getTotalBytes() {
+			return nodeBytes + meshBytes + imageBytes + materialBytes + modelBytes;
+		}
+
+		void add(Row row) {
+			nodes += row.nodes;
+			transforms += row.transforms;
+			nodeBytes += row.nodeBytes;
+			meshes += row.meshes;
+			meshBytes += row.meshBytes;
+			images += row.images;
+			imageBytes += row.imageBytes;
+			materials += row.materials;
+			materialBytes += row.materialBytes;
+			modelBytes += row.modelBytes;
+		}
+	}
+
+	private final Map<String, Row> rows = new LinkedHashMap<>();
+	private final Map<Node, Row> owners = new IdentityHashMap<>();
+	private final List<Node> roots = new ArrayList<>();
+	private final Set<Object> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+	/**
+	 * the meshes of predefined shapes are shared by all shapes with the same dimensions and divisions
+	 */
+	private final Set<String> predefinedMeshes = new HashSet<>();
+
+	public HeapAccounting() {
+		row(SCENE, "", SCENE);
+	}
+
+	private Row row(String name, String type, String subsystem) {
+		Row row = rows.get(name);
+		if (row == null) {
+			row = new Row(name, type, subsystem);
+			rows.put(name, row);
+		}
+		return row;
+	}
+
+	/**
+	 * Registers an owner with the roots of its nodes, call this for all owners before {@link #walk(Node)}
+	 *
+	 * @param modelBytes the estimated size of the data of the owner outside the scene graph
+	 */
+	public void addOwner(String name, String type, String subsystem, long modelBytes, Node... roots) {
+		Row row = row(name, type, subsystem);
+		row.modelBytes += modelBytes;
+		for (Node root : roots) {
+			if (root != null && owners.put(root, row) == null) this.roots.add(root);
+		}
+	}
+
+	/**
+	 * Counts all nodes below the roots of the owners and below the given root, which was not counted yet.
+	 * The roots of the owners are walked first, so owners which are detached from the scene are counted as well.
+	 */
+	public void walk(Node root) {
+		for (Node owner : roots) {
+			walk(owner, owners.get(owner));
+		}
+		walk(root, rows.get(SCENE));
+	}
+
+	/**
+	 * Counts the images which were not reached from a node yet, e.g. the textures held by the texture cache
+	 */
+	public void addImages(String name, Collection<Image> images) {
+		Row row = row(name, "", name);
+		for (Image image : images) addImage(image, row);
+	}
+
+	private void walk(Node node, Row row) {
+		if (!visited.add(node)) return;
+		Row owner = owners.get(node);
+		if (owner != null) row = owner;
+
+		row.nodes++;
+		row.nodeBytes += nodeBytes(node);
+		if (node.getTranslateX() != 0 || node.getTranslateY() != 0 || node.getTranslateZ() != 0 || node.getRotate() != 0
+				|| node.getScaleX() != 1 || node.getScaleY() != 1 || node.getScaleZ() != 1) {
+			row.nodeBytes += NODE_TRANSFORMATION_BYTES;
+		}
+		for (Transform transform : node.getTransforms()) {
+			if (!visited.add(transform)) continue;
+			row.transforms++;
+			row.nodeBytes += transform instanceof Affine ? AFFINE_BYTES : TRANSFORM_BYTES;
+		}
+
+		if (node instanceof Shape3D) {
+			addShape3D((Shape3D) node, row);
+		} else if (node instanceof ImageView) {
+			addImage(((ImageView) node).getImage(), row);
+		}
+
+		if (node instanceof SubScene) walk(((SubScene) node).getRoot(), row);
+		if (node instanceof Parent) {
+			for (Node child : ((Parent) node).getChildrenUnmodifiable()) {
+				walk(child, row);
+			}
+		}
+	}
+
+	private static long nodeBytes(Node node) {
+		if (node instanceof Region) return REGION_BYTES;
+		if (node instanceof Parent) return PARENT_BYTES;
+		if (node instanceof Shape3D) return SHAPE3D_BYTES;
+		if (node instanceof Shape) return SHAPE_BYTES;
+		return NODE_BYTES;
+	}
+
+	private void addShape3D(Shape3D shape, Row row) {
+		if (shape.getMaterial() instanceof PhongMaterial && visited.add(shape.getMaterial())) {
+			PhongMaterial material = (PhongMaterial) shape.getMaterial();
+			row.materials++;
+			row.materialBytes += MATERIAL_BYTES;
+			addImage(material.getDiffuseMap(), row);
+			addImage(material.getSpecularMap(), row);
+			addImage(material.getBumpMap(), row);
+			addImage(material.getSelfIlluminationMap(), row);
+		}
+		if (shape instanceof MeshView) {
+			Mesh mesh = ((MeshView) shape).getMesh();
+			if (mesh instanceof TriangleMesh && visited.add(mesh)) {
+				TriangleMesh triangles = (TriangleMesh) mesh;
+				row.meshes++;
+				row.meshBytes += floatArray(triangles.getPoints().size()) + floatArray(triangles.getNormals().size())
+						+ floatArray(triangles.getTexCoords().size()) + intArray(triangles.getFaces().size())
+						+ intArray(triangles.getFaceSmoothingGroups().size());
+			}
+		} else if (shape instanceof Sphere) {
+			Sphere sphere = (Sphere) shape;
+			// the mesh is created with a multiple of 4 divisions, one ring of points per latitude
+			int div = (sphere.getDivisions() + 3) / 4 * 4;
+			int div2 = div / 2;
+			int points = div * (div2 - 1) + 2;
+			int texCoords = (div + 1) * (div2 - 1) + div * 2;
+			int faces = div * (div2 - 2) * 2 + div * 2;
+			addPredefinedMesh("sphere " + sphere.getRadius() + " " + div, points, texCoords, faces, row);
+		} else if (shape instanceof Cylinder) {
+			Cylinder cylinder = (Cylinder) shape;
+			int div = cylinder.getDivisions();
+			addPredefinedMesh("cylinder " + cylinder.getRadius() + " " + cylinder.getHeight() + " " + div,
+					div * 2 + 2, (div + 1) * 4 + 1 + div, div * 4, row);
+		} else if (shape instanceof Box) {
+			Box box = (Box) shape;
+			addPredefinedMesh("box " + box.getWidth() + " " + box.getHeight() + " " + box.getDepth(), 8, 4, 12, row);
+		}
+	}
+
+	private void addPredefinedMesh(String key, int points, int texCoords, int faces, Row row) {
+		if (!predefinedMeshes.add(key)) return;
+		row.meshes++;
+		row.meshBytes += floatArray(points * 3) + floatArray(texCoords * 2) + intArray(faces * 6) + intArray(faces);
+	}
+
+	private void addImage(Image image, Row row) {
+		if (image == null || !visited.add(image)) return;
+		row.images++;
+		row.imageBytes += (long) image.getWidth() * (long) image.getHeight() * 4;
+	}
+
+	private static long floatArray(int length) {
+		return length == 0 ? 0 : ARRAY_HEADER_BYTES + 4L * length;
+	}
+
+	private static long intArray(int length) {
+		return floatArray(length);
+	}
+
+	public Collection<Row> getRows() {
+		return Collections.unmodifiableCollection(rows.values());
+	}
+
+	public Row getTotal() {
+		Row total = new Row("total", "", "");
+		for (Row row : rows.values()) total.add(row);
+		return total;
+	}
+
+	/**
+	 * @return the rows summed up per subsystem in the order of their first owner
+	 */
+	public List<Row> getSubsystems() {
+		Map<String, Row> subsystems = new LinkedHashMap<>();
+		for (Row row : rows.values()) {
+			Row subsystem = subsystems.get(row.subsystem);
+			if (subsystem == null) {
+				subsystem = new Row(row.subsystem, "", row.subsystem);
+				subsystems.put(row.subsystem, subsystem);
+			}
+			subsystem.add(row);
+		}
+		return new ArrayList<>(subsystems.values());
+	}
+
+	/**
+	 * Writes one line per owner and the total
+	 */
+	public void writeCsv(File file) throws IOException {
+		try (PrintWriter out = new PrintWriter(file, "UTF-8")) {
+			out.println("name,type,subsystem,nodes,transforms,node.bytes,meshes,mesh.bytes,images,image.bytes,"
+					+ "materials,material.bytes,model.bytes,total.bytes");
+			for (Row row : rows.values()) out.println(csv(row));
+			out.println(csv(getTotal()));
+		}
+	}
+
+	private static String csv(Row row) {
+		return String.format(Locale.ROOT, "\"%s\",%s,\"%s\",%d,%d,%d,%d,%d,%d,%d,%d,%d,%d,%d",
+				row.name.replace("\"", "\"\""), row.type, row.subsystem.replace("\"", "\"\""), row.nodes, row.transforms,
+				row.nodeBytes, row.meshes, row.meshBytes, row.images, row.imageBytes, row.materials, row.materialBytes,
+				row.modelBytes, row.getTotalBytes());
+	}
+
+	/**
+	 * Prints the totals per category and per subsystem
+	 */
+	public void report(PrintStream out) {
+		Row total = getTotal();
+		out.println(String.format(Locale.ROOT, "heap estimate %.1f MB in %d owners", total.getTotalBytes() / 1048576.0, rows.size()));
+		out.println(String.format(Locale.ROOT, "  image pixels   %10.1f MB in %d images", total.imageBytes / 1048576.0, total.images));
+		out.println(String.format(Locale.ROOT, "  mesh arrays    %10.1f MB in %d meshes", total.meshBytes / 1048576.0, total.meshes));
+		out.println(String.format(Locale.ROOT, "  nodes          %10.1f MB in %d nodes, %d transforms", total.nodeBytes / 1048576.0,
+				total.nodes, total.transforms));
+		out.println(String.format(Locale.ROOT, "  materials      %10.1f MB in %d materials", total.materialBytes / 1048576.0, total.materials));
+		out.println(String.format(Locale.ROOT, "  model          %10.1f MB", total.modelBytes / 1048576.0));
+		out.println("per subsystem:");
+		for (Row subsystem : getSubsystems()) {
+			out.println(String.format(Locale.ROOT, "  %-24s %10.1f MB", subsystem.name, subsystem.getTotalBytes() / 1048576.0));
+		}
+	}
+}
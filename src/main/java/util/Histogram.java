@@ -0,0 +1,195 @@
+package util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free histogram of durations in nanoseconds.
+ *
+ * The buckets are log-linear: every power of two is split into 16 buckets, so a percentile is accurate
+ * to about 6% over the whole range of a long. Recording is one atomic increment per value and never
+ * allocates, so any thread can record, e.g. the FX Application thread and the background loaders.
+ *
+ * Percentiles are read from the live buckets. For the values of a time window copy the buckets with
+ * {@link #copyCounts(long[])} and compare two copies with {@link #percentile(long[], long[], double)}.
+ *
+ * Registered with {@link Metrics}, which exposes it as MXBean.
+ */
+public class Histogram implements HistogramMXBean {
+	private static final int SUB_BITS = 4;
+	private static final int SUB_COUNT = 1 << SUB_BITS;
+	/**
+	 * number of buckets, enough for all positive long values
+	 */
+	public static final int BUCKETS = (64 - SUB_BITS) * SUB_COUNT;
+
+	private final String name;
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+	private final AtomicLong count = new AtomicLong();
+	private final AtomicLong sum = new AtomicLong();
+	private final AtomicLong max = new AtomicLong();
+
+	/**
+	 * time accumulated for the current frame, see {@link #accumulate(long)}, FX Application thread only
+	 */
+	private long pending = 0;
+	private boolean hasPending = false;
+
+	Histogram(String name) {
+		this.name = name;
+	}
+
+	@Override
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Records one duration
+	 *
+	 * @param nanos the duration in nanoseconds, negative values are recorded as 0
+	 */
+	public void record(long nanos) {
+		if (nanos < 0) nanos = 0;
+		counts.incrementAndGet(bucket(nanos));
+		count.incrementAndGet();
+		sum.addAndGet(nanos);
+		long m;
+		while (nanos > (m = max.get()) && !max.compareAndSet(m, nanos)) {
+			// retry
+		}
+	}
+
+	/**
+	 * Adds a duration to the sample of the current frame, for work which is spread over many calls
+	 * like the updates of all the animations. Must be called on the FX Application thread.
+	 *
+	 * @see Metrics#endFrame()
+	 */
+	public void accumulate(long nanos) {
+		pending += nanos;
+		hasPending = true;
+	}
+
+	/**
+	 * @return the time accumulated for the current frame so far
+	 */
+	public long getAccumulated() {
+		return pending;
+	}
+
+	/**
+	 * Records the time accumulated since the last call as one value
+	 */
+	void commit() {
+		if (!hasPending) return;
+		record(pending);
+		pending = 0;
+		hasPending = false;
+	}
+
+	static int bucket(long value) {
+		if (value < SUB_COUNT) return (int) value;
+		int exponent = 63 - Long.numberOfLeadingZeros(value);
+		return (exponent - SUB_BITS + 1) * SUB_COUNT + (int) ((value >>> (exponent - SUB_BITS)) & (SUB_COUNT - 1));
+	}
+
+	/**
+	 * @return the middle of the values which fall into the bucket
+	 */
+	static long value(int bucket) {
+		if (bucket < SUB_COUNT) return bucket;
+		int shift = bucket / SUB_COUNT - 1;
+		long lower = (long) (SUB_COUNT + bucket % SUB_COUNT) << shift;
+		return lower + ((1L << shift) >> 1);
+	}
+
+	/**
+	 * Copies the bucket counts, the array must have {@link #BUCKETS} elements
+	 */
+	public void copyCounts(long[] out) {
+		for (int i = 0; i < BUCKETS; i++) out[i] = counts.get(i);
+	}
+
+	/**
+	 * Percentile of the values recorded between two copies of the bucket counts
+	 *
+	 * @param counts the newer copy
+	 * @param base the older copy or null for all values in counts
+	 * @param p the percentile between 0 and 100
+	 * @return the value in nanoseconds, 0 if no value was recorded in between
+	 */
+	public static long percentile(long[] counts, long[] base, double p) {
+		long total = 0;
+		for (int i = 0; i < BUCKETS; i++) total += counts[i] - (base == null ? 0 : base[i]);
+		if (total <= 0) return 0;
+		long rank = Math.max(1, (long) Math.ceil(total * p / 100));
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += counts[i] - (base == null ? 0 : base[i]);
+			if (seen >= rank) return value(i);
+		}
+		return value(BUCKETS - 1);
+	}
+
+	/**
+	 * Percentile of all recorded values
+	 *
+	 * @param p the percentile between 0 and 100
+	 * @return the value in nanoseconds, 0 if nothing was recorded
+	 */
+	public long getPercentile(double p) {
+		long total = 0;
+		for (int i = 0; i < BUCKETS; i++) total += counts.get(i);
+		if (total <= 0) return 0;
+		long rank = Math.max(1, (long) Math.ceil(total * p / 100));
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += counts.get(i);
+			if (seen >= rank) return value(i);
+		}
+		return value(BUCKETS - 1);
+	}
+
+	@Override
+	public long getCount() {
+		return count.get();
+	}
+
+	@Override
+	public double getMeanMillis() {
+		long n = count.get();
+		return n == 0 ? 0 : sum.get() / 1e6 / n;
+	}
+
+	@Override
+	public double getP50Millis() {
+		return getPercentile(50) / 1e6;
+	}
+
+	@Override
+	public double getP90Millis() {
+		return getPercentile(90) / 1e6;
+	}
+
+	@Override
+	public double getP99Millis() {
+		return getPercentile(99) / 1e6;
+	}
+
+	@Override
+	public double getMaxMillis() {
+		return max.get() / 1e6;
+	}
+
+	/**
+	 * Clears all values, values recorded at the same time may be lost
+	 */
+	@Override
+	public void reset() {
+		for (int i = 0; i < BUCKETS; i++) counts.set(i, 0);
+		count.set(0);
+		sum.set(0);
+		max.set(0);
+	}
+}
@@ -0,0 +1,22 @@
+package util;
+
+/**
+ * Management interface of a {@link Histogram}, all times in milliseconds
+ */
+public interface HistogramMXBean {
+	String getName();
+
+	long getCount();
+
+	double getMeanMillis();
+
+	double getP50Millis();
+
+	double getP90Millis();
+
+	double getP99Millis();
+
+	double getMaxMillis();
+
+	void reset();
+}
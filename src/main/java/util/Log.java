@@ -0,0 +1,276 @@
+package util;
+
+import java.io.PrintStream;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Leveled diagnostic output per category.
+ *
+ * Every category has its own level read from config.properties ("log.level.&lt;category&gt;", falling back
+ * to "log.level"). Callers check the level with {@link #isDebug()} and friends before they build a message,
+ * the log methods check it again, so a disabled statement costs one comparison.
+ *
+ * Enabled statements do not format anything on the calling thread. The constant message and up to three
+ * numbers are copied into a preallocated ring buffer and a daemon thread formats and prints them. If the ring
+ * is full the entry is dropped and counted instead of waiting, so the FX Application thread never blocks on
+ * console output.
+ */
+public final class Log {
+	public static final int OFF = 0;
+	public static final int ERROR = 1;
+	public static final int WARN = 2;
+	public static final int INFO = 3;
+	public static final int DEBUG = 4;
+	public static final int TRACE = 5;
+	private static final String[] LEVEL_NAMES = { "OFF", "ERROR", "WARN", "INFO", "DEBUG", "TRACE" };
+
+	public static final String DEFAULT_LEVEL = "warn";
+	public static final int DEFAULT_RING_SIZE = 4096;
+
+	/**
+	 * building the delegates and fitting the orbits
+	 */
+	public static final Log ORBIT = new Log("orbit");
+	/**
+	 * camera modes, zoom and drag
+	 */
+	public static final Log CAMERA = new Log("camera");
+	public static final Log PICKING = new Log("picking");
+	public static final Log ANIMATION = new Log("animation");
+	public static final Log RESOURCES = new Log("resources");
+	public static final Log SCENE = new Log("scene");
+	/**
+	 * output of {@link Debug}
+	 */
+	public static final Log DEBUG_OUTPUT = new Log("debug");
+
+	private static final Sink sink = new Sink(ResourceLoader.getInstance().getIntProperty("log.ring.size", DEFAULT_RING_SIZE));
+
+	private final String name;
+	private volatile int level;
+
+	private Log(String name) {
+		this.name = name;
+		ResourceLoader rl = ResourceLoader.getInstance();
+		level = parseLevel(rl.getProperty("log.level." + name, rl.getProperty("log.level", DEFAULT_LEVEL)));
+	}
+
+	private static int parseLevel(String value) {
+		for (int i = 0; i < LEVEL_NAMES.length; i++) {
+			if (LEVEL_NAMES[i].equalsIgnoreCase(value.trim())) return i;
+		}
+		return WARN;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public int getLevel() {
+		return level;
+	}
+
+	public void setLevel(int level) {
+		this.level = level;
+	}
+
+	public boolean isEnabled(int level) {
+		return level <= this.level;
+	}
+
+	public boolean isWarn() {
+		return WARN <= level;
+	}
+
+	public boolean isInfo() {
+		return INFO <= level;
+	}
+
+	public boolean isDebug() {
+		return DEBUG <= level;
+	}
+
+	public boolean isTrace() {
+		return TRACE <= level;
+	}
+
+	public void error(String message) { log(ERROR, message, null, 0, 0, 0, 0); }
+	public void error(String message, Object arg) { log(ERROR, message, arg, 0, 0, 0, 0); }
+
+	public void warn(String message) { log(WARN, message, null, 0, 0, 0, 0); }
+	public void warn(String message, Object arg) { log(WARN, message, arg, 0, 0, 0, 0); }
+	public void warn(String message, Object arg, double a) { log(WARN, message, arg, 1, a, 0, 0); }
+
+	public void info(String message) { log(INFO, message, null, 0, 0, 0, 0); }
+	public void info(String message, Object arg) { log(INFO, message, arg, 0, 0, 0, 0); }
+	public void info(String message, Object arg, double a) { log(INFO, message, arg, 1, a, 0, 0); }
+
+	public void debug(String message) { log(DEBUG, message, null, 0, 0, 0, 0); }
+	public void debug(String message, Object arg) { log(DEBUG, message, arg, 0, 0, 0, 0); }
+	public void debug(String message, double a) { log(DEBUG, message, null, 1, a, 0, 0); }
+	public void debug(String message, Object arg, double a) { log(DEBUG, message, arg, 1, a, 0, 0); }
+	public void debug(String message, Object arg, double a, double b) { log(DEBUG, message, arg, 2, a, b, 0); }
+	public void debug(String message, Object arg, double a, double b, double c) { log(DEBUG, message, arg, 3, a, b, c); }
+
+	public void trace(String message, Object arg) { log(TRACE, message, arg, 0, 0, 0, 0); }
+	public void trace(String message, Object arg, double a, double b, double c) { log(TRACE, message, arg, 3, a, b, c); }
+
+	/**
+	 * @param message a constant text, it is printed as is
+	 * @param arg printed after the message with toString() on the sink thread, may be null
+	 * @param count the number of the values a, b and c which are printed after arg
+	 */
+	private void log(int level, String message, Object arg, int count, double a, double b, double c) {
+		if (level > this.level) return;
+		sink.publish(this, level, message, arg, count, a, b, c);
+	}
+
+	/**
+	 * @return the number of entries dropped because the ring was full
+	 */
+	public static long getDroppedCount() {
+		return sink.dropped.get();
+	}
+
+	/**
+	 * Waits until the sink thread has printed all entries published so far, at most for the given time
+	 */
+	public static void flush(long timeoutMillis) {
+		sink.flush(timeoutMillis);
+	}
+
+	/**
+	 * Multi producer, single consumer ring of preallocated entries.
+	 * A producer claims a sequence number, fills the slot and publishes the sequence number for that slot.
+	 */
+	private static class Sink implements Runnable {
+		private final int mask;
+		private final Log[] categories;
+		private final int[] levels;
+		private final String[] messages;
+		private final Object[] args;
+		private final int[] counts;
+		private final double[] values;
+		private final long[] times;
+		private final AtomicLongArray published;
+
+		private final AtomicLong next = new AtomicLong();
+		private final AtomicLong consumed = new AtomicLong();
+		private final AtomicLong dropped = new AtomicLong();
+		private final PrintStream out = System.out;
+		private final StringBuilder line = new StringBuilder(256);
+		private volatile Thread thread = null;
+
+		Sink(int size) {
+			int capacity = Integer.highestOneBit(Math.max(16, size - 1)) << 1;
+			mask = capacity - 1;
+			categories = new Log[capacity];
+			levels = new int[capacity];
+			messages = new String[capacity];
+			args = new Object[capacity];
+			counts = new int[capacity];
+			values = new double[capacity * 3];
+			times = new long[capacity];
+			published = new AtomicLongArray(capacity);
+			for (int i = 0; i < capacity; i++) published.set(i, -1);
+		}
+
+		void publish(Log category, int level, String message, Object arg, int count, double a, double b, double c) {
+			if (thread == null) start();
+			long seq;
+			do {
+				seq = next.get();
+				if (seq - consumed.get() > mask) {
+					dropped.incrementAndGet();
+					return;
+				}
+			} while (!next.compareAndSet(seq, seq + 1));
+
+			int i = (int) seq & mask;
+			categories[i] = category;
+			levels[i] = level;
+			messages[i] = message;
+			args[i] = arg;
+			counts[i] = count;
+			values[i * 3] = a;
+			values[i * 3 + 1] = b;
+			values[i * 3 + 2] = c;
+			times[i] = System.currentTimeMillis();
+			published.set(i, seq);
+			LockSupport.unpark(thread);
+		}
+
+		private synchronized void start() {
+			if (thread != null) return;
+			Thread t = new Thread(this, "Log");
+			t.setDaemon(true);
+			t.setPriority(Thread.MIN_PRIORITY);
+			Runtime.getRuntime().addShutdownHook(new Thread(() -> flush(500)));
+			thread = t;
+			t.start();
+		}
+
+		@Override
+		public void run() {
+			while (true) {
+				long seq = consumed.get();
+				int i = (int) seq & mask;
+				if (published.get(i) != seq) {
+					out.flush();
+					LockSupport.parkNanos(this, 10_000_000);
+					continue;
+				}
+				print(i);
+				// release the references before the slot is handed back
+				args[i] = null;
+				messages[i] = null;
+				consumed.set(seq + 1);
+			}
+		}
+
+		private void print(int i) {
+			line.setLength(0);
+			long dropped = this.dropped.getAndSet(0);
+			if (dropped > 0) {
+				line.append("[Log] ").append(dropped).append(" entries dropped\n");
+			}
+			line.append(LEVEL_NAMES[levels[i]]).append(" [").append(categories[i].name).append("] ").append(messages[i]);
+			if (args[i] != null) line.append(args[i]);
+			for (int v = 0; v < counts[i]; v++) {
+				line.append(v == 0 && args[i] == null ? "" : " ");
+				appendValue(values[i * 3 + v]);
+			}
+			out.println(line);
+		}
+
+		/**
+		 * Two decimals like the old {@link Debug} output, without a Formatter
+		 */
+		private void appendValue(double value) {
+			if (Double.isNaN(value) || Double.isInfinite(value) || Math.abs(value) >= 1e15) {
+				line.append(value);
+				return;
+			}
+			long hundredths = Math.round(value * 100);
+			if (hundredths < 0) {
+				line.append('-');
+				hundredths = -hundredths;
+			}
+			line.append(hundredths / 100).append('.');
+			long fraction = hundredths % 100;
+			if (fraction < 10) line.append('0');
+			line.append(fraction);
+		}
+
+		void flush(long timeoutMillis) {
+			long end = System.currentTimeMillis() + timeoutMillis;
+			while (consumed.get() < next.get() && thread != null && System.currentTimeMillis() < end) {
+				LockSupport.unpark(thread);
+				LockSupport.parkNanos(1_000_000);
+			}
+			out.flush();
+		}
+	}
+}
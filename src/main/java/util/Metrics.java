@@ -0,0 +1,174 @@
+package util;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Registry of the timings and counts of the application.
+ *
+ * Timings are {@link Histogram}s, counts are gauges which read a value when they are queried. Both are
+ * registered as MXBeans with the platform MBean server under the domain "SolarSystem3D", so they can be
+ * read with jconsole or any JMX client from a running instance. The registration can be switched off with
+ * metrics.jmx.enabled in config.properties.
+ *
+ * Gauges are read on the JMX threads, so they must only read fields and never walk the scene graph.
+ *
+ * Implementation is as Singleton pattern
+ */
+public class Metrics {
+	private final static Metrics instance = new Metrics();
+
+	public static final String DOMAIN = "SolarSystem3D";
+
+	/**
+	 * from the start of the layout pass to the end of the frame listeners
+	 */
+	public static final String PULSE = "pulse";
+	/**
+	 * interval between two frames
+	 */
+	public static final String FRAME = "frame";
+	/**
+	 * orbit transitions and spin timers of all bodies, per frame
+	 */
+	public static final String ANIMATION = "animation";
+	public static final String PICKING = "picking";
+	public static final String CAMERA = "camera";
+	public static final String TEXTURE_DECODE = "texture.decode";
+
+	/**
+	 * Management interface of a gauge
+	 */
+	public interface GaugeMXBean {
+		String getName();
+
+		long getValue();
+	}
+
+	private static class Gauge implements GaugeMXBean {
+		private final String name;
+		private final LongSupplier value;
+
+		Gauge(String name, LongSupplier value) {
+			this.name = name;
+			this.value = value;
+		}
+
+		@Override
+		public String getName() {
+			return name;
+		}
+
+		@Override
+		public long getValue() {
+			return value.getAsLong();
+		}
+	}
+
+	private final boolean jmx;
+	private final Map<String, Histogram> histograms = new ConcurrentHashMap<>();
+	private final Map<String, Gauge> gauges = new ConcurrentHashMap<>();
+	/**
+	 * all histograms as array, so {@link #endFrame()} does not allocate an iterator
+	 */
+	private volatile Histogram[] all = new Histogram[0];
+
+	private Metrics() {
+		jmx = Boolean.parseBoolean(ResourceLoader.getInstance().getProperty("metrics.jmx.enabled", "true"));
+	}
+
+	public synchronized static Metrics getInstance() {
+		return instance;
+	}
+
+	/**
+	 * Returns the histogram of the given name, a new one is created and registered on the first call
+	 */
+	public Histogram histogram(String name) {
+		Histogram histogram = histograms.get(name);
+		if (histogram != null) return histogram;
+		synchronized (this) {
+			histogram = histograms.get(name);
+			if (histogram != null) return histogram;
+			histogram = new Histogram(name);
+			histograms.put(name, histogram);
+			all = Arrays.copyOf(all, all.length + 1);
+			all[all.length - 1] = histogram;
+			register("Timing", name, histogram);
+			return histogram;
+		}
+	}
+
+	/**
+	 * Registers a count, an existing gauge of the same name is replaced
+	 *
+	 * @param name the name, e.g. "bodies.visible"
+	 * @param value reads the current value, called on the JMX threads
+	 */
+	public synchronized void gauge(String name, LongSupplier value) {
+		Gauge gauge = new Gauge(name, value);
+		if (gauges.put(name, gauge) != null) unregister("Count", name);
+		register("Count", name, gauge);
+	}
+
+	/**
+	 * Removes a gauge unless it was replaced by another gauge of the same name in the meantime
+	 *
+	 * @param value the value the gauge was registered with
+	 */
+	public synchronized void removeGauge(String name, LongSupplier value) {
+		Gauge gauge = gauges.get(name);
+		if (gauge == null || gauge.value != value) return;
+		gauges.remove(name);
+		unregister("Count", name);
+	}
+
+	/**
+	 * @return the current value of the gauge or -1 if there is none of that name
+	 */
+	public long getGauge(String name) {
+		Gauge gauge = gauges.get(name);
+		return gauge == null ? -1 : gauge.getValue();
+	}
+
+	/**
+	 * Records the time accumulated during the frame by all histograms, see {@link Histogram#accumulate(long)}.
+	 * Called once per frame on the FX Application thread.
+	 */
+	public void endFrame() {
+		Histogram[] all = this.all;
+		for (int i = 0; i < all.length; i++) {
+			all[i].commit();
+		}
+	}
+
+	private void register(String type, String name, Object bean) {
+		if (!jmx) return;
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			server.registerMBean(bean, objectName(type, name));
+		} catch (JMException | SecurityException e) {
+			e.printStackTrace();
+		}
+	}
+
+	private void unregister(String type, String name) {
+		if (!jmx) return;
+		try {
+			ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName(type, name));
+		} catch (JMException | SecurityException e) {
+			e.printStackTrace();
+		}
+	}
+
+	private static ObjectName objectName(String type, String name) throws JMException {
+		return new ObjectName(DOMAIN + ":type=" + type + ",name=" + ObjectName.quote(name));
+	}
+}
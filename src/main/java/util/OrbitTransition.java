@@ -0,0 +1,72 @@
+package util;
+
+import javafx.animation.Interpolator;
+import javafx.animation.Transition;
+import javafx.scene.Node;
+import javafx.scene.shape.Ellipse;
+import javafx.util.Duration;
+
+/**
+ * Moves the origin of a node along an ellipse at constant speed.
+ * 
+ * Same movement as a PathTransition along the ellipse, starting at the point with the largest x and
+ * moving towards larger y first, but the node's translation is set directly. A PathTransition centers
+ * the layout bounds of the node on the path, for a {@link SmartGroup} these bounds change whenever a
+ * child moves, so its moons would make the planet wobble.
+ */
+public class OrbitTransition extends Transition {
+	private static final int SEGMENTS = 360;
+
+	private static final Histogram ANIMATION_TIME = Metrics.getInstance().histogram(Metrics.ANIMATION);
+
+	private final Node node;
+	private final double centerX;
+	private final double centerY;
+	private final double radiusX;
+	private final double radiusY;
+
+	/**
+	 * length of the ellipse outline from the start to the end of each segment
+	 */
+	private final double[] lengths = new double[SEGMENTS + 1];
+
+	public OrbitTransition(Node node, Ellipse ellipse, Duration duration) {
+		this.node = node;
+		this.centerX = ellipse.getCenterX();
+		this.centerY = ellipse.getCenterY();
+		this.radiusX = ellipse.getRadiusX();
+		this.radiusY = ellipse.getRadiusY();
+		setCycleDuration(duration);
+		setInterpolator(Interpolator.LINEAR);
+
+		double x = radiusX, y = 0;
+		for (int i = 1; i <= SEGMENTS; i++) {
+			double angle = 2 * Math.PI * i / SEGMENTS;
+			double nx = radiusX * Math.cos(angle), ny = radiusY * Math.sin(angle);
+			lengths[i] = lengths[i - 1] + Math.hypot(nx - x, ny - y);
+			x = nx;
+			y = ny;
+		}
+	}
+
+	@Override
+	protected void interpolate(double frac) {
+		long start = System.nanoTime();
+		double length = frac * lengths[SEGMENTS];
+		int lo = 0, hi = SEGMENTS;
+		while (hi - lo > 1) {
+			int mid = (lo + hi) >>> 1;
+			if (lengths[mid] <= length) lo = mid; else hi = mid;
+		}
+		double segment = lengths[hi] - lengths[lo];
+		double t = segment > 0 ? (length - lengths[lo]) / segment : 0;
+		double angle = 2 * Math.PI * (lo + t) / SEGMENTS;
+		node.setTranslateX(centerX + radiusX * Math.cos(angle));
+		node.setTranslateY(centerY + radiusY * Math.sin(angle));
+		ANIMATION_TIME.accumulate(System.nanoTime() - start);
+	}
+
+	public Node getNode() {
+		return node;
+	}
+}
@@ -0,0 +1,198 @@
+package util;
+
+import java.util.function.DoubleSupplier;
+
+import javafx.geometry.VPos;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Font;
+import javafx.scene.text.TextAlignment;
+
+/**
+ * Overlay with the frame rate, a sparkline of the frame times, the pulse time percentiles, the number
+ * of visible bodies, the resident texture memory and the simulation time scale.
+ *
+ * The frame times are written into a preallocated ring every frame, everything else is read from the gauges
+ * of its scene and from {@link Metrics} when the overlay is redrawn, which happens only a few times per second (hud.refresh.ms
+ * in config.properties). The percentiles are those of the pulses since the last redraw. While hidden
+ * the overlay does nothing at all.
+ */
+public class PerformanceHud extends Canvas implements FrameListener {
+	public static final int DEFAULT_REFRESH_MS = 500;
+	public static final double WIDTH = 240;
+	public static final double HEIGHT = 128;
+	private static final int SAMPLES = 120;
+	private static final double PADDING = 8;
+	private static final double LINE_HEIGHT = 15;
+	private static final double SPARKLINE_HEIGHT = 32;
+	/**
+	 * frame time at the top of the sparkline in milliseconds, longer frames are clipped
+	 */
+	private static final double SPARKLINE_MAX_MS = 50;
+
+	private final SmartScene scene;
+	private final DoubleSupplier timeScale;
+	private final long refreshNanos;
+	private final double budget;
+	private final Histogram pulseTime = Metrics.getInstance().histogram(Metrics.PULSE);
+
+	private final float[] frameTimes = new float[SAMPLES];
+	private int sampleCount = 0;
+	private int next = 0;
+	private long lastFrame = 0;
+	private long lastRefresh = 0;
+	private long framesSinceRefresh = 0;
+	private long[] pulseCounts = new long[Histogram.BUCKETS];
+	private long[] pulseBase = new long[Histogram.BUCKETS];
+	private final double[] sparkX = new double[SAMPLES];
+	private final double[] sparkY = new double[SAMPLES];
+	private final StringBuilder text = new StringBuilder(64);
+	private final Font font = Font.font("Monospaced", 12);
+	private double fps = 0;
+
+	/**
+	 * @param scene the scene whose bodies are shown
+	 * @param timeScale simulated seconds per real second, 0 while paused
+	 */
+	public PerformanceHud(SmartScene scene, DoubleSupplier timeScale) {
+		super(WIDTH, HEIGHT);
+		this.scene = scene;
+		this.timeScale = timeScale;
+		refreshNanos = ResourceLoader.getInstance().getIntProperty("hud.refresh.ms", DEFAULT_REFRESH_MS) * 1_000_000L;
+		budget = ResourceLoader.getInstance().getDoubleProperty("quality.frame.budget.ms", QualityGovernor.DEFAULT_FRAME_BUDGET_MS);
+		setMouseTransparent(true);
+		setTranslateX(PADDING);
+		setTranslateY(PADDING);
+		setVisible(Boolean.parseBoolean(ResourceLoader.getInstance().getProperty("hud.visible", "false")));
+		visibleProperty().addListener((o, oldValue, visible) -> {
+			// start with a fresh window, the samples from before the overlay was hidden are stale
+			sampleCount = 0;
+			lastFrame = 0;
+			lastRefresh = 0;
+		});
+	}
+
+	public void toggle() {
+		setVisible(!isVisible());
+	}
+
+	@Override
+	public void onFrame(long now) {
+		if (!isVisible()) return;
+		if (lastFrame != 0) {
+			frameTimes[next] = (float) ((now - lastFrame) / 1e6);
+			next = (next + 1) % SAMPLES;
+			sampleCount = Math.min(SAMPLES, sampleCount + 1);
+			framesSinceRefresh++;
+		}
+		lastFrame = now;
+
+		if (lastRefresh == 0) {
+			lastRefresh = now;
+			framesSinceRefresh = 0;
+			pulseTime.copyCounts(pulseBase);
+			return;
+		}
+		if (now - lastRefresh < refreshNanos) return;
+		fps = framesSinceRefresh * 1e9 / (now - lastRefresh);
+		lastRefresh = now;
+		framesSinceRefresh = 0;
+		pulseTime.copyCounts(pulseCounts);
+		draw(Histogram.percentile(pulseCounts, pulseBase, 50) / 1e6, Histogram.percentile(pulseCounts, pulseBase, 99) / 1e6);
+		long[] swap = pulseBase;
+		pulseBase = pulseCounts;
+		pulseCounts = swap;
+	}
+
+	private void draw(double p50, double p99) {
+		GraphicsContext g = getGraphicsContext2D();
+		g.clearRect(0, 0, WIDTH, HEIGHT);
+		g.setFill(Color.rgb(0, 0, 0, 0.6));
+		g.fillRect(0, 0, WIDTH, HEIGHT);
+		g.setFont(font);
+		g.setTextAlign(TextAlignment.LEFT);
+		g.setTextBaseline(VPos.TOP);
+		g.setFill(Color.WHITE);
+
+		Metrics metrics = Metrics.getInstance();
+		double y = PADDING / 2;
+		text.setLength(0);
+		text.append("FPS ");
+		appendFixed(fps, 1);
+		text.append("  frame ");
+		appendFixed(fps > 0 ? 1000 / fps : 0, 1);
+		text.append(" ms");
+		g.fillText(text.toString(), PADDING / 2, y);
+
+		y += LINE_HEIGHT;
+		text.setLength(0);
+		text.append("pulse p50 ");
+		appendFixed(p50, 2);
+		text.append(" p99 ");
+		appendFixed(p99, 2);
+		text.append(" ms");
+		g.fillText(text.toString(), PADDING / 2, y);
+
+		y += LINE_HEIGHT;
+		text.setLength(0);
+		text.append("bodies ").append(scene.getGauge("bodies.visible")).append(" / ").append(scene.getGauge("bodies"));
+		text.append("  sprites ").append(scene.getGauge("bodies.impostors"));
+		g.fillText(text.toString(), PADDING / 2, y);
+
+		y += LINE_HEIGHT;
+		text.setLength(0);
+		text.append("textures ");
+		appendFixed(metrics.getGauge("textures.resident.bytes") / (1024.0 * 1024.0), 1);
+		text.append(" MB (").append(metrics.getGauge("textures")).append(')');
+		g.fillText(text.toString(), PADDING / 2, y);
+
+		y += LINE_HEIGHT;
+		text.setLength(0);
+		double scale = timeScale.getAsDouble();
+		if (scale == 0) {
+			text.append("time paused");
+		} else {
+			text.append("time x");
+			appendFixed(scale, 0);
+			text.append("  (");
+			appendFixed(scale / 86400, 2);
+			text.append(" d/s)");
+		}
+		g.fillText(text.toString(), PADDING / 2, y);
+
+		drawSparkline(g, HEIGHT - SPARKLINE_HEIGHT - PADDING / 2);
+	}
+
+	private void drawSparkline(GraphicsContext g, double top) {
+		double width = WIDTH - PADDING;
+		double budgetY = top + SPARKLINE_HEIGHT * (1 - budget / SPARKLINE_MAX_MS);
+		g.setStroke(Color.rgb(255, 255, 255, 0.3));
+		g.setLineWidth(1);
+		g.strokeLine(PADDING / 2, budgetY, PADDING / 2 + width, budgetY);
+		if (sampleCount < 2) return;
+
+		int first = (next - sampleCount + SAMPLES) % SAMPLES;
+		for (int i = 0; i < sampleCount; i++) {
+			double ms = Math.min(SPARKLINE_MAX_MS, frameTimes[(first + i) % SAMPLES]);
+			sparkX[i] = PADDING / 2 + width * i / (SAMPLES - 1);
+			sparkY[i] = top + SPARKLINE_HEIGHT * (1 - ms / SPARKLINE_MAX_MS);
+		}
+		g.setStroke(Color.LIMEGREEN);
+		g.strokePolyline(sparkX, sparkY, sampleCount);
+	}
+
+	private void appendFixed(double value, int decimals) {
+		if (decimals == 0) {
+			text.append(Math.round(value));
+			return;
+		}
+		long factor = decimals == 1 ? 10 : 100;
+		long scaled = Math.round(Math.abs(value) * factor);
+		if (value < 0 && scaled != 0) text.append('-');
+		text.append(scaled / factor).append('.');
+		long fraction = scaled % factor;
+		if (decimals == 2 && fraction < 10) text.append('0');
+		text.append(fraction);
+	}
+}
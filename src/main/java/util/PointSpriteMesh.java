@@ -0,0 +1,189 @@
+package util;
+
+import javafx.scene.image.PixelWriter;
+import javafx.scene.image.WritableImage;
+import javafx.scene.paint.Color;
+import javafx.scene.paint.PhongMaterial;
+import javafx.scene.shape.CullFace;
+import javafx.scene.shape.MeshView;
+import javafx.scene.shape.TriangleMesh;
+
+/**
+ * Many small points drawn as one merged mesh of quads.
+ *
+ * Every sprite is a quad of two triangles with a size and a shade. The shade selects a texel of a
+ * small brightness ramp texture which is used as self illumination map, so the sprites are not lit
+ * and the whole mesh is drawn with a single material.
+ */
+public class PointSpriteMesh extends MeshView {
+	public static final int RAMP_SIZE = 256;
+
+	private final TriangleMesh mesh = new TriangleMesh();
+
+	/**
+	 * reused between calls of setSprites, the sprites of impostors change every frame
+	 */
+	private float[] points = new float[0];
+	private int[] faces = new int[0];
+
+	/**
+	 * the sprites and axes of the last upload, unchanged sprites are not uploaded again
+	 */
+	private float[] lastPositions = new float[0];
+	private float[] lastSizes = new float[0];
+	private float[] lastShades = new float[0];
+	private final double[] lastAxis = new double[6];
+	private boolean lastAxes = false;
+	private int lastCount = -1;
+
+	/**
+	 * @param color the color of a sprite with shade 1, lower shades fade to black
+	 */
+	public PointSpriteMesh(Color color) {
+		setMesh(mesh);
+		setCullFace(CullFace.NONE);
+		setMouseTransparent(true);
+
+		WritableImage ramp = new WritableImage(RAMP_SIZE, 1);
+		PixelWriter writer = ramp.getPixelWriter();
+		for (int i = 0; i < RAMP_SIZE; i++) {
+			writer.setColor(i, 0, Color.BLACK.interpolate(color, i / (double) (RAMP_SIZE - 1)));
+		}
+		// one texture coordinate per ramp texel, sampled at the texel center
+		float[] texCoords = new float[RAMP_SIZE * 2];
+		for (int i = 0; i < RAMP_SIZE; i++) {
+			texCoords[i * 2] = (i + 0.5f) / RAMP_SIZE;
+			texCoords[i * 2 + 1] = 0.5f;
+		}
+		mesh.getTexCoords().setAll(texCoords);
+
+		PhongMaterial material = new PhongMaterial(Color.BLACK);
+		material.setSpecularColor(Color.BLACK);
+		material.setSelfIlluminationMap(ramp);
+		setMaterial(material);
+	}
+
+	/**
+	 * Replaces all sprites of the mesh, each quad faces the origin which suits sprites on a sphere around the viewer.
+	 *
+	 * @param positions x, y, z of the sprite centers
+	 * @param sizes the edge length of each sprite
+	 * @param shades the brightness of each sprite between 0 and 1
+	 * @param count the number of sprites
+	 */
+	public void setSprites(float[] positions, float[] sizes, float[] shades, int count) {
+		setSprites(positions, sizes, shades, count, false, 0, 0, 0, 0, 0, 0);
+	}
+
+	/**
+	 * Replaces all sprites of the mesh, all quads are spanned by the two vectors (e.g. the axes of the camera).
+	 *
+	 * @param rx the horizontal edge of the quads, normalized here
+	 * @param ux the vertical edge of the quads, normalized here
+	 */
+	public void setSprites(float[] positions, float[] sizes, float[] shades, int count,
+			double rx, double ry, double rz, double ux, double uy, double uz) {
+		double r = Math.sqrt(rx * rx + ry * ry + rz * rz);
+		double u = Math.sqrt(ux * ux + uy * uy + uz * uz);
+		setSprites(positions, sizes, shades, count, true, rx / r, ry / r, rz / r, ux / u, uy / u, uz / u);
+	}
+
+	/**
+	 * The buffers are reused, so calling this every frame does not allocate once the largest count was reached.
+	 * The mesh is only uploaded again if the sprites or the axes changed since the last call.
+	 */
+	private void setSprites(float[] positions, float[] sizes, float[] shades, int count, boolean axes,
+			double rx0, double ry0, double rz0, double ux0, double uy0, double uz0) {
+		if (!changed(positions, sizes, shades, count, axes, rx0, ry0, rz0, ux0, uy0, uz0)) return;
+		if (points.length < count * 12) {
+			points = new float[count * 12];
+			faces = new int[count * 12];
+		}
+
+		for (int i = 0; i < count; i++) {
+			float x = positions[i * 3];
+			float y = positions[i * 3 + 1];
+			float z = positions[i * 3 + 2];
+
+			double rx, ry, rz, ux, uy, uz;
+			if (axes) {
+				rx = rx0; ry = ry0; rz = rz0;
+				ux = ux0; uy = uy0; uz = uz0;
+			} else {
+				// tangent plane of the sphere through the sprite
+				double len = Math.sqrt(x * x + y * y + z * z);
+				double nx = x / len, ny = y / len, nz = z / len;
+				// any axis not parallel to the normal
+				double ax = Math.abs(nz) < 0.9 ? 0 : 1, ay = 0, az = Math.abs(nz) < 0.9 ? 1 : 0;
+				rx = ay * nz - az * ny; ry = az * nx - ax * nz; rz = ax * ny - ay * nx;
+				double rlen = Math.sqrt(rx * rx + ry * ry + rz * rz);
+				rx /= rlen; ry /= rlen; rz /= rlen;
+				ux = ny * rz - nz * ry; uy = nz * rx - nx * rz; uz = nx * ry - ny * rx;
+			}
+
+			float h = sizes[i] / 2;
+			int p = i * 12;
+			points[p]      = (float) (x - (rx + ux) * h);
+			points[p + 1]  = (float) (y - (ry + uy) * h);
+			points[p + 2]  = (float) (z - (rz + uz) * h);
+			points[p + 3]  = (float) (x + (rx - ux) * h);
+			points[p + 4]  = (float) (y + (ry - uy) * h);
+			points[p + 5]  = (float) (z + (rz - uz) * h);
+			points[p + 6]  = (float) (x + (rx + ux) * h);
+			points[p + 7]  = (float) (y + (ry + uy) * h);
+			points[p + 8]  = (float) (z + (rz + uz) * h);
+			points[p + 9]  = (float) (x - (rx - ux) * h);
+			points[p + 10] = (float) (y - (ry - uy) * h);
+			points[p + 11] = (float) (z - (rz - uz) * h);
+
+			int t = Math.max(0, Math.min(RAMP_SIZE - 1, Math.round(shades[i] * (RAMP_SIZE - 1))));
+			int v = i * 4;
+			int f = i * 12;
+			faces[f]      = v;     faces[f + 1]  = t;
+			faces[f + 2]  = v + 1; faces[f + 3]  = t;
+			faces[f + 4]  = v + 2; faces[f + 5]  = t;
+			faces[f + 6]  = v;     faces[f + 7]  = t;
+			faces[f + 8]  = v + 2; faces[f + 9]  = t;
+			faces[f + 10] = v + 3; faces[f + 11] = t;
+		}
+
+		mesh.getPoints().setAll(points, 0, count * 12);
+		mesh.getFaces().setAll(faces, 0, count * 12);
+	}
+
+	/**
+	 * Compares the sprites with the ones of the last upload and keeps a copy if they changed
+	 */
+	private boolean changed(float[] positions, float[] sizes, float[] shades, int count, boolean axes,
+			double rx, double ry, double rz, double ux, double uy, double uz) {
+		if (count == 0 && lastCount == 0) return false;
+		boolean changed = count != lastCount || axes != lastAxes || rx != lastAxis[0] || ry != lastAxis[1] || rz != lastAxis[2]
+				|| ux != lastAxis[3] || uy != lastAxis[4] || uz != lastAxis[5];
+		for (int i = 0; !changed && i < count; i++) {
+			changed = sizes[i] != lastSizes[i] || shades[i] != lastShades[i] || positions[i * 3] != lastPositions[i * 3]
+					|| positions[i * 3 + 1] != lastPositions[i * 3 + 1] || positions[i * 3 + 2] != lastPositions[i * 3 + 2];
+		}
+		if (!changed) return false;
+
+		if (lastSizes.length < count) {
+			lastPositions = new float[count * 3];
+			lastSizes = new float[count];
+			lastShades = new float[count];
+		}
+		System.arraycopy(positions, 0, lastPositions, 0, count * 3);
+		System.arraycopy(sizes, 0, lastSizes, 0, count);
+		System.arraycopy(shades, 0, lastShades, 0, count);
+		lastCount = count;
+		lastAxes = axes;
+		lastAxis[0] = rx; lastAxis[1] = ry; lastAxis[2] = rz;
+		lastAxis[3] = ux; lastAxis[4] = uy; lastAxis[5] = uz;
+		return true;
+	}
+
+	/**
+	 * @return the number of sprites in the mesh
+	 */
+	public int getSpriteCount() {
+		return mesh.getPoints().size() / 12;
+	}
+}
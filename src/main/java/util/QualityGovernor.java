@@ -0,0 +1,200 @@
+package util;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Steps the render quality down and up to hold a frame time budget.
+ *
+ * The frame time is the time the pulse of the scene takes from the layout to the end of its frame listeners,
+ * smoothed over a few frames. The interval between two pulses would only show the v-sync rate. Quality drops one level
+ * if the smoothed frame time stays above the budget for a while. It rises one level if the budget is met
+ * for a longer while. A level which had to be left again right after stepping up waits twice as long
+ * before the next try, so the governor does not oscillate between two levels.
+ *
+ * The levels are the presets low, medium and high which are kept in config.properties.
+ */
+public class QualityGovernor {
+	public static final double DEFAULT_FRAME_BUDGET_MS = 1000.0 / 60;
+	public static final String MODE_AUTO = "auto";
+
+	/**
+	 * the frame time must be this factor above the budget to step down, and at most this factor to step up
+	 */
+	private static final double DOWN_FACTOR = 1.2;
+	private static final double UP_FACTOR = 1.05;
+	private static final int DOWN_FRAMES = 30;
+	private static final int UP_FRAMES = 180;
+	private static final int MAX_UP_FRAMES = 3600;
+	/**
+	 * a step down within this many frames after a step up counts as a failed step up
+	 */
+	private static final int FAILED_UP_FRAMES = 300;
+	private static final double SMOOTHING = 0.1;
+
+	/**
+	 * One quality preset
+	 */
+	public static class QualityLevel {
+		public final String name;
+		/**
+		 * factor for the size below which bodies are drawn as impostors or collapsed into their central body
+		 */
+		public final double sphereLodBias;
+		/**
+		 * number of mip levels the textures are loaded below the requested level
+		 */
+		public final int textureLodBias;
+		/**
+		 * 2 all orbits, 1 orbits of the planets only, 0 no orbits
+		 */
+		public final int orbitDetail;
+		/**
+		 * factor for the screen resolution the sky tiles are selected for, 0 to 1
+		 */
+		public final double skyBoxResolution;
+
+		public QualityLevel(String name, double sphereLodBias, int textureLodBias, int orbitDetail, double skyBoxResolution) {
+			this.name = name;
+			this.sphereLodBias = sphereLodBias;
+			this.textureLodBias = textureLodBias;
+			this.orbitDetail = orbitDetail;
+			this.skyBoxResolution = skyBoxResolution;
+		}
+
+		/**
+		 * Reads the preset from config.properties, missing values are set to the given defaults
+		 * so they are stored with the next save
+		 */
+		static QualityLevel load(QualityLevel defaults) {
+			ResourceLoader rl = ResourceLoader.getInstance();
+			String prefix = "quality." + defaults.name + ".";
+			QualityLevel level = new QualityLevel(defaults.name,
+					rl.getDoubleProperty(prefix + "sphere.lod.bias", defaults.sphereLodBias),
+					rl.getIntProperty(prefix + "texture.lod.bias", defaults.textureLodBias),
+					rl.getIntProperty(prefix + "orbit.detail", defaults.orbitDetail),
+					rl.getDoubleProperty(prefix + "skybox.resolution", defaults.skyBoxResolution));
+			rl.setProperty(prefix + "sphere.lod.bias", String.valueOf(level.sphereLodBias));
+			rl.setProperty(prefix + "texture.lod.bias", String.valueOf(level.textureLodBias));
+			rl.setProperty(prefix + "orbit.detail", String.valueOf(level.orbitDetail));
+			rl.setProperty(prefix + "skybox.resolution", String.valueOf(level.skyBoxResolution));
+			return level;
+		}
+
+		@Override
+		public String toString() {
+			return name;
+		}
+	}
+
+	public static final QualityLevel LOW = new QualityLevel("low", 4, 2, 0, 0.25);
+	public static final QualityLevel MEDIUM = new QualityLevel("medium", 2, 1, 1, 0.5);
+	public static final QualityLevel HIGH = new QualityLevel("high", 1, 0, 2, 1);
+
+	private final QualityLevel[] levels;
+	private final boolean adaptive;
+	private final double budgetNanos;
+	private final List<Consumer<QualityLevel>> listeners = new CopyOnWriteArrayList<>();
+
+	private int level;
+	private double frameTime = 0;
+	private int slowFrames = 0;
+	private int fastFrames = 0;
+	private int framesSinceStepUp = Integer.MAX_VALUE;
+	private int upFrames = UP_FRAMES;
+	private long stepCount = 0;
+
+	/**
+	 * Reads the presets, the mode ("auto", "low", "medium" or "high") and the frame budget from config.properties
+	 */
+	public QualityGovernor() {
+		ResourceLoader rl = ResourceLoader.getInstance();
+		levels = new QualityLevel[] { QualityLevel.load(LOW), QualityLevel.load(MEDIUM), QualityLevel.load(HIGH) };
+		budgetNanos = rl.getDoubleProperty("quality.frame.budget.ms", DEFAULT_FRAME_BUDGET_MS) * 1e6;
+
+		String mode = rl.getProperty("quality.mode", MODE_AUTO);
+		int fixed = -1;
+		for (int i = 0; i < levels.length; i++) {
+			if (levels[i].name.equals(mode)) fixed = i;
+		}
+		adaptive = fixed < 0;
+		level = adaptive ? levels.length - 1 : fixed;
+	}
+
+	/**
+	 * Adds a listener which is called with the current level at once and whenever the level changes
+	 */
+	public void addListener(Consumer<QualityLevel> listener) {
+		listeners.add(listener);
+		listener.accept(getLevel());
+	}
+
+	public void removeListener(Consumer<QualityLevel> listener) {
+		listeners.remove(listener);
+	}
+
+	/**
+	 * Called by the scene at the end of each pulse
+	 * @param pulseTime the time of the pulse in nanoseconds
+	 */
+	public void recordPulse(long pulseTime) {
+		if (!adaptive || pulseTime <= 0) return;
+		// a single very long pulse e.g. while a window is opened or a texture is decoded is no sign of load
+		if (pulseTime > budgetNanos * 20) return;
+
+		frameTime = frameTime == 0 ? pulseTime : frameTime + (pulseTime - frameTime) * SMOOTHING;
+		if (framesSinceStepUp < Integer.MAX_VALUE) framesSinceStepUp++;
+
+		slowFrames = frameTime > budgetNanos * DOWN_FACTOR ? slowFrames + 1 : 0;
+		fastFrames = frameTime <= budgetNanos * UP_FACTOR ? fastFrames + 1 : 0;
+
+		if (slowFrames >= DOWN_FRAMES && level > 0) {
+			if (framesSinceStepUp < FAILED_UP_FRAMES) {
+				upFrames = Math.min(MAX_UP_FRAMES, upFrames * 2);
+			}
+			setLevel(level - 1);
+		} else if (fastFrames >= upFrames && level < levels.length - 1) {
+			setLevel(level + 1);
+			framesSinceStepUp = 0;
+		}
+	}
+
+	private void setLevel(int level) {
+		this.level = level;
+		slowFrames = 0;
+		fastFrames = 0;
+		stepCount++;
+		QualityLevel current = getLevel();
+		Log.SCENE.info("(QualityGovernor) quality/frame time ms: ", current, frameTime / 1e6);
+		for (Consumer<QualityLevel> listener : listeners) {
+			listener.accept(current);
+		}
+	}
+
+	public QualityLevel getLevel() {
+		return levels[level];
+	}
+
+	/**
+	 * @return the smoothed frame time in milliseconds
+	 */
+	public double getFrameTime() {
+		return frameTime / 1e6;
+	}
+
+	public double getFrameBudget() {
+		return budgetNanos / 1e6;
+	}
+
+	public boolean isAdaptive() {
+		return adaptive;
+	}
+
+	/**
+	 * @return the number of quality changes so far
+	 */
+	public long getStepCount() {
+		return stepCount;
+	}
+}
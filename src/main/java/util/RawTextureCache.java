@@ -0,0 +1,261 @@
+package util;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javafx.scene.image.Image;
+import javafx.scene.image.PixelBuffer;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.PixelReader;
+import javafx.scene.image.WritableImage;
+
+/**
+ * On-disk cache of decoded textures.
+ *
+ * Each texture is stored as raw premultiplied BGRA pixels in its own file with a small versioned header.
+ * Cached textures are memory mapped and wrapped in a PixelBuffer so they are shown without any decoding
+ * or copying on the Java heap.
+ *
+ * File layout (big endian):
+ * <pre>
+ *  0  int   magic 'SSTX'
+ *  4  int   format version
+ *  8  int   width
+ * 12  int   height
+ * 16  int   pixel format (1 = BYTE_BGRA_PRE)
+ * 20  int   LOD level
+ * 24  long  last modified time of the source resource
+ * 32  long  length of the source resource
+ * 40  ...   reserved up to HEADER_SIZE
+ * 64  byte[width * height * 4] pixels
+ * </pre>
+ *
+ * An entry is stale if the version or the source stamp does not match, stale or missing entries are
+ * (re)built on a background thread from the decoded image.
+ */
+public class RawTextureCache {
+	public static final String DEFAULT_DIRECTORY = "texture-cache";
+
+	private static final int MAGIC = 0x53535458;
+	private static final int FORMAT_VERSION = 2;
+	private static final int PIXEL_FORMAT_BYTE_BGRA_PRE = 1;
+	private static final int HEADER_SIZE = 64;
+
+	private final File directory;
+
+	/**
+	 * Single low priority thread for writing cache files, we don't want to compete with the texture decodes
+	 */
+	private final ExecutorService writer = Executors.newSingleThreadExecutor(r -> {
+		Thread t = new Thread(r, "RawTextureCache-writer");
+		t.setDaemon(true);
+		t.setPriority(Thread.MIN_PRIORITY);
+		return t;
+	});
+
+	/**
+	 * Files currently being written, so a texture requested twice is only written once
+	 */
+	private final Set<String> pendingWrites = ConcurrentHashMap.newKeySet();
+
+	public RawTextureCache(File directory) {
+		this.directory = directory;
+	}
+
+	/**
+	 * Returns the memory mapped texture if the cache holds an up to date entry for the source.
+	 *
+	 * @param resource the resource name
+	 * @param lod the LOD level of the texture
+	 * @param source the URL of the source resource, used for the staleness check
+	 * @return the mapped texture or null if there is no valid entry
+	 */
+	public Image load(String resource, int lod, URL source) {
+		File file = fileFor(resource, lod);
+		if (!file.isFile()) return null;
+
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.BIG_ENDIAN);
+			while (header.hasRemaining()) {
+				if (channel.read(header) < 0) return null;
+			}
+			header.flip();
+			if (header.getInt() != MAGIC || header.getInt() != FORMAT_VERSION) return null;
+			int width = header.getInt();
+			int height = header.getInt();
+			if (header.getInt() != PIXEL_FORMAT_BYTE_BGRA_PRE || header.getInt() != lod) return null;
+			long lastModified = header.getLong();
+			long length = header.getLong();
+			long[] stamp = sourceStamp(source);
+			if (stamp == null || stamp[0] != lastModified || stamp[1] != length) return null;
+
+			long pixelBytes = (long) width * height * 4;
+			if (width <= 0 || height <= 0 || channel.size() < HEADER_SIZE + pixelBytes) return null;
+
+			// the pages are shared with the file cache, nothing writes to the pixels so the cache may be read only
+			MappedByteBuffer pixels = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE, pixelBytes);
+			PixelBuffer<ByteBuffer> buffer = new PixelBuffer<>(width, height, pixels, PixelFormat.getByteBgraPreInstance());
+			return new WritableImage(buffer);
+		} catch (IOException | RuntimeException e) {
+			e.printStackTrace();
+			return null;
+		}
+	}
+
+	/**
+	 * Writes the decoded texture to the cache on the background writer thread.
+	 * An existing stale entry is replaced.
+	 *
+	 * @param resource the resource name
+	 * @param lod the LOD level of the texture
+	 * @param source the URL of the source resource, its stamp is written to the header
+	 * @param img the decoded texture
+	 */
+	public void storeAsync(String resource, int lod, URL source, Image img) {
+		File file = fileFor(resource, lod);
+		String key = file.getPath();
+		if (!pendingWrites.add(key)) return;
+
+		writer.execute(() -> {
+			try {
+				store(file, lod, source, img);
+			} catch (IOException | RuntimeException e) {
+				e.printStackTrace();
+			} finally {
+				pendingWrites.remove(key);
+			}
+		});
+	}
+
+	private void store(File file, int lod, URL source, Image img) throws IOException {
+		PixelReader reader = img.getPixelReader();
+		long[] stamp = sourceStamp(source);
+		if (reader == null || stamp == null) return;
+
+		int width = (int) img.getWidth();
+		int height = (int) img.getHeight();
+
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("Can't create texture cache directory " + directory);
+		}
+
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.BIG_ENDIAN);
+		header.putInt(MAGIC).putInt(FORMAT_VERSION).putInt(width).putInt(height)
+				.putInt(PIXEL_FORMAT_BYTE_BGRA_PRE).putInt(lod).putLong(stamp[0]).putLong(stamp[1]);
+		header.clear();
+
+		// write line by line so we never need a second full copy of the texture on the heap
+		byte[] line = new byte[width * 4];
+		ByteBuffer lineBuffer = ByteBuffer.wrap(line);
+
+		File tmp = new File(file.getPath() + ".tmp");
+		try {
+			try (FileChannel channel = FileChannel.open(tmp.toPath(), StandardOpenOption.CREATE,
+					StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+				while (header.hasRemaining()) channel.write(header);
+				for (int y = 0; y < height; y++) {
+					reader.getPixels(0, y, width, 1, PixelFormat.getByteBgraPreInstance(), line, 0, width * 4);
+					lineBuffer.clear();
+					while (lineBuffer.hasRemaining()) channel.write(lineBuffer);
+				}
+			}
+			Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			// a failed write leaves no partial file behind
+			Files.deleteIfExists(tmp.toPath());
+		}
+	}
+
+	/**
+	 * Writes a texture given as raw premultiplied BGRA pixels to the cache on the calling thread.
+	 * Used for textures which are generated rather than decoded, e.g. sky tiles.
+	 *
+	 * @param resource the resource name of the generated texture
+	 * @param lod the LOD level of the texture
+	 * @param source the URL of the resource the texture was generated from
+	 * @param width the width in pixels
+	 * @param height the height in pixels
+	 * @param pixels width * height * 4 bytes of BGRA_PRE pixels
+	 */
+	public void store(String resource, int lod, URL source, int width, int height, byte[] pixels) throws IOException {
+		long[] stamp = sourceStamp(source);
+		if (stamp == null) return;
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("Can't create texture cache directory " + directory);
+		}
+		File file = fileFor(resource, lod);
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.BIG_ENDIAN);
+		header.putInt(MAGIC).putInt(FORMAT_VERSION).putInt(width).putInt(height)
+				.putInt(PIXEL_FORMAT_BYTE_BGRA_PRE).putInt(lod).putLong(stamp[0]).putLong(stamp[1]);
+		header.clear();
+
+		File tmp = new File(file.getPath() + ".tmp");
+		try {
+			try (FileChannel channel = FileChannel.open(tmp.toPath(), StandardOpenOption.CREATE,
+					StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+				while (header.hasRemaining()) channel.write(header);
+				ByteBuffer data = ByteBuffer.wrap(pixels, 0, width * height * 4);
+				while (data.hasRemaining()) channel.write(data);
+			}
+			Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(tmp.toPath());
+		}
+	}
+
+	/**
+	 * @return true if an up to date entry exists for the resource
+	 */
+	public boolean isValid(String resource, int lod, URL source) {
+		File file = fileFor(resource, lod);
+		if (!file.isFile()) return false;
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.BIG_ENDIAN);
+			while (header.hasRemaining()) {
+				if (channel.read(header) < 0) return false;
+			}
+			header.flip();
+			if (header.getInt() != MAGIC || header.getInt() != FORMAT_VERSION) return false;
+			header.getInt();
+			header.getInt();
+			if (header.getInt() != PIXEL_FORMAT_BYTE_BGRA_PRE || header.getInt() != lod) return false;
+			long[] stamp = sourceStamp(source);
+			return stamp != null && stamp[0] == header.getLong() && stamp[1] == header.getLong();
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	private File fileFor(String resource, int lod) {
+		String name = resource.replaceAll("[^A-Za-z0-9._-]", "_");
+		return new File(directory, name + "." + lod + ".bgra");
+	}
+
+	/**
+	 * @return last modified time and length of the source or null if it can't be determined
+	 */
+	private static long[] sourceStamp(URL source) {
+		if (source == null) return null;
+		try {
+			URLConnection connection = source.openConnection();
+			long[] stamp = new long[] { connection.getLastModified(), connection.getContentLengthLong() };
+			connection.getInputStream().close();
+			return stamp;
+		} catch (IOException e) {
+			return null;
+		}
+	}
+}
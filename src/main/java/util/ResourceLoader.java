@@ -1,15 +1,35 @@
 package util;
 
+import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.URL;
+import java.util.Iterator;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+
+import javafx.application.Platform;
 import javafx.scene.image.Image;
+import javafx.scene.paint.Color;
+import javafx.scene.paint.PhongMaterial;
 
 /**
  * ResourceLoader provides the basic functionality to load and save property data
@@ -23,13 +43,61 @@ import javafx.scene.image.Image;
 public class ResourceLoader {
 	private final static ResourceLoader instance = new ResourceLoader();
 
+	/**
+	 * Number of worker threads used to decode images in the background if not set in config.properties
+	 */
+	private static final int DEFAULT_LOADER_THREADS = 2;
+
+	/**
+	 * Color of the placeholder material shown until the real texture is decoded
+	 */
+	public static final Color PLACEHOLDER_COLOR = Color.gray(0.35);
+
 	private Properties properties = new Properties();
 	private OutputStream out = null;
 	private FileInputStream in = null;
 
+	/**
+	 * Bounded pool of daemon threads which decode the images requested by {@link #loadImageAsync(Consumer, String...)}
+	 */
+	private final ExecutorService imageLoader;
+
+	/**
+	 * All decodes which are not finished yet, used by {@link #awaitPendingImages(long, TimeUnit)}
+	 */
+	private final Set<CompletableFuture<Image>> pendingImages = ConcurrentHashMap.newKeySet();
+
+	/**
+	 * LRU cache for all decoded textures and the materials using them
+	 */
+	private final TextureCache textureCache;
+
+	/**
+	 * On-disk cache of pre-decoded textures, null if disabled
+	 */
+	private final RawTextureCache rawTextureCache;
 
 	private ResourceLoader() {
 		load();
+		int threads = getIntProperty("resource.loader.threads", DEFAULT_LOADER_THREADS);
+		imageLoader = Executors.newFixedThreadPool(Math.max(1, threads), new ThreadFactory() {
+			private final AtomicInteger count = new AtomicInteger();
+
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "ResourceLoader-" + count.incrementAndGet());
+				t.setDaemon(true);
+				t.setPriority(Thread.NORM_PRIORITY - 1);
+				return t;
+			}
+		});
+		textureCache = new TextureCache(getIntProperty("texture.cache.budget.mb", TextureCache.DEFAULT_BUDGET_MB) * 1024L * 1024L,
+				getIntProperty("texture.max.width", TextureCache.DEFAULT_MAX_TEXTURE_WIDTH));
+		if (Boolean.parseBoolean(getProperty("texture.rawcache.enabled", "true"))) {
+			rawTextureCache = new RawTextureCache(new File(getProperty("texture.rawcache.dir", RawTextureCache.DEFAULT_DIRECTORY)));
+		} else {
+			rawTextureCache = null;
+		}
 	}
 
 	public synchronized static ResourceLoader getInstance() {
@@ -38,13 +106,37 @@ public class ResourceLoader {
 	
 	public static String getResource(Object o, String name) {
 		URL url = o.getClass().getResource(name);
-		System.out.println("URL:" + url);
+		Log.RESOURCES.debug("URL: ", url);
 		return url.toExternalForm();
 	}
 	
 	public String getProperty(String key) {
 		return properties.getProperty(key, "DEFAULT");
 	}
+	public String getProperty(String key, String defaultValue) {
+		return properties.getProperty(key, defaultValue);
+	}
+
+	/**
+	 * Returns the property as int, the default value is returned if the property is missing or no valid number
+	 */
+	public int getIntProperty(String key, int defaultValue) {
+		try {
+			return Integer.parseInt(properties.getProperty(key, "").trim());
+		} catch (NumberFormatException e) {
+			return defaultValue;
+		}
+	}
+	/**
+	 * Returns the property as double, the default value is returned if the property is missing or no valid number
+	 */
+	public double getDoubleProperty(String key, double defaultValue) {
+		try {
+			return Double.parseDouble(properties.getProperty(key, "").trim());
+		} catch (NumberFormatException e) {
+			return defaultValue;
+		}
+	}
 	public void setProperty(String key, String value) {
 		properties.setProperty(key, value);
 	}
@@ -52,26 +144,61 @@ public class ResourceLoader {
 	/**
 	 * Loads an Image file from file system
 	 * 
+	 * The image is taken from the texture cache if it was loaded before.
 	 * May return null if image was not found
 	 * @param resource
 	 * @return
 	 */
 	public Image loadImage(String resource) {
+		return textureCache.getImage(resource, 0);
+	}
+
+	/**
+	 * Decodes an Image file without looking at the texture cache.
+	 * For a LOD level above 0 the image is decoded with the width halved for each level.
+	 * 
+	 * May return null if image was not found
+	 * @param resource
+	 * @param lod the LOD level, 0 for the full resolution
+	 * @return
+	 */
+	@SuppressWarnings("try")
+	Image decodeImage(String resource, int lod) {
+		try (StartupTrace.Span span = StartupTrace.begin("decodeImage", "texture", resource)) {
+			return decodeImage(resource, lod, System.nanoTime());
+		}
+	}
+
+	private Image decodeImage(String resource, int lod, long start) {
+		FlightEvents.ImageDecodeEvent event = new FlightEvents.ImageDecodeEvent();
+		event.begin();
 		Image img = null;
     	InputStream in = null;
+    	URL url = getResourceURL(resource);
 
-    	try {
-			in = getResourceAsStream(resource);
-		} catch (FileNotFoundException e1) {
+    	if (url == null) {
 			// not serious as we expect some files not to be found *,jpg or *.png
-			// we throw this exception - no need to handle it here
-		}
+            Log.RESOURCES.debug("Resource not found: ", resource);
+    		return img;
+    	}
 
-    	if (in == null) return img;
+    	// pre-decoded textures are mapped straight from disk
+    	if (rawTextureCache != null) {
+    		img = rawTextureCache.load(resource, lod, url);
+    		if (img != null) {
+    			commitDecodeEvent(event, resource, lod, img, true);
+    			return img;
+    		}
+    	}
         
     	try {
-        	img = new Image(in);
-        } catch (IllegalArgumentException|NullPointerException e) {
+    		in = url.openStream();
+    		if (lod == 0) {
+    			img = new Image(in);
+    		} else {
+    			img = new Image(in, lodWidth(resource, url, lod), 0, true, true);
+    		}
+        } catch (IOException|IllegalArgumentException|NullPointerException e) {
 			e.printStackTrace();
 		} finally {
 			if (in != null) {
@@ -82,31 +209,218 @@ public class ResourceLoader {
 				}
 			}
 		}
+
+    	// missing or stale cache entry - rebuild it in the background
+    	if (img != null && !img.isError() && rawTextureCache != null) {
+    		rawTextureCache.storeAsync(resource, lod, url, img);
+    	}
+    	Metrics.getInstance().histogram(Metrics.TEXTURE_DECODE).record(System.nanoTime() - start);
+    	commitDecodeEvent(event, resource, lod, img, false);
 		return img;
 	}
 
 	/**
-	 * loads resources depending on the given resource String
+	 * The width of a LOD level is the width of the source halved for each level like the mips built by
+	 * {@link TextureCache#downsample(Image)}, capped at texture.max.width.
+	 * The source width is taken from the cached full resolution texture or else from the image header.
+	 */
+	private int lodWidth(String resource, URL url, int lod) {
+		Image full = textureCache.peekImage(resource, 0);
+		int width = full != null ? (int) full.getWidth() : readWidth(url);
+		if (width <= 0) width = textureCache.getMaxTextureWidth();
+		return Math.max(1, Math.min(width >> lod, textureCache.getMaxTextureWidth()));
+	}
+
+	/**
+	 * Reads the width of an image from its header without decoding the pixels
+	 * 
+	 * @return the width or 0 if the format is unknown
+	 */
+	private static int readWidth(URL url) {
+		try (InputStream in = url.openStream(); ImageInputStream stream = ImageIO.createImageInputStream(in)) {
+			if (stream == null) return 0;
+			Iterator<ImageReader> readers = ImageIO.getImageReaders(stream);
+			if (!readers.hasNext()) return 0;
+			ImageReader reader = readers.next();
+			try {
+				reader.setInput(stream, true, true);
+				return reader.getWidth(0);
+			} finally {
+				reader.dispose();
+			}
+		} catch (IOException e) {
+			return 0;
+		}
+	}
+
+	private static void commitDecodeEvent(FlightEvents.ImageDecodeEvent event, String resource, int lod, Image img, boolean rawCache) {
+		event.end();
+		if (!event.shouldCommit()) return;
+		event.resource = resource;
+		event.lod = lod;
+		event.rawCache = rawCache;
+		if (img != null && !img.isError()) {
+			event.width = (int) img.getWidth();
+			event.height = (int) img.getHeight();
+			event.bytes = 4L * event.width * event.height;
+		}
+		event.commit();
+	}
+
+	/**
+	 * @return the on-disk cache of pre-decoded textures, null if disabled in config.properties
+	 */
+	public RawTextureCache getRawTextureCache() {
+		return rawTextureCache;
+	}
+
+	/**
+	 * @return the cache for all textures and materials loaded by this ResourceLoader
+	 */
+	public TextureCache getTextureCache() {
+		return textureCache;
+	}
+
+	/**
+	 * @return the pool of background loader threads, used for other background loads like sky tiles
+	 */
+	ExecutorService getImageLoader() {
+		return imageLoader;
+	}
+
+	/**
+	 * Creates a plain material which is shown until the texture loaded with
+	 * {@link #loadImageAsync(Consumer, String...)} is swapped in.
+	 * 
+	 * @return a new material without any maps
+	 */
+	public PhongMaterial createPlaceholderMaterial() {
+		PhongMaterial material = new PhongMaterial();
+		material.setDiffuseColor(PLACEHOLDER_COLOR);
+		return material;
+	}
+
+	/**
+	 * Loads an Image file on one of the background loader threads and returns at once.
+	 * 
+	 * The resources are tried in the given order, the first one found is decoded.
+	 * Once the image is decoded the consumer is called on the FX Application thread so it can
+	 * swap the image into a material which is already part of the scene graph.
+	 * The consumer is not called if none of the resources was found.
+	 * 
+	 * The returned future completes after the consumer has been called, so it must not be waited on
+	 * from the FX Application thread.
+	 * 
+	 * @param onFxThread called on the FX Application thread with the decoded image, may be null
+	 * @param resources the resource names to try in the given order
+	 * @return the future for the decoded image, completes with null if no resource was found
+	 */
+	public CompletableFuture<Image> loadImageAsync(Consumer<Image> onFxThread, String... resources) {
+		return loadImageAsync(0, onFxThread == null ? null : (resource, img) -> onFxThread.accept(img), resources);
+	}
+
+	/**
+	 * Loads an Image file of the given LOD level through the texture cache on one of the background loader threads.
+	 * The consumer gets the name of the resource which was found together with the image.
+	 * 
+	 * @see #loadImageAsync(Consumer, String...)
+	 */
+	CompletableFuture<Image> loadImageAsync(int lod, BiConsumer<String, Image> onFxThread, String... resources) {
+		String[] found = new String[1];
+		CompletableFuture<Image> decode = CompletableFuture.supplyAsync(() -> {
+			for (String resource : resources) {
+				Image img = textureCache.getImage(resource, lod);
+				if (img != null) {
+					found[0] = resource;
+					return img;
+				}
+			}
+			return null;
+		}, imageLoader);
+
+		pendingImages.add(decode);
+		decode.whenComplete((img, e) -> pendingImages.remove(decode));
+
+		if (onFxThread == null) return decode;
+
+		CompletableFuture<Image> applied = new CompletableFuture<>();
+		decode.whenComplete((img, e) -> {
+			if (e != null) {
+				applied.completeExceptionally(e);
+				return;
+			}
+			runOnFxThread(() -> {
+				try {
+					if (img != null) onFxThread.accept(found[0], img);
+					applied.complete(img);
+				} catch (RuntimeException re) {
+					applied.completeExceptionally(re);
+				}
+			});
+		});
+		return applied;
+	}
+
+	/**
+	 * Blocks until all images requested so far are decoded.
+	 * The swaps into the materials are queued on the FX Application thread at that point and
+	 * will run as soon as the FX Application thread is available.
+	 * 
+	 * @return false if the timeout elapsed before all images were decoded
+	 */
+	public boolean awaitPendingImages(long timeout, TimeUnit unit) throws InterruptedException {
+		CompletableFuture<?>[] pending = pendingImages.toArray(new CompletableFuture<?>[0]);
+		try {
+			CompletableFuture.allOf(pending).get(timeout, unit);
+		} catch (ExecutionException e) {
+			// a failed decode is reported by its own future, we only wait for completion here
+		} catch (TimeoutException e) {
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Number of images which are still being decoded
+	 */
+	public int getPendingImageCount() {
+		return pendingImages.size();
+	}
+
+	/**
+	 * Runs the given task on the FX Application thread.
+	 * If the FX toolkit is not running (e.g. headless usage) the task is run directly.
+	 */
+	public static void runOnFxThread(Runnable task) {
+		if (Platform.isFxApplicationThread()) {
+			task.run();
+			return;
+		}
+		try {
+			Platform.runLater(task);
+		} catch (IllegalStateException e) {
+			task.run();
+		}
+	}
+
+	/**
+	 * Finds the URL of a resource depending on the given resource String
 	 * First the ClassLoader is tried without any leading '/'
 	 * next the Class itself tries to load from absolute path
 	 * 
-	 * @throws FileNotFoundException if the resource is not found
+	 * @return the URL or null if the resource was not found
 	 */
-	private InputStream getResourceAsStream(String resource) throws FileNotFoundException {
+	public URL getResourceURL(String resource) {
 	    String stripped = resource.startsWith("/") ? resource.substring(1) : resource;
-	    InputStream stream = null;
+	    URL url = null;
 	    ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
 	    if (classLoader != null) {
-	        stream = classLoader.getResourceAsStream(stripped);
-	    }
-	    if (stream == null) {
-	        stream = getClass().getResourceAsStream(resource);
+	        url = classLoader.getResource(stripped);
 	    }
-	    if (stream == null) {
-            System.out.println("Resource: " + resource);
-	        throw new FileNotFoundException("File not found: " + resource);
+	    if (url == null) {
+	        url = getClass().getResource(resource);
 	    }
-	    return stream;
+	    return url;
 	}
 
 	/**
@@ -2,7 +2,6 @@ package util;
 
 import javafx.beans.property.DoubleProperty;
 import javafx.beans.property.SimpleDoubleProperty;
-import javafx.geometry.Bounds;
 import javafx.geometry.Point3D;
 import javafx.scene.shape.Sphere;
 import javafx.scene.transform.Rotate;
@@ -28,11 +27,35 @@ public class RotationContext {
 	private final DoubleProperty pivotZ = new SimpleDoubleProperty(0);
 
 	private Sphere pivot = null;
+
+	/**
+	 * World positions of the bodies, the pivot sphere is looked up here instead of walking the transform chain
+	 */
+	private WorldTransformCache worldTransforms = null;
+	private final double[] center = new double[3];
 	
 	private Rotate rotateX; 
 	private Rotate rotateY; 
 	private Rotate rotateZ; 
 
+	public void setWorldTransformCache(WorldTransformCache worldTransforms) {
+		this.worldTransforms = worldTransforms;
+	}
+
+	/**
+	 * Center of the pivot sphere in scene coordinates written to the center array
+	 */
+	private void updatePivotCenter() {
+		if (worldTransforms != null) {
+			worldTransforms.localToWorld(pivot, 0, 0, 0, center);
+			return;
+		}
+		Point3D p = CoordinateHelper.centerOfBounds(pivot.localToScene(pivot.getBoundsInLocal()));
+		center[0] = p.getX();
+		center[1] = p.getY();
+		center[2] = p.getZ();
+	}
+
 	public void setAngle(double x, double y, double z) {
 		angleX.set(x);
 		angleY.set(y);
@@ -114,11 +137,8 @@ public class RotationContext {
 			return;
 		}
 		
-		Bounds localBounds = s.getBoundsInLocal();
-		Bounds sceneBounds = s.localToScene(localBounds);
-		Point3D p = CoordinateHelper.centerOfBounds(sceneBounds);
-		
-		setPivot(p.getX(), p.getY(), p.getZ());
+		updatePivotCenter();
+		setPivot(center[0], center[1], center[2]);
 		
 //		pivotX.set(p.getX());
 //		pivotY.set(p.getY());
@@ -144,7 +164,8 @@ public class RotationContext {
 			
 //			Debug.out("(getPivot)", " center: ", p);
 
-			return CoordinateHelper.centerOfBounds(pivot.localToScene(pivot.getBoundsInLocal()));
+			updatePivotCenter();
+			return new Point3D(center[0], center[1], center[2]);
 		}
 		return new Point3D(pivotX.get(), pivotY.get(), pivotZ.get());
 	}
@@ -155,21 +176,24 @@ public class RotationContext {
 
 	public double getPivotX() {
 		if (this.pivot != null) {
-			return CoordinateHelper.centerOfBounds(pivot.localToScene(pivot.getBoundsInLocal())).getX();
+			updatePivotCenter();
+			return center[0];
 		}
 		return pivotX.get();
 	}
 
 	public double getPivotY() {
 		if (this.pivot != null) {
-			return CoordinateHelper.centerOfBounds(pivot.localToScene(pivot.getBoundsInLocal())).getY();
+			updatePivotCenter();
+			return center[1];
 		}
 		return pivotY.get();
 	}
 
 	public double getPivotZ() {
 		if (this.pivot != null) {
-			return CoordinateHelper.centerOfBounds(pivot.localToScene(pivot.getBoundsInLocal())).getZ();
+			updatePivotCenter();
+			return center[2];
 		}
 		return pivotZ.get();
 	}
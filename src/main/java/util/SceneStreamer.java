@@ -0,0 +1,265 @@
+package util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import javafx.scene.Node;
+
+/**
+ * Attaches and detaches subtrees of the scene graph depending on the distance of the camera.
+ *
+ * Every entry is a group of nodes which is created and destroyed together by its callbacks, e.g. a planet with its
+ * moons, rings and orbits. The distance is measured from the camera to the center of the entry, which moves
+ * relative to its anchor node, and compared with a load and an unload radius, both given in multiples of the radius
+ * of the entry so the streaming scales with the size of the subsystem. The unload radius is the larger one so an
+ * entry does not toggle at the border.
+ *
+ * An entry inside the load radius is first prepared on one of the background loader threads (e.g. its textures
+ * are decoded) and then attached on the FX Application thread. Outside the unload radius it is detached and
+ * released at once. A detached entry has no nodes at all, every entry starts detached.
+ *
+ * The attached entries are tested every frame, the detached ones in turns of DETACHED_BUDGET entries per frame so a
+ * catalog with millions of bodies costs the same per frame as a small one. A detached entry far away from the shell
+ * its center moves in around the anchor is skipped without locating it.
+ */
+public class SceneStreamer {
+	private static final int DETACHED = 0;
+	private static final int PREPARING = 1;
+	private static final int ATTACHED = 2;
+
+	/**
+	 * Number of detached entries tested per frame
+	 */
+	private static final int DETACHED_BUDGET = 16384;
+
+	/**
+	 * Callbacks of an entry
+	 */
+	public interface Streamable {
+		/**
+		 * Called on the FX Application thread for the center of the entry in the coordinates of the anchor,
+		 * the entry has no nodes while it is detached. The default is the origin of the anchor.
+		 *
+		 * @param center receives x, y and z
+		 */
+		default void locate(double[] center) {
+			center[0] = center[1] = center[2] = 0;
+		}
+		/**
+		 * Called on a background thread before the entry is attached
+		 */
+		void prepare();
+		/**
+		 * Called on the FX Application thread to create the nodes and add them to the scene graph
+		 */
+		void attach();
+		/**
+		 * Called on the FX Application thread to remove the nodes from the scene graph and release them
+		 */
+		void detach();
+	}
+
+	private final WorldTransformCache worldTransforms;
+	private final double loadFactor;
+	private final double unloadFactor;
+
+	private final List<Node> anchors = new ArrayList<>();
+	private final List<Streamable> streamables = new ArrayList<>();
+	private double[] radii = new double[16];
+	private double[] minReaches = new double[16];
+	private double[] maxReaches = new double[16];
+	private int[] states = new int[16];
+	private boolean[] wanted = new boolean[16];
+
+	/**
+	 * The entries which are preparing or attached, they are tested every frame
+	 */
+	private int[] active = new int[16];
+	private int activeCount = 0;
+	private int attachedCount = 0;
+	/**
+	 * The next detached entry to test
+	 */
+	private int cursor = 0;
+
+	/**
+	 * World transform of the anchor of the last tested entry, the entries of an anchor are usually added together
+	 */
+	private Node lastAnchor = null;
+	private final double[] matrix = new double[AffineMath.SIZE];
+	private double anchorScale = 1;
+	private final double[] center = new double[3];
+	private final double[] world = new double[3];
+	private long prepared = 0;
+
+	/**
+	 * @param worldTransforms the cache used for the positions of the anchors, the anchors must be tracked
+	 * @param loadFactor entries closer than this multiple of their radius are attached
+	 * @param unloadFactor entries farther than this multiple of their radius are detached
+	 */
+	public SceneStreamer(WorldTransformCache worldTransforms, double loadFactor, double unloadFactor) {
+		this.worldTransforms = worldTransforms;
+		this.loadFactor = loadFactor;
+		this.unloadFactor = Math.max(loadFactor, unloadFactor);
+	}
+
+	/**
+	 * Adds an entry, its nodes are created once the camera comes close
+	 *
+	 * @param anchor the node the center of the entry is located in, it is not streamed itself
+	 * @param radius the radius of the entry in the coordinates of the anchor
+	 * @param minReach the smallest distance of the center of the entry from the origin of the anchor
+	 * @param maxReach the largest distance of the center of the entry from the origin of the anchor
+	 * @param streamable the callbacks creating and releasing the nodes
+	 * @return the index of the entry
+	 */
+	public int add(Node anchor, double radius, double minReach, double maxReach, Streamable streamable) {
+		int i = anchors.size();
+		if (i == radii.length) {
+			radii = Arrays.copyOf(radii, i * 2);
+			minReaches = Arrays.copyOf(minReaches, i * 2);
+			maxReaches = Arrays.copyOf(maxReaches, i * 2);
+			states = Arrays.copyOf(states, i * 2);
+			wanted = Arrays.copyOf(wanted, i * 2);
+		}
+		anchors.add(anchor);
+		streamables.add(streamable);
+		radii[i] = radius;
+		minReaches[i] = minReach;
+		maxReaches[i] = maxReach;
+		states[i] = DETACHED;
+		wanted[i] = false;
+		return i;
+	}
+
+	/**
+	 * Compares the distance of the entries with the load and unload radius, called once per frame
+	 * after the world transforms were updated
+	 *
+	 * @param x camera x in world coordinates
+	 * @param y camera y in world coordinates
+	 * @param z camera z in world coordinates
+	 */
+	public void update(double x, double y, double z) {
+		lastAnchor = null;
+		// backwards as a detached entry is replaced by the last active one
+		for (int a = activeCount - 1; a >= 0; a--) {
+			update(active[a], x, y, z);
+		}
+		int count = Math.min(anchors.size(), DETACHED_BUDGET);
+		for (int n = 0; n < count; n++) {
+			if (cursor >= anchors.size()) cursor = 0;
+			int i = cursor++;
+			if (states[i] == DETACHED) update(i, x, y, z);
+		}
+	}
+
+	private void update(int i, double x, double y, double z) {
+		boolean want = isWanted(i, x, y, z);
+		wanted[i] = want;
+
+		if (want && states[i] == DETACHED) {
+			prepare(i);
+		} else if (!want && states[i] == ATTACHED) {
+			detach(i);
+		}
+	}
+
+	private boolean isWanted(int i, double x, double y, double z) {
+		Node anchor = anchors.get(i);
+		// the anchor itself was streamed out
+		if (anchor.getScene() == null) return false;
+		if (anchor != lastAnchor) {
+			worldTransforms.getWorldTransform(anchor, matrix);
+			anchorScale = AffineMath.maxScale(matrix, 0);
+			lastAnchor = anchor;
+		}
+		double limit = radii[i] * anchorScale * (wanted[i] ? unloadFactor : loadFactor);
+		double dx = matrix[3] - x, dy = matrix[7] - y, dz = matrix[11] - z;
+		double distance = Math.sqrt(dx * dx + dy * dy + dz * dz);
+		// the center is on a shell around the anchor, the camera may be too far from the shell to bother locating it
+		if (distance - maxReaches[i] * anchorScale >= limit || minReaches[i] * anchorScale - distance >= limit) return false;
+
+		streamables.get(i).locate(center);
+		AffineMath.transform(matrix, 0, center[0], center[1], center[2], world);
+		dx = world[0] - x;
+		dy = world[1] - y;
+		dz = world[2] - z;
+		return Math.sqrt(dx * dx + dy * dy + dz * dz) < limit;
+	}
+
+	private void prepare(int i) {
+		states[i] = PREPARING;
+		activate(i);
+		Streamable streamable = streamables.get(i);
+		CompletableFuture.runAsync(() -> {
+			streamable.prepare();
+		}, ResourceLoader.getInstance().getImageLoader()).whenComplete((v, e) -> {
+			if (e != null) e.printStackTrace();
+			ResourceLoader.runOnFxThread(() -> {
+				prepared++;
+				// the camera may have left while the entry was prepared
+				if (states[i] != PREPARING) return;
+				if (wanted[i]) {
+					attach(i);
+				} else {
+					states[i] = DETACHED;
+					deactivate(i);
+				}
+			});
+		});
+	}
+
+	private void attach(int i) {
+		states[i] = ATTACHED;
+		attachedCount++;
+		streamables.get(i).attach();
+	}
+
+	private void detach(int i) {
+		states[i] = DETACHED;
+		attachedCount--;
+		deactivate(i);
+		streamables.get(i).detach();
+	}
+
+	private void activate(int i) {
+		if (activeCount == active.length) active = Arrays.copyOf(active, activeCount * 2);
+		active[activeCount++] = i;
+	}
+
+	private void deactivate(int i) {
+		for (int a = 0; a < activeCount; a++) {
+			if (active[a] != i) continue;
+			active[a] = active[--activeCount];
+			return;
+		}
+	}
+
+	/**
+	 * @return true if the nodes of the entry are part of the scene graph
+	 */
+	public boolean isAttached(int i) {
+		return states[i] == ATTACHED;
+	}
+
+	/**
+	 * @return the number of entries which are attached
+	 */
+	public int getAttachedCount() {
+		return attachedCount;
+	}
+
+	/**
+	 * @return the number of entries prepared in the background so far
+	 */
+	public long getPreparedCount() {
+		return prepared;
+	}
+
+	public int size() {
+		return anchors.size();
+	}
+}
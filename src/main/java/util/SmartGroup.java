@@ -0,0 +1,17 @@
+package util;
+
+import javafx.scene.Group;
+
+/**
+ * Lightweight container for the delegate hierarchy of an astronomical object.
+ * 
+ * Unlike {@link SmartPane} this is no Region, so it has no CSS properties of its own and takes no part
+ * in the layout pass. Children are never resized, they are only positioned by their transforms.
+ */
+public class SmartGroup extends Group implements SmartParent {
+	public SmartGroup() {
+		super();
+		setAutoSizeChildren(false);
+		setPickOnBounds(false);
+	}
+}
@@ -0,0 +1,45 @@
+package util;
+
+import javafx.collections.ObservableList;
+import javafx.scene.Camera;
+import javafx.scene.Node;
+import javafx.scene.Scene;
+import javafx.stage.Stage;
+
+/**
+ * Container of the delegate hierarchy of an astronomical object, see {@link SmartGroup} and {@link SmartPane}.
+ * 
+ * The translation container of a body holds the body as first child and can hold the camera for the chase cam.
+ */
+public interface SmartParent {
+	ObservableList<Node> getChildren();
+
+	Scene getScene();
+
+	default void addCamera(Camera camera) {
+		if (!(getChildren().get(0) instanceof SmartSphere<?>)) throw new IllegalStateException("THIS IS NOT A TRANSLATION PANE");
+		//Assert this container is not already the camera focus
+		if (getChildren().contains(camera) == true) {
+			Log.CAMERA.debug("(addCamera) Camera already child of node ", ((SmartSphere<?>)getChildren().get(0)).getAstronomicalObject());
+			return;
+		}
+		Log.CAMERA.debug("(addCamera) Camera added to node ", ((SmartSphere<?>)getChildren().get(0)).getAstronomicalObject());
+		getChildren().add(camera);
+	}
+
+	default void removeCamera() {
+		if (!(getChildren().get(0) instanceof SmartSphere<?>)) throw new IllegalStateException("THIS IS NOT A TRANSLATION PANE");
+		// we need it when we change from ChaseCam to FreeCam
+		// no need for ChaseCam to ChaseCam but no harm done either
+		//see doc @Node silent removal of nodes which are present in the tree when added 
+		Stage stage = (Stage) getScene().getWindow();
+		Camera camera = null;
+		if (stage instanceof SmartStage<?>) {
+			camera = ((SmartStage<?>)stage).getSubScene().getCamera();
+		}
+		if (getChildren().contains(camera) == true) {
+			Log.CAMERA.debug("(removeCamera) Camera is child of node ", ((SmartSphere<?>)getChildren().get(0)).getAstronomicalObject());
+			getChildren().remove(camera);
+		}
+	}
+}
@@ -1,5 +1,11 @@
 package util;
 
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.LongSupplier;
+
 import javafx.beans.property.DoubleProperty;
 import javafx.beans.property.SimpleDoubleProperty;
 import javafx.event.EventHandler;
@@ -10,9 +16,9 @@ import javafx.scene.Camera;
 import javafx.scene.Node;
 import javafx.scene.Parent;
 import javafx.scene.PerspectiveCamera;
+import javafx.scene.Scene;
 import javafx.scene.SceneAntialiasing;
 import javafx.scene.SubScene;
-import javafx.scene.image.Image;
 import javafx.scene.input.KeyEvent;
 import javafx.scene.input.MouseEvent;
 import javafx.scene.input.ScrollEvent;
@@ -23,6 +29,7 @@ import javafx.scene.shape.Cylinder;
 import javafx.scene.shape.Shape3D;
 import javafx.scene.shape.Sphere;
 import javafx.scene.transform.Affine;
+import javafx.scene.transform.NonInvertibleTransformException;
 import javafx.scene.transform.Rotate;
 import javafx.scene.transform.Transform;
 import javafx.stage.Stage;
@@ -48,6 +55,10 @@ public abstract class SmartScene extends SubScene {
 
     private final TranslateContext translateContext = new TranslateContext();
     private final RotationContext rotationContext = new RotationContext();
+    /**
+     * World transforms of the bodies, updated once per frame before the frame listeners are called
+     */
+    protected final WorldTransformCache worldTransforms = new WorldTransformCache();
     private final DoubleProperty scale = new SimpleDoubleProperty(1.0);
     private int cameraMode = CAMERA_MODE_FREE_CAM;
 	private Stage window = null;
@@ -55,6 +66,11 @@ public abstract class SmartScene extends SubScene {
 	public static final double SKYBOX_SIZE = 100000;
 	public static final double FARCLIP = SKYBOX_SIZE * 2;
 	public static final double MAX_ZOOM = SKYBOX_SIZE / 3;
+	public static final double NEAR_CLIP = 0.1;
+	/**
+	 * The corners of the sky box are kept at this fraction of the far clip distance when the clip planes are set per frame
+	 */
+	public static final double SKYBOX_FAR_FRACTION = 0.99;
 //	public static final double SKYBOX_SIZE = 100000;
 //	public static final double FARCLIP = SKYBOX_SIZE / Math.sqrt(3) * 2;
 //	public static final double MAX_ZOOM = SKYBOX_SIZE / 3;
@@ -62,8 +78,75 @@ public abstract class SmartScene extends SubScene {
 	public static final String BACKGROUND_RESOURCE = "8k_stars_milky_way2.jpg";
 //	public static final String BACKGROUND_RESOURCE = "milchstrasse-dunkel-bg.jpg";
 //	public static final String BACKGROUND_RESOURCE = "8k_stars.jpg";
+	public static final String BACKGROUND_MODE_SPHERE = "sphere";
+	public static final String BACKGROUND_MODE_TILES = "tiles";
+	public static final String BACKGROUND_MODE_CATALOG = "catalog";
+	public static final String STAR_CATALOG_RESOURCE = "bright_stars.csv";
+	public static final double STAR_MAGNITUDE_LIMIT = 6.5;
+	/**
+	 * Obliquity of the ecliptic in degree, the scene is laid out in the ecliptic plane
+	 */
+	public static final double OBLIQUITY = 23.439;
 	protected final Node backgroundSkyBox = createSkyBox();
 
+	/**
+	 * Listeners called once per frame, see {@link #addFrameListener(FrameListener)}
+	 */
+	private final List<FrameListener> frameListeners = new CopyOnWriteArrayList<>();
+
+	/**
+	 * Steps the quality down and up to hold the frame budget, the texture LOD bias and the sky resolution
+	 * are applied here, subclasses add listeners for the rest
+	 */
+	protected final QualityGovernor quality = new QualityGovernor();
+	private double skyBoxResolution = 1;
+
+	/**
+	 * Timings of the frames and the camera, see {@link Metrics}
+	 */
+	private final Histogram pulseTime = Metrics.getInstance().histogram(Metrics.PULSE);
+	private final Histogram frameTime = Metrics.getInstance().histogram(Metrics.FRAME);
+	private final Histogram cameraTime = Metrics.getInstance().histogram(Metrics.CAMERA);
+	private final Histogram animationTime = Metrics.getInstance().histogram(Metrics.ANIMATION);
+	private long pulseStart = 0;
+	/**
+	 * only created while frame events are recorded, see {@link FlightEvents}
+	 */
+	private FlightEvents.FrameEvent frameEvent = null;
+	private long lastFrame = 0;
+	/**
+	 * number of nodes in the SubScene, counted once per second as the gauges are read on other threads
+	 */
+	private volatile int nodeCount = 0;
+	private long nodeCountTime = 0;
+	/**
+	 * camera operations recorded for a {@link CameraPath} and the frames since the recording started
+	 */
+	private CameraPath recording = null;
+	private int recordingFrame = 0;
+	/**
+	 * the pulse listeners and the gauges of this scene, removed again by {@link #dispose()}
+	 */
+	private final Runnable beginFrameListener = this::beginFrame;
+	private final Runnable fireFrameListener = this::fireFrame;
+	private final Map<String, LongSupplier> gauges = new LinkedHashMap<>();
+	/**
+	 * the gauges of every scene are registered under their own prefix e.g. "scene2.bodies", so the windows
+	 * don't replace each other's gauges
+	 */
+	private static int sceneCount = 0;
+	private final String gaugePrefix = "scene" + (++sceneCount) + ".";
+
+	/**
+	 * Matrices to keep the sky box around the camera, see {@link #setClipRange(double, double)}
+	 */
+	private final double[] clipCamera = new double[AffineMath.SIZE];
+	private final double[] clipRoot = new double[AffineMath.SIZE];
+	private final double[] clipRootInverse = new double[AffineMath.SIZE];
+	private final double[] clipPoint = new double[3];
+	private double skyBoxInnerRadius = Double.NaN;
+	private double skyBoxOuterRadius = Double.NaN;
+
 	/**
 	 * Constructor which takes the root scene and the reference to the window in which the scene will be displayed
 	 * 
@@ -77,6 +160,127 @@ public abstract class SmartScene extends SubScene {
 		// add scale transform
 	    root.scaleXProperty().bind(scale);
 	    root.scaleYProperty().bind(scale);
+	    worldTransforms.setRoot(root);
+	    rotationContext.setWorldTransformCache(worldTransforms);
+
+	    if (backgroundSkyBox instanceof StreamingSkyBox) {
+	    	addFrameListener(now -> updateSkyBox((StreamingSkyBox) backgroundSkyBox));
+	    }
+	    quality.addListener(level -> {
+	    	ResourceLoader.getInstance().getTextureCache().setLodBias(this, level.textureLodBias);
+	    	skyBoxResolution = level.skyBoxResolution;
+	    });
+
+	    Metrics metrics = Metrics.getInstance();
+	    TextureCache textures = ResourceLoader.getInstance().getTextureCache();
+	    gauge("nodes", () -> nodeCount);
+	    metrics.gauge("textures", textures::getTextureCount);
+	    metrics.gauge("textures.resident.bytes", textures::getResidentBytes);
+	}
+
+	/**
+	 * Adds a listener which is called once per frame on the FX Application thread.
+	 * The listeners are called after the layout pass, so the transforms of the scene graph are up to date.
+	 * 
+	 * @param listener
+	 */
+	public void addFrameListener(FrameListener listener) {
+		frameListeners.add(listener);
+	}
+
+	public void removeFrameListener(FrameListener listener) {
+		frameListeners.remove(listener);
+	}
+
+	/**
+	 * Registers a gauge of this scene with {@link Metrics} under the prefix of the scene,
+	 * it is removed again when the scene is disposed
+	 */
+	protected void gauge(String name, LongSupplier value) {
+		Metrics.getInstance().gauge(gaugePrefix + name, value);
+		gauges.put(name, value);
+	}
+
+	/**
+	 * @return the current value of the gauge of this scene or -1 if there is none of that name
+	 */
+	public long getGauge(String name) {
+		LongSupplier value = gauges.get(name);
+		return value == null ? -1 : value.getAsLong();
+	}
+
+	/**
+	 * Releases everything which would keep the scene alive after its window is closed:
+	 * the pulse listeners, the frame listeners, the gauges and its texture LOD bias.
+	 * Called when the window is hidden.
+	 */
+	public void dispose() {
+		Scene scene = window.getScene();
+		if (scene != null) {
+			scene.removePreLayoutPulseListener(beginFrameListener);
+			scene.removePostLayoutPulseListener(fireFrameListener);
+		}
+		frameListeners.clear();
+		for (Map.Entry<String, LongSupplier> gauge : gauges.entrySet()) {
+			Metrics.getInstance().removeGauge(gaugePrefix + gauge.getKey(), gauge.getValue());
+		}
+		gauges.clear();
+		ResourceLoader.getInstance().getTextureCache().removeLodBias(this);
+		recording = null;
+	}
+
+	/**
+	 * Calls all frame listeners, registered as post layout pulse listener in {@link #initEventHandler()}
+	 */
+	private void fireFrame() {
+		long now = System.nanoTime();
+		StartupTrace.firstFrame();
+		if (recording != null) recordingFrame++;
+		if (lastFrame != 0) frameTime.record(now - lastFrame);
+		lastFrame = now;
+		worldTransforms.update();
+		for (FrameListener listener : frameListeners) {
+			listener.onFrame(now);
+		}
+		if (now - nodeCountTime > 1_000_000_000L) {
+			nodeCount = countNodes(getRoot());
+			nodeCountTime = now;
+		}
+		if (frameEvent != null) {
+			frameEvent.end();
+			if (frameEvent.shouldCommit()) {
+				frameEvent.animationTime = animationTime.getAccumulated();
+				frameEvent.bodies = getGauge("bodies");
+				frameEvent.visibleBodies = getGauge("bodies.visible");
+				frameEvent.sprites = getGauge("bodies.impostors");
+				frameEvent.commit();
+			}
+			frameEvent = null;
+		}
+		Metrics.getInstance().endFrame();
+		if (pulseStart != 0) {
+			long duration = System.nanoTime() - pulseStart;
+			pulseTime.record(duration);
+			quality.recordPulse(duration);
+		}
+	}
+
+	private void beginFrame() {
+		pulseStart = System.nanoTime();
+		if (FlightEvents.isFrameEnabled()) {
+			frameEvent = new FlightEvents.FrameEvent();
+			frameEvent.begin();
+		}
+	}
+
+	private static int countNodes(Node node) {
+		int count = 1;
+		if (node instanceof Parent) {
+			for (Node child : ((Parent) node).getChildrenUnmodifiable()) {
+				count += countNodes(child);
+			}
+		}
+		return count;
 	}
 
 	/**
@@ -152,15 +356,42 @@ public abstract class SmartScene extends SubScene {
     }
 
 	/**
-     * @return the background sphere
+     * Creates the background depending on background.mode in config.properties:
+     * "tiles" (default) streams cube face tiles with {@link StreamingSkyBox}, "sphere" maps the whole texture onto one sphere,
+     * "catalog" draws the stars of a star catalog as a point sprite mesh.
+     * The sphere is used as well if the texture cache on disk is disabled as the tiles are kept there.
+     * 
+     * @return the background node
      */
+	@SuppressWarnings("try")
 	private Node createSkyBox() {
+		try (StartupTrace.Span span = StartupTrace.begin("createSkyBox", "scene")) {
+			return createSkyBox(ResourceLoader.getInstance());
+		}
+	}
+
+	private Node createSkyBox(ResourceLoader rl) {
+		String mode = rl.getProperty("background.mode", BACKGROUND_MODE_TILES);
+		if (BACKGROUND_MODE_CATALOG.equals(mode)) {
+			return createStarFieldBackground();
+		}
+		if (BACKGROUND_MODE_TILES.equals(mode) && rl.getRawTextureCache() != null) {
+			// the cube corners must stay inside the far clip plane at maximum zoom
+			StreamingSkyBox skyBox = new StreamingSkyBox(BACKGROUND_RESOURCE, SKYBOX_SIZE * 0.8,
+					rl.getIntProperty("skybox.tiles.levels", StreamingSkyBox.DEFAULT_LEVELS),
+					rl.getIntProperty("skybox.tiles.budget.mb", StreamingSkyBox.DEFAULT_BUDGET_MB) * 1024L * 1024L);
+			skyBox.getTransforms().add(new Rotate(90, Rotate.X_AXIS));
+			return skyBox;
+		}
+		return createSkyBoxSphere();
+	}
+
+	/**
+     * @return the background sphere
+     */
+	private Node createSkyBoxSphere() {
 		Shape3D celestial = null;
-		Image img = prepareBackground();
-		PhongMaterial material = new PhongMaterial();
-		material.setSpecularMap(img);
-		material.setDiffuseMap(img);
-		material.setSelfIlluminationMap(img);
+		PhongMaterial material = prepareBackground();
 		celestial = new Sphere(SKYBOX_SIZE);
 //		celestial = new Box(SKYBOX_SIZE,SKYBOX_SIZE,SKYBOX_SIZE);
 		//cull faces so we actually see the texture from the inside
@@ -177,20 +408,90 @@ public abstract class SmartScene extends SubScene {
 	}
 	
 
-	private Image prepareBackground() {
+	/**
+	 * Creates the background from the star catalog (starfield.catalog in config.properties).
+	 * All stars are merged into one mesh of small quads on a sphere around the origin, size and brightness
+	 * of each quad are calculated from the magnitude of the star.
+	 * 
+	 * @return the star field
+	 */
+	private Node createStarFieldBackground() {
+		ResourceLoader rl = ResourceLoader.getInstance();
+		double limit = rl.getDoubleProperty("starfield.magnitude.limit", STAR_MAGNITUDE_LIMIT);
+		StarCatalog catalog = StarCatalog.load(rl.getProperty("starfield.catalog", STAR_CATALOG_RESOURCE), limit);
+
+		// same distance as the sky tiles, so the stars stay inside the far clip plane at maximum zoom
+		double radius = SKYBOX_SIZE * 0.8;
+		// a star at the magnitude limit is about 2 pixels wide at the initial field of view
+		double minSize = radius * Math.toRadians(30) / PREF_MIN_HEIGHT * 2;
+		double cosE = Math.cos(Math.toRadians(OBLIQUITY));
+		double sinE = Math.sin(Math.toRadians(OBLIQUITY));
+
+		int count = catalog.size();
+		float[] positions = new float[count * 3];
+		float[] sizes = new float[count];
+		float[] shades = new float[count];
+		for (int i = 0; i < count; i++) {
+			double ra = Math.toRadians(catalog.getRightAscension(i));
+			double dec = Math.toRadians(catalog.getDeclination(i));
+			// equatorial to ecliptic coordinates
+			double x = Math.cos(dec) * Math.cos(ra);
+			double y = Math.cos(dec) * Math.sin(ra);
+			double z = Math.sin(dec);
+			positions[i * 3] = (float) (x * radius);
+			positions[i * 3 + 1] = (float) ((y * cosE + z * sinE) * radius);
+			positions[i * 3 + 2] = (float) ((-y * sinE + z * cosE) * radius);
+
+			// relative flux compared to a star at the magnitude limit
+			double flux = Math.pow(10, -0.4 * (catalog.getMagnitude(i) - limit));
+			sizes[i] = (float) (minSize * Math.min(4, Math.pow(flux, 0.15)));
+			// full brightness from magnitude 0, the fourth root of the flux (10^(-0.1 m)) keeps faint stars visible
+			shades[i] = (float) Math.min(1, 0.25 + 0.75 * Math.pow(10, -0.1 * catalog.getMagnitude(i)));
+		}
+
+		PointSpriteMesh stars = new PointSpriteMesh(Color.WHITE);
+		stars.setSprites(positions, sizes, shades, count);
+		return stars;
+	}
+
+	/**
+	 * Selects the sky tiles for the current view direction and field of view of the camera
+	 */
+	private void updateSkyBox(StreamingSkyBox skyBox) {
+		Camera camera = getCamera();
+		if (!(camera instanceof PerspectiveCamera)) return;
+		PerspectiveCamera perspective = (PerspectiveCamera) camera;
+
+		Point3D direction = camera.getLocalToSceneTransform().deltaTransform(0, 0, 1);
+		try {
+			direction = skyBox.getLocalToSceneTransform().inverseDeltaTransform(direction);
+		} catch (NonInvertibleTransformException e) {
+			return;
+		}
+		double width = getWidth();
+		double height = getHeight();
+		if (height <= 0) return;
+		double fov = perspective.getFieldOfView();
+		if (!perspective.isVerticalFieldOfView()) {
+			// convert the horizontal field of view to the vertical one
+			fov = Math.toDegrees(2 * Math.atan(Math.tan(Math.toRadians(fov) / 2) * height / width));
+		}
+		// a lower resolution selects coarser tiles
+		skyBox.update(direction, fov, width / height, height * skyBoxResolution);
+	}
+
+	private PhongMaterial prepareBackground() {
     	ResourceLoader rl = ResourceLoader.getInstance();
-    	Image img;
     	String resourceName = BACKGROUND_RESOURCE;
     	
 //    	String resourceName = "4k_milky_way.png";
 //    	String resourceName = "16k12k_stars_milky_way.jpg";
 //    	String resourceName = "2k_sun.jpg";
 
-    	img = rl.loadImage(resourceName);
-       	if (img == null) {
-       		System.out.println("No jpg resource for Star System object of name " + resourceName + ".");
-       	}
-       	return img;
+    	// the background is black until the 8k texture is decoded in the background
+    	return rl.getTextureCache().getMaterial(0,
+    			TextureCache.DIFFUSE_MAP | TextureCache.SPECULAR_MAP | TextureCache.SELF_ILLUMINATION_MAP,
+    			Color.BLACK, resourceName);
 	}
 
     
@@ -203,8 +504,16 @@ public abstract class SmartScene extends SubScene {
      * @param camera
      */
     protected void initCameraPosition(Camera camera) {
-		cameraTransform.setToIdentity();
     	camera.getTransforms().add(cameraTransform);
+    	resetCameraPosition();
+    }
+
+    /**
+     * Moves the free camera back to its initial position
+     */
+    public void resetCameraPosition() {
+    	releaseChaseCam();
+		cameraTransform.setToIdentity();
 
     	cameraRotate(Point3D.ZERO, 0, -800, 0);
     	cameraRotate(Point3D.ZERO, 0, 1800, 0);
@@ -237,7 +546,7 @@ public abstract class SmartScene extends SubScene {
 	protected void initCamera() {
 		PerspectiveCamera camera = new PerspectiveCamera(true);
 		camera.setFieldOfView(30);
-		camera.setNearClip(0.1);
+		camera.setNearClip(NEAR_CLIP);
 		camera.setFarClip(FARCLIP);
 		setCamera(camera);
 		initCameraPosition(camera);
@@ -252,6 +561,7 @@ public abstract class SmartScene extends SubScene {
 	 * @param dZ the angle in degree we rotate around the Z-Axis
 	 */
 	public void rotate(Point3D pivot, double dX, double dY, double dZ) {
+		long start = System.nanoTime();
 		if (dX != 0) {
 			cameraTransform.appendRotation(dX, pivot, Rotate.X_AXIS);
 		}
@@ -261,6 +571,7 @@ public abstract class SmartScene extends SubScene {
 		if (dZ != 0) {
 			cameraTransform.appendRotation(dZ, pivot, Rotate.Z_AXIS);
 		}
+		cameraTime.record(System.nanoTime() - start);
 	}
 	
 	/**
@@ -301,7 +612,7 @@ public abstract class SmartScene extends SubScene {
 	 * @param dY the angle in degree we rotate around the Y-Axis
 	 * @param dZ the angle in degree we rotate around the Z-Axis
 	 */
-	private void cameraRotate(Point3D p, double dX, double dY, double dZ) {
+	void cameraRotate(Point3D p, double dX, double dY, double dZ) {
 		if (cameraMode == CAMERA_MODE_FREE_CAM) {
 			freeCamRotate(p, dX, dY, dZ);
 		}
@@ -315,7 +626,79 @@ public abstract class SmartScene extends SubScene {
 	private void cameraRotate(Point3D p, double dX, double dY) {
 		cameraRotate(p, dX, dY, 0);
 	}
+
+	/**
+	 * A rotate of the mouse or key handlers, which is recorded for a {@link CameraPath}
+	 */
+	private void userRotate(double dX, double dY, double dZ) {
+		if (recording != null) recording.rotate(recordingFrame, dX, dY, dZ);
+		cameraRotate(getPivot(), dX, dY, dZ);
+	}
+
+	/**
+	 * A translate of the mouse handlers, which is recorded for a {@link CameraPath}
+	 */
+	private void userTranslate(double dX, double dY, double dZ) {
+		if (recording != null) recording.translate(recordingFrame, dX, dY, dZ);
+		translate(dX, dY, dZ);
+	}
 	
+	/**
+	 * Sets the near and far clip distances of the camera, e.g. from the bodies in view.
+	 * The sky box is centered at the camera and scaled so all of it lies behind the given depth,
+	 * the far clip distance is set just beyond the corners of the sky box. So the background is never
+	 * clipped and never hides a body in front of the depth, however small the range is.
+	 * 
+	 * @param near the near clip distance in camera coordinates
+	 * @param depth the distance which must be in front of the background in camera coordinates
+	 */
+	protected void setClipRange(double near, double depth) {
+		Camera camera = getCamera();
+		if (camera == null) return;
+		double far = depth * getFarClipFactor();
+		// small changes are not worth the invalidation
+		if (Math.abs(camera.getNearClip() - near) > near * 0.01) camera.setNearClip(near);
+		if (Math.abs(camera.getFarClip() - far) > far * 0.01) camera.setFarClip(far);
+
+		worldTransforms.getWorldTransform(camera, clipCamera);
+		worldTransforms.getWorldTransform(getRoot(), clipRoot);
+		if (!(skyBoxInnerRadius > 0) || !AffineMath.invert(clipRoot, 0, clipRootInverse, 0)) return;
+		AffineMath.transform(clipRootInverse, 0, clipCamera[3], clipCamera[7], clipCamera[11], clipPoint);
+		backgroundSkyBox.setTranslateX(clipPoint[0]);
+		backgroundSkyBox.setTranslateY(clipPoint[1]);
+		backgroundSkyBox.setTranslateZ(clipPoint[2]);
+		double skyScale = camera.getFarClip() / getFarClipFactor() * AffineMath.maxScale(clipCamera, 0)
+				/ (skyBoxInnerRadius * AffineMath.maxScale(clipRoot, 0));
+		backgroundSkyBox.setScaleX(skyScale);
+		backgroundSkyBox.setScaleY(skyScale);
+		backgroundSkyBox.setScaleZ(skyScale);
+	}
+
+	/**
+	 * @return the far clip distance used by {@link #setClipRange(double, double)} for a depth of 1,
+	 * given by the ratio of the farthest to the nearest point of the sky box
+	 */
+	protected double getFarClipFactor() {
+		if (Double.isNaN(skyBoxInnerRadius)) {
+			if (backgroundSkyBox instanceof StreamingSkyBox) {
+				// the tiles are created when they come into view, so the bounds are empty at first
+				skyBoxInnerRadius = ((StreamingSkyBox) backgroundSkyBox).getInnerRadius();
+				skyBoxOuterRadius = ((StreamingSkyBox) backgroundSkyBox).getOuterRadius();
+			} else if (backgroundSkyBox instanceof Sphere) {
+				skyBoxInnerRadius = ((Sphere) backgroundSkyBox).getRadius();
+				skyBoxOuterRadius = skyBoxInnerRadius;
+			} else {
+				Bounds b = backgroundSkyBox.getBoundsInLocal();
+				double inner = Math.min(b.getWidth(), Math.min(b.getHeight(), b.getDepth())) / 2;
+				// empty bounds are not cached, the radii are taken once there is geometry
+				if (!(inner > 0)) return 1 / SKYBOX_FAR_FRACTION;
+				skyBoxInnerRadius = inner;
+				skyBoxOuterRadius = Math.sqrt(b.getWidth() * b.getWidth() + b.getHeight() * b.getHeight() + b.getDepth() * b.getDepth()) / 2;
+			}
+		}
+		return skyBoxOuterRadius / skyBoxInnerRadius / SKYBOX_FAR_FRACTION;
+	}
+
 	/**
 	 * Reset the background SkyBox to the root of the SubScene graph
 	 */
@@ -328,28 +711,53 @@ public abstract class SmartScene extends SubScene {
 		if (pivot == null) return;
 
 		Transform localToScene = getCamera().getLocalToSceneTransform();
-		((SmartPane)pivot.getParent()).removeCamera();
+		((SmartParent)pivot.getParent()).removeCamera();
 		cameraTransform.setToIdentity();
 		cameraTransform.append(localToScene);
 	}
 
 	protected void setChaseCam(SmartSphere<?> sphere) {
 		Parent p = sphere.getParent();
-		if (!(p instanceof SmartPane)) throw new IllegalStateException("THIS IS NOT A SmartPane: " + p);
-		((SmartPane)p).addCamera(getCamera());
+		if (!(p instanceof SmartParent)) throw new IllegalStateException("THIS IS NOT A SmartParent: " + p);
+		((SmartParent)p).addCamera(getCamera());
 	}
 
 	/**
-	 * recursive call to get the node which includes the mouse coordinates in its bounds
-	 * of course the top most node will always include the coordinates
-	 * traverse down until we find the last sub node which still includes the coordinates
-	 * this traverse must either return a Shape3D object or null 
+	 * Finds the object under the mouse for a click on the SubScene.
+	 * This traverse must either return a Shape3D object or null 
 	 * 
 	 * @param node the node from which we traverse all children
-	 * @param point the point which must be included in the node to traverse
+	 * @param point the mouse position in the local coordinates of this SubScene
 	 */
 	abstract protected Shape3D traverseNodes(Node node, Point2D point);
 
+	/**
+	 * Calculates the ray from the camera through a point of the SubScene.
+	 * 
+	 * @param x x in the local coordinates of this SubScene
+	 * @param y y in the local coordinates of this SubScene
+	 * @return origin x, y, z and direction x, y, z of the ray in scene coordinates or null without a PerspectiveCamera
+	 */
+	protected double[] pickRay(double x, double y) {
+		Camera camera = getCamera();
+		if (!(camera instanceof PerspectiveCamera) || getWidth() <= 0 || getHeight() <= 0) return null;
+		PerspectiveCamera perspective = (PerspectiveCamera) camera;
+
+		double aspect = getWidth() / getHeight();
+		double tan = Math.tan(Math.toRadians(perspective.getFieldOfView()) / 2);
+		double tanX = perspective.isVerticalFieldOfView() ? tan * aspect : tan;
+		double tanY = perspective.isVerticalFieldOfView() ? tan : tan / aspect;
+
+		// the camera looks along its positive z axis, y points down like the screen
+		double cx = (2 * x / getWidth() - 1) * tanX;
+		double cy = (2 * y / getHeight() - 1) * tanY;
+
+		Transform toScene = camera.getLocalToSceneTransform();
+		Point3D origin = toScene.transform(0, 0, 0);
+		Point3D direction = toScene.deltaTransform(cx, cy, 1);
+		return new double[] { origin.getX(), origin.getY(), origin.getZ(), direction.getX(), direction.getY(), direction.getZ() };
+	}
+
 	/**
 	 * Calculate the view direction in scene coordinates
 	 * 
@@ -366,9 +774,7 @@ public abstract class SmartScene extends SubScene {
 	 * @return the camera position in scene coordinates
 	 */
 	public Point3D camPosition() {
-		Camera camera = getCamera();
-		Bounds local = camera.getBoundsInLocal();
-		return camera.localToScene(local.getMinX(), local.getMinY(), local.getMinZ());
+		return worldTransforms.getCenter(getCamera());
 	}
 
 	/**
@@ -413,9 +819,11 @@ public abstract class SmartScene extends SubScene {
 	 * @param dZ the amount we translate along Z-Axis
 	 */
 	public void translate(double dX, double dY, double dZ) {
+		long start = System.nanoTime();
 		if (checkClipDistance(dX, dY, dZ) == false)
 			return;
 		cameraTransform.appendTranslation(dX, dY, dZ);
+		cameraTime.record(System.nanoTime() - start);
 	}
 	
 	
@@ -437,13 +845,88 @@ public abstract class SmartScene extends SubScene {
 	 */
 	public void onMouseClicked(SmartSphere<?> sphere) {
 		if (getPivotSphere() == sphere && cameraMode == CAMERA_MODE_CHASE_CAM) return;
+		if (recording != null) recording.focus(recordingFrame, sphereName(sphere));
 
+		FlightEvents.CameraModeEvent event = new FlightEvents.CameraModeEvent();
+		event.begin();
+		int from = cameraMode;
 		cameraMode = CAMERA_MODE_CHASE_CAM;
 		removeChaseCam();
 		setChaseCam(sphere);
 
 		setPivot(sphere);
 		initChaseCameraPosition(getCamera());
+		commitCameraModeEvent(event, from, String.valueOf(sphere.getAstronomicalObject()));
+	}
+
+	/**
+	 * Switches from the chase camera back to the free camera at the current camera position
+	 */
+	public void releaseChaseCam() {
+		if (cameraMode != CAMERA_MODE_CHASE_CAM) return;
+		if (recording != null) recording.free(recordingFrame);
+		if (Log.CAMERA.isDebug()) {
+			Debug.out("(releaseChaseCam) ", "Pivot: ", getPivot());
+			Debug.out("(releaseChaseCam) ", "CamPos: ", camPosition());
+		}
+		FlightEvents.CameraModeEvent modeEvent = new FlightEvents.CameraModeEvent();
+		modeEvent.begin();
+		removeChaseCam();
+		setPivot((Sphere)null);
+		cameraMode = CAMERA_MODE_FREE_CAM;
+		commitCameraModeEvent(modeEvent, CAMERA_MODE_CHASE_CAM, null);
+	}
+
+	/**
+	 * Finds the sphere of a body by the name used in a {@link CameraPath}
+	 *
+	 * @return the sphere or null if there is no such body
+	 */
+	protected SmartSphere<?> findSphere(String name) {
+		return null;
+	}
+
+	/**
+	 * @return the name of the body of a sphere for a {@link CameraPath}, see {@link #findSphere(String)}
+	 */
+	protected String sphereName(SmartSphere<?> sphere) {
+		return String.valueOf(sphere.getAstronomicalObject());
+	}
+
+	/**
+	 * Records all camera operations from now on, including the ones of the mouse and key handlers
+	 */
+	public void startRecording() {
+		recording = new CameraPath();
+		recordingFrame = 0;
+	}
+
+	/**
+	 * @return the camera operations since {@link #startRecording()} or null if nothing was recorded
+	 */
+	public CameraPath stopRecording() {
+		CameraPath path = recording;
+		recording = null;
+		if (path != null) path.end(recordingFrame);
+		return path;
+	}
+
+	public boolean isRecording() {
+		return recording != null;
+	}
+
+	private void commitCameraModeEvent(FlightEvents.CameraModeEvent event, int from, String target) {
+		event.end();
+		if (!event.shouldCommit()) return;
+		event.from = cameraModeName(from);
+		event.to = cameraModeName(cameraMode);
+		event.target = target;
+		event.bodies = getGauge("bodies");
+		event.commit();
+	}
+
+	private static String cameraModeName(int mode) {
+		return mode == CAMERA_MODE_CHASE_CAM ? "chase" : "free";
 	}
 	
 	/**
@@ -466,16 +949,28 @@ public abstract class SmartScene extends SubScene {
 				if (event.isControlDown()) {
 					scrollMultiplier = 0.2;
 					delta = event.getDeltaY();
-					System.out.println("(SCROLL) " + delta);
+					Log.CAMERA.debug("(SCROLL) ", delta);
 				}
 				delta *= scrollMultiplier;
-				zoom(delta);
+				userTranslate(0, 0, delta);
+			}
+		};
+
+		/**
+		 * A click without dragging picks the object under the mouse with a ray cast, the scene graph
+		 * itself is mouse transparent so JavaFX does not need to pick on every mouse event
+		 */
+		EventHandler<MouseEvent> clickedHandler = new EventHandler<MouseEvent>() {
+			public void handle(MouseEvent event) {
+				if (!event.isStillSincePress()) return;
+				Point2D point = sceneToLocal(event.getSceneX(), event.getSceneY());
+				if (point == null) return;
+				Shape3D shape = traverseNodes(getRoot(), point);
+				if (shape instanceof SmartSphere<?>) onMouseClicked((SmartSphere<?>) shape);
 			}
 		};
 
 		/**
-		 * A Click on a object will be handled by their onClick!
-		 * 
 		 * Left Mouse button down, we want to rotate the scene
 		 * as this is the start of our rotate operation we need to get the starting mouse position
 		 * while the drag event we calculate the rotation on the amount the mouse was moved since the drag started
@@ -525,7 +1020,7 @@ public abstract class SmartScene extends SubScene {
 					translateContext.setMouseAnchor(mouseX, mouseY);
 					rotationContext.setAngleY(rotationContext.anchorAngleY + dX);
 					rotationContext.setAngleX(rotationContext.anchorAngleX - dY);
-					cameraRotate(getPivot(), dX, dY);
+					userRotate(dX, dY, 0);
 				}
 
 				/**
@@ -539,14 +1034,8 @@ public abstract class SmartScene extends SubScene {
 				 * 
 				 */
 				if (event.isSecondaryButtonDown()) {
-					if (cameraMode == CAMERA_MODE_CHASE_CAM) {
-						Debug.out("(dragHandler) ", "Pivot: ", getPivot());
-						Debug.out("(dragHandler) ", "CamPos: ", camPosition());
-						removeChaseCam();
-						setPivot((Sphere)null);
-						cameraMode = CAMERA_MODE_FREE_CAM;
-					}
-					translate(-dX, -dY, 0);
+					releaseChaseCam();
+					userTranslate(-dX, -dY, 0);
 					translateContext.setMouseAnchor(mouseX, mouseY);
 				}
 			}
@@ -573,24 +1062,24 @@ public abstract class SmartScene extends SubScene {
 				switch (event.getCode()) {
 				// around X-axis
 				case W:
-					cameraRotate(getPivot(), 0, -10, 0);
+					userRotate(0, -10, 0);
 					break;
 				case S:
-					cameraRotate(getPivot(), 0, 10, 0);
+					userRotate(0, 10, 0);
 					break;
 				// Y-axis
 				case Q:
-					cameraRotate(getPivot(), 0, 0, -10);
+					userRotate(0, 0, -10);
 					break;
 				case E:
-					cameraRotate(getPivot(), 0, 0, 10);
+					userRotate(0, 0, 10);
 					break;
 				// Z-axis
 				case A:
-					cameraRotate(getPivot(), -10, 0, 0);
+					userRotate(-10, 0, 0);
 					break;
 				case D:
-					cameraRotate(getPivot(), 10, 0, 0);
+					userRotate(10, 0, 0);
 					break;
 				default:
 				}
@@ -607,11 +1096,16 @@ public abstract class SmartScene extends SubScene {
 		//Left button means a rotate while right button panes
 		window.getScene().addEventHandler(MouseEvent.MOUSE_DRAGGED, dragHandler);
 		window.getScene().addEventHandler(MouseEvent.MOUSE_PRESSED, pressedHandler);
+		//Click on a object switches to the chase camera
+		window.getScene().addEventHandler(MouseEvent.MOUSE_CLICKED, clickedHandler);
 		//Scroll Handler for mouse wheel scrolling which means a Zoom for the scene
 		window.getScene().addEventHandler(ScrollEvent.SCROLL, scrollHandler);
 		//Key event Handler for keys A D Q E W S which will rotate the scene around the X,Y and Z axis clockwise and counterclockwise
 		//each key press will rotate for 10 degree around the corresponding axis 
 		window.getScene().addEventHandler(KeyEvent.KEY_PRESSED, keyHandler);
+		//per frame updates like the streamed sky tiles
+		window.getScene().addPreLayoutPulseListener(beginFrameListener);
+		window.getScene().addPostLayoutPulseListener(fireFrameListener);
 	}
 
 	/**
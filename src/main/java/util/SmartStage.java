@@ -4,6 +4,7 @@ import javafx.application.Application;
 import javafx.scene.Group;
 import javafx.scene.Scene;
 import javafx.stage.Stage;
+import javafx.stage.WindowEvent;
 
 public abstract class SmartStage<T extends Application> extends Stage {
 	protected SmartScene subScene = null;
@@ -26,6 +27,9 @@ public abstract class SmartStage<T extends Application> extends Stage {
 		setScene(new Scene(new Group()));
 		createSubScene();
 		initEventHandler();
+		addEventHandler(WindowEvent.WINDOW_HIDDEN, event -> {
+			if (subScene != null) subScene.dispose();
+		});
 	}
 	public abstract void initEventHandler();
 	protected abstract void createSubScene();
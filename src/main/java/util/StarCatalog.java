@@ -0,0 +1,101 @@
+package util;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * A list of stars with their position and visual magnitude read from a CSV catalog file.
+ *
+ * The file has one star per line: name,ra,dec,vmag with right ascension and declination in degree (J2000).
+ * Empty lines, lines starting with '#' and a header line are skipped.
+ * The values are kept in primitive arrays, a catalog of 10^4 stars needs well below a megabyte.
+ */
+public class StarCatalog {
+	private String[] names = new String[256];
+	private double[] rightAscension = new double[256];
+	private double[] declination = new double[256];
+	private double[] magnitude = new double[256];
+	private int size = 0;
+
+	/**
+	 * Reads the catalog, stars fainter than the magnitude limit are skipped.
+	 *
+	 * @param resource the resource name of the catalog
+	 * @param magnitudeLimit the faintest magnitude which is read
+	 * @return the catalog, empty if the resource was not found
+	 */
+	public static StarCatalog load(String resource, double magnitudeLimit) {
+		StarCatalog catalog = new StarCatalog();
+		URL url = ResourceLoader.getInstance().getResourceURL(resource);
+		if (url == null) {
+			Log.RESOURCES.warn("Star catalog not found: ", resource);
+			return catalog;
+		}
+
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(url.openStream(), StandardCharsets.UTF_8))) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				line = line.trim();
+				if (line.isEmpty() || line.startsWith("#")) continue;
+				String[] fields = line.split(",");
+				if (fields.length < 4) continue;
+				try {
+					double ra = Double.parseDouble(fields[1].trim());
+					double dec = Double.parseDouble(fields[2].trim());
+					double vmag = Double.parseDouble(fields[3].trim());
+					if (vmag <= magnitudeLimit) catalog.add(fields[0].trim(), ra, dec, vmag);
+				} catch (NumberFormatException e) {
+					// header line
+				}
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		return catalog;
+	}
+
+	private void add(String name, double ra, double dec, double vmag) {
+		if (size == names.length) {
+			int capacity = size * 2;
+			names = Arrays.copyOf(names, capacity);
+			rightAscension = Arrays.copyOf(rightAscension, capacity);
+			declination = Arrays.copyOf(declination, capacity);
+			magnitude = Arrays.copyOf(magnitude, capacity);
+		}
+		names[size] = name;
+		rightAscension[size] = ra;
+		declination[size] = dec;
+		magnitude[size] = vmag;
+		size++;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public String getName(int i) {
+		return names[i];
+	}
+
+	/**
+	 * @return the right ascension in degree
+	 */
+	public double getRightAscension(int i) {
+		return rightAscension[i];
+	}
+
+	/**
+	 * @return the declination in degree
+	 */
+	public double getDeclination(int i) {
+		return declination[i];
+	}
+
+	public double getMagnitude(int i) {
+		return magnitude[i];
+	}
+}
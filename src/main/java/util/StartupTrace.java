@@ -0,0 +1,210 @@
+package util;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Records the phases of the startup from the launch of the JVM to the first rendered frame.
+ *
+ * A phase is a span opened with {@link #begin(String)} and closed with try-with-resources, spans opened within
+ * a span on the same thread show up nested. Every span keeps its wall time, the CPU time of its thread and the
+ * thread. At shutdown all spans are written as Chrome trace JSON (startup.trace.file in config.properties),
+ * which can be opened with chrome://tracing or https://ui.perfetto.dev.
+ *
+ * Recording stops startup.trace.tail.ms after the first frame, so the textures which are still decoded in the
+ * background at that time are part of the trace. Spans after that and spans while disabled
+ * (startup.trace.enabled) cost one comparison.
+ */
+public final class StartupTrace {
+	public static final String DEFAULT_FILE = "startup-trace.json";
+	public static final int DEFAULT_TAIL_MS = 3000;
+
+	/**
+	 * One phase, closing it records it
+	 */
+	public static final class Span implements AutoCloseable {
+		private final String name;
+		private final String category;
+		private final String detail;
+		private final long thread;
+		private final String threadName;
+		private final long start;
+		private final long cpuStart;
+		private long end;
+		private long cpuEnd;
+
+		private Span(String name, String category, String detail) {
+			Thread t = Thread.currentThread();
+			this.name = name;
+			this.category = category;
+			this.detail = detail;
+			this.thread = t.getId();
+			this.threadName = t.getName();
+			this.cpuStart = cpuTime();
+			this.start = System.nanoTime();
+		}
+
+		@Override
+		public void close() {
+			if (this == NONE) return;
+			end = System.nanoTime();
+			cpuEnd = cpuTime();
+			if (end <= stopAt) spans.add(this);
+		}
+	}
+
+	private static final ConcurrentLinkedQueue<Span> spans = new ConcurrentLinkedQueue<>();
+	private static final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+	private static final boolean cpuTimeSupported;
+	private static final boolean enabled;
+	private static final String file;
+	private static final long tail;
+	/**
+	 * System.nanoTime() at the start of the JVM, all timestamps are relative to it
+	 */
+	private static final long origin;
+	private static volatile long stopAt = Long.MAX_VALUE;
+	private static volatile long firstFrame = 0;
+
+	static {
+		ResourceLoader rl = ResourceLoader.getInstance();
+		enabled = Boolean.parseBoolean(rl.getProperty("startup.trace.enabled", "true"));
+		file = rl.getProperty("startup.trace.file", DEFAULT_FILE);
+		tail = rl.getIntProperty("startup.trace.tail.ms", DEFAULT_TAIL_MS) * 1_000_000L;
+		origin = System.nanoTime() - ManagementFactory.getRuntimeMXBean().getUptime() * 1_000_000L;
+		boolean cpu = false;
+		try {
+			cpu = threads.isCurrentThreadCpuTimeSupported() && threads.isThreadCpuTimeEnabled();
+		} catch (UnsupportedOperationException e) {
+			// wall time only
+		}
+		cpuTimeSupported = cpu;
+		if (enabled) {
+			Runtime.getRuntime().addShutdownHook(new Thread(StartupTrace::write, "StartupTrace"));
+		} else {
+			stopAt = Long.MIN_VALUE;
+		}
+	}
+
+	private static final Span NONE = new Span("", "", null);
+
+	private StartupTrace() {
+	}
+
+	private static long cpuTime() {
+		return cpuTimeSupported ? threads.getCurrentThreadCpuTime() : -1;
+	}
+
+	/**
+	 * Opens a span in the category "startup"
+	 */
+	public static Span begin(String name) {
+		return begin(name, "startup");
+	}
+
+	/**
+	 * Opens a span, use it with try-with-resources
+	 *
+	 * @param name the name of the phase
+	 * @param category e.g. "load", "texture" or "scene"
+	 */
+	public static Span begin(String name, String category) {
+		return begin(name, category, null);
+	}
+
+	/**
+	 * Opens a span with a detail like the resource name, shown in the arguments of the span
+	 */
+	public static Span begin(String name, String category, String detail) {
+		if (System.nanoTime() > stopAt) return NONE;
+		return new Span(name, category, detail);
+	}
+
+	/**
+	 * Marks the first rendered frame, recording stops startup.trace.tail.ms later
+	 */
+	public static void firstFrame() {
+		if (firstFrame != 0 || !enabled) return;
+		firstFrame = System.nanoTime();
+		stopAt = firstFrame + tail;
+	}
+
+	/**
+	 * @return the time from the start of the JVM to the first frame in milliseconds, 0 before the first frame
+	 */
+	public static double getTimeToFirstFrame() {
+		return firstFrame == 0 ? 0 : (firstFrame - origin) / 1e6;
+	}
+
+	/**
+	 * Writes all recorded spans as Chrome trace JSON, called at shutdown
+	 */
+	static void write() {
+		List<Span> recorded = new ArrayList<>(spans);
+		StringBuilder json = new StringBuilder(recorded.size() * 160 + 256);
+		json.append("{\"displayTimeUnit\":\"ms\",\"traceEvents\":[\n");
+		List<Long> named = new ArrayList<>();
+		boolean first = true;
+		for (Span span : recorded) {
+			if (!named.contains(span.thread)) {
+				named.add(span.thread);
+				if (!first) json.append(",\n");
+				first = false;
+				json.append("{\"name\":\"thread_name\",\"ph\":\"M\",\"pid\":1,\"tid\":").append(span.thread)
+						.append(",\"args\":{\"name\":");
+				string(json, span.threadName);
+				json.append("}}");
+			}
+			json.append(",\n{\"name\":");
+			string(json, span.name);
+			json.append(",\"cat\":");
+			string(json, span.category);
+			json.append(",\"ph\":\"X\",\"pid\":1,\"tid\":").append(span.thread)
+					.append(",\"ts\":").append((span.start - origin) / 1000)
+					.append(",\"dur\":").append((span.end - span.start) / 1000);
+			json.append(",\"args\":{\"cpu_ms\":").append(span.cpuStart < 0 ? -1 : (span.cpuEnd - span.cpuStart) / 1000 / 1000.0);
+			if (span.detail != null) {
+				json.append(",\"detail\":");
+				string(json, span.detail);
+			}
+			json.append('}');
+			json.append('}');
+		}
+		if (firstFrame != 0) {
+			if (!first) json.append(",\n");
+			json.append("{\"name\":\"first frame\",\"cat\":\"startup\",\"ph\":\"i\",\"s\":\"g\",\"pid\":1,\"tid\":0,\"ts\":")
+					.append((firstFrame - origin) / 1000).append('}');
+		}
+		json.append("\n]}\n");
+
+		try (Writer out = new OutputStreamWriter(Files.newOutputStream(Paths.get(file)), StandardCharsets.UTF_8)) {
+			out.write(json.toString());
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	private static void string(StringBuilder json, String value) {
+		json.append('"');
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c == '"' || c == '\\') {
+				json.append('\\').append(c);
+			} else if (c < 0x20) {
+				json.append(String.format("\\u%04x", (int) c));
+			} else {
+				json.append(c);
+			}
+		}
+		json.append('"');
+	}
+}
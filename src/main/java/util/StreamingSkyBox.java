@@ -0,0 +1,566 @@
+package util;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+
+import javafx.geometry.Point3D;
+import javafx.scene.Group;
+import javafx.scene.image.Image;
+import javafx.scene.image.ImageView;
+import javafx.scene.transform.Affine;
+
+/**
+ * Sky background which is streamed in tiles instead of mapping one huge texture onto a sphere.
+ *
+ * The equirectangular background image is split once into the six faces of a cube, every face is
+ * a quadtree of square tiles where each level doubles the resolution. The tiles are generated on a
+ * background thread and stored in the {@link RawTextureCache} so later starts only map them from disk.
+ *
+ * Every frame {@link #update(Point3D, double, double, double)} selects for each face the tiles the camera faces
+ * at the level the field of view needs. Tiles outside the view stay at the coarsest level.
+ * The coarsest level of every face is always resident, finer tiles are loaded in the background and
+ * evicted least recently used once the resident size exceeds the budget (skybox.tiles.budget.mb).
+ */
+public class StreamingSkyBox extends Group {
+	public static final int TILE_SIZE = 512;
+	/**
+	 * Samples per tile edge to find the rows of the image a tile needs
+	 */
+	private static final int POLAR_SAMPLES = 8;
+	public static final int DEFAULT_LEVELS = 3;
+	public static final int DEFAULT_BUDGET_MB = 64;
+
+	/**
+	 * Face basis vectors: outward normal, right and down direction of the image on the face
+	 */
+	private static final double[][] FACES = {
+		{  1, 0, 0,   0, 0,-1,   0, 1, 0 },
+		{ -1, 0, 0,   0, 0, 1,   0, 1, 0 },
+		{  0, 1, 0,   1, 0, 0,   0, 0,-1 },
+		{  0,-1, 0,   1, 0, 0,   0, 0, 1 },
+		{  0, 0, 1,   1, 0, 0,   0, 1, 0 },
+		{  0, 0,-1,  -1, 0, 0,   0, 1, 0 },
+	};
+
+	private final String resource;
+	private final double halfSize;
+	private final int levels;
+	private final long budgetBytes;
+
+	private final Group[] faceGroups = new Group[6];
+	private final Tile[] roots = new Tile[6];
+
+	/**
+	 * Resident tiles above the coarsest level in least recently used order
+	 */
+	private final LinkedHashMap<Tile, Tile> resident = new LinkedHashMap<>(64, 0.75f, true);
+	private long residentBytes = 0;
+
+	/**
+	 * Number of levels whose tiles are complete in the tile cache, finer levels are not requested before
+	 */
+	private volatile int generatedLevels = 0;
+
+	/**
+	 * @param resource the equirectangular background image
+	 * @param halfSize half the edge length of the cube
+	 * @param levels the number of resolution levels, level 0 is one tile per face
+	 * @param budgetBytes the maximum size of the resident tiles above level 0
+	 */
+	public StreamingSkyBox(String resource, double halfSize, int levels, long budgetBytes) {
+		this.resource = resource;
+		this.halfSize = halfSize;
+		this.levels = Math.max(1, levels);
+		this.budgetBytes = budgetBytes;
+
+		for (int f = 0; f < 6; f++) {
+			double[] b = FACES[f];
+			Group face = new Group();
+			face.getTransforms().add(new Affine(
+					b[3], b[6], b[0], b[0] * halfSize,
+					b[4], b[7], b[1], b[1] * halfSize,
+					b[5], b[8], b[2], b[2] * halfSize));
+			faceGroups[f] = face;
+			roots[f] = new Tile(f, 0, 0, 0);
+		}
+		getChildren().addAll(faceGroups);
+		setMouseTransparent(true);
+
+		ResourceLoader.getInstance().getImageLoader().execute(this::generateTiles);
+	}
+
+	/**
+	 * Selects and loads the tiles for the current view.
+	 *
+	 * @param viewDirection the view direction of the camera in the local coordinates of this node
+	 * @param fieldOfView the vertical field of view in degree
+	 * @param aspect width / height of the viewport
+	 * @param viewportHeight the height of the viewport in pixels
+	 */
+	public void update(Point3D viewDirection, double fieldOfView, double aspect, double viewportHeight) {
+		int available = generatedLevels;
+		if (available == 0) return;
+
+		double length = viewDirection.magnitude();
+		if (length == 0 || viewportHeight <= 0) return;
+		double vx = viewDirection.getX() / length;
+		double vy = viewDirection.getY() / length;
+		double vz = viewDirection.getZ() / length;
+
+		double halfFov = Math.toRadians(fieldOfView) / 2;
+		double halfDiagonal = Math.atan(Math.tan(halfFov) * Math.sqrt(1 + aspect * aspect));
+
+		// angle covered by one screen pixel compared to the angle covered by one texel of a level
+		double pixelAngle = 2 * halfFov / viewportHeight;
+		double texelAngle0 = (Math.PI / 2) / TILE_SIZE;
+		int requiredLevel = (int) Math.ceil(Math.log(texelAngle0 / pixelAngle) / Math.log(2));
+		requiredLevel = Math.max(0, Math.min(available - 1, requiredLevel));
+
+		for (Tile root : roots) {
+			select(root, vx, vy, vz, halfDiagonal, requiredLevel);
+		}
+	}
+
+	private void select(Tile tile, double vx, double vy, double vz, double halfDiagonal, int requiredLevel) {
+		if (tile.image == null) {
+			if (tile.level == 0) load(tile);
+			return;
+		}
+
+		boolean visible = isVisible(tile, vx, vy, vz, halfDiagonal);
+		if (tile.level > 0 && visible) resident.get(tile);
+
+		if (visible && tile.level < requiredLevel) {
+			Tile[] children = tile.children();
+			boolean childrenResident = true;
+			for (Tile child : children) {
+				if (child.image == null) {
+					childrenResident = false;
+					load(child);
+				}
+			}
+			if (childrenResident) {
+				show(tile, false);
+				for (Tile child : children) {
+					select(child, vx, vy, vz, halfDiagonal, requiredLevel);
+				}
+				return;
+			}
+		}
+		show(tile, true);
+		hideDescendants(tile);
+	}
+
+	private boolean isVisible(Tile tile, double vx, double vy, double vz, double halfDiagonal) {
+		double dot = tile.cx * vx + tile.cy * vy + tile.cz * vz;
+		double angle = Math.acos(Math.max(-1, Math.min(1, dot)));
+		return angle < halfDiagonal + tile.angularRadius;
+	}
+
+	private void show(Tile tile, boolean visible) {
+		if (tile.view != null && tile.view.isVisible() != visible) tile.view.setVisible(visible);
+	}
+
+	private void hideDescendants(Tile tile) {
+		if (tile.children == null) return;
+		for (Tile child : tile.children) {
+			show(child, false);
+			hideDescendants(child);
+		}
+	}
+
+	/**
+	 * Maps the tile from the tile cache in the background and adds it to the scene graph on the FX Application thread
+	 */
+	private void load(Tile tile) {
+		if (tile.loading) return;
+		tile.loading = true;
+		ResourceLoader rl = ResourceLoader.getInstance();
+		URL source = rl.getResourceURL(resource);
+		RawTextureCache cache = rl.getRawTextureCache();
+		if (source == null || cache == null) {
+			tile.loading = false;
+			return;
+		}
+
+		rl.getImageLoader().execute(() -> {
+			Image img = cache.load(tile.key(), tile.level, source);
+			ResourceLoader.runOnFxThread(() -> {
+				tile.loading = false;
+				if (img == null) return;
+				attach(tile, img);
+			});
+		});
+	}
+
+	private void attach(Tile tile, Image img) {
+		tile.image = img;
+		double size = 2 * halfSize / (1 << tile.level);
+		ImageView view = new ImageView(img);
+		// a little overlap hides the seams between the tiles
+		view.setFitWidth(size * 1.002);
+		view.setFitHeight(size * 1.002);
+		view.setSmooth(true);
+		view.setTranslateX(-halfSize + tile.x * size);
+		view.setTranslateY(-halfSize + tile.y * size);
+		// finer tiles are drawn in front of coarser ones
+		view.setTranslateZ(-tile.level * halfSize * 0.0005);
+		view.setVisible(false);
+		tile.view = view;
+		faceGroups[tile.face].getChildren().add(view);
+
+		if (tile.level == 0) return;
+		resident.put(tile, tile);
+		residentBytes += tile.bytes();
+		evict(tile);
+	}
+
+	/**
+	 * Evicts the least recently used tiles until the budget is met, the tile just added and parents of visible tiles are kept
+	 */
+	private void evict(Tile added) {
+		Iterator<Tile> it = resident.keySet().iterator();
+		while (residentBytes > budgetBytes && it.hasNext()) {
+			Tile t = it.next();
+			if (t == added || (t.view != null && t.view.isVisible()) || hasResidentChildren(t)) continue;
+			it.remove();
+			residentBytes -= t.bytes();
+			faceGroups[t.face].getChildren().remove(t.view);
+			t.view = null;
+			t.image = null;
+		}
+	}
+
+	private static boolean hasResidentChildren(Tile t) {
+		if (t.children == null) return false;
+		for (Tile child : t.children) {
+			if (child.image != null) return true;
+		}
+		return false;
+	}
+
+	public long getResidentBytes() {
+		return residentBytes + 6L * TILE_SIZE * TILE_SIZE * 4;
+	}
+
+	/**
+	 * @return the distance of the faces from the center, known before any tile is loaded
+	 */
+	public double getInnerRadius() {
+		return halfSize;
+	}
+
+	/**
+	 * @return the distance of the corners from the center
+	 */
+	public double getOuterRadius() {
+		return halfSize * Math.sqrt(3);
+	}
+
+	/**
+	 * Splits the background image into the tiles of all levels, only missing or stale tiles are generated.
+	 * The image is never decoded as a whole: every level reads it subsampled to the resolution the level
+	 * needs, in bands of rows which are bounded by the tile budget unless a single tile needs more.
+	 * Runs on a background thread.
+	 */
+	private void generateTiles() {
+		ResourceLoader rl = ResourceLoader.getInstance();
+		URL source = rl.getResourceURL(resource);
+		RawTextureCache cache = rl.getRawTextureCache();
+		if (source == null || cache == null) {
+			Log.RESOURCES.warn("No resource or tile cache for the streamed sky ", resource);
+			return;
+		}
+
+		byte[] tilePixels = new byte[TILE_SIZE * TILE_SIZE * 4];
+		try {
+			int[] size = null;
+			// level 0 first so the sky shows up as early as possible
+			for (int level = 0; level < levels; level++) {
+				int n = 1 << level;
+				List<double[]> missing = new ArrayList<>();
+				for (int f = 0; f < 6; f++) {
+					for (int ty = 0; ty < n; ty++) {
+						for (int tx = 0; tx < n; tx++) {
+							if (cache.isValid(tileKey(resource, f, level, tx, ty), level, source)) continue;
+							double[] v = polarRange(f, level, tx, ty);
+							missing.add(new double[] { v[0], v[1], f, tx, ty });
+						}
+					}
+				}
+				if (!missing.isEmpty()) {
+					if (size == null) size = readSize(source);
+					// four tiles of the level around the equator
+					int subsampling = Math.max(1, size[0] / (4 * TILE_SIZE * n));
+					int height = (size[1] + subsampling - 1) / subsampling;
+					long bandRows = Math.max(1, budgetBytes / (8L * ((size[0] + subsampling - 1) / subsampling)));
+					missing.sort((a, b) -> Double.compare(a[0], b[0]));
+
+					Band band = null;
+					for (double[] tile : missing) {
+						int y0 = Math.max(0, (int) Math.floor(tile[0] * height) - 2);
+						int y1 = Math.min(height, (int) Math.ceil(tile[1] * height) + 2);
+						if (band == null || y0 < band.y || y1 > band.y + band.height) {
+							// the old band is garbage before the next one is decoded
+							band = null;
+							band = readBand(source, subsampling, y0, (int) Math.min(height, Math.max(y1, y0 + bandRows)));
+						}
+						int f = (int) tile[2], tx = (int) tile[3], ty = (int) tile[4];
+						renderTile(band, height, f, level, tx, ty, tilePixels);
+						cache.store(tileKey(resource, f, level, tx, ty), level, source, TILE_SIZE, TILE_SIZE, tilePixels);
+					}
+				}
+				generatedLevels = level + 1;
+			}
+		} catch (IOException | RuntimeException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * @return width and height of the image, only its header is read
+	 */
+	private static int[] readSize(URL source) throws IOException {
+		try (InputStream in = source.openStream(); ImageInputStream stream = ImageIO.createImageInputStream(in)) {
+			ImageReader reader = reader(stream, source);
+			try {
+				return new int[] { reader.getWidth(0), reader.getHeight(0) };
+			} finally {
+				reader.dispose();
+			}
+		}
+	}
+
+	/**
+	 * Decodes the rows y0 to y1 of the image subsampled by the given factor
+	 */
+	private static Band readBand(URL source, int subsampling, int y0, int y1) throws IOException {
+		try (InputStream in = source.openStream(); ImageInputStream stream = ImageIO.createImageInputStream(in)) {
+			ImageReader reader = reader(stream, source);
+			try {
+				int sourceHeight = reader.getHeight(0);
+				int top = y0 * subsampling;
+				ImageReadParam param = reader.getDefaultReadParam();
+				param.setSourceRegion(new Rectangle(0, top, reader.getWidth(0), Math.min(sourceHeight, y1 * subsampling) - top));
+				param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+				BufferedImage img = reader.read(0, param);
+				int w = img.getWidth();
+				int h = img.getHeight();
+				return new Band(img.getRGB(0, 0, w, h, null, 0, w), w, y0, h);
+			} finally {
+				reader.dispose();
+			}
+		}
+	}
+
+	private static ImageReader reader(ImageInputStream stream, URL source) throws IOException {
+		Iterator<ImageReader> readers = stream == null ? null : ImageIO.getImageReaders(stream);
+		if (readers == null || !readers.hasNext()) throw new IOException("No image reader for " + source);
+		ImageReader reader = readers.next();
+		reader.setInput(stream, true, true);
+		return reader;
+	}
+
+	/**
+	 * @return the smallest and the largest polar angle / PI of the tile, the rows of the image it samples
+	 */
+	private static double[] polarRange(int face, int level, int tx, int ty) {
+		double[] b = FACES[face];
+		int n = 1 << level;
+		double min = 1, max = 0;
+		for (int j = 0; j <= POLAR_SAMPLES; j++) {
+			double t = ((ty + (double) j / POLAR_SAMPLES) / n) * 2 - 1;
+			for (int i = 0; i <= POLAR_SAMPLES; i++) {
+				double s = ((tx + (double) i / POLAR_SAMPLES) / n) * 2 - 1;
+				double v = polar(b, s, t);
+				min = Math.min(min, v);
+				max = Math.max(max, v);
+			}
+		}
+		// between two samples the angle changes by less than their distance, at most a quarter turn / n / samples
+		double pad = 0.5 / n / POLAR_SAMPLES;
+		return new double[] { Math.max(0, min - pad), Math.min(1, max + pad) };
+	}
+
+	/**
+	 * @return the polar angle / PI of the point (s, t) of the face, the v coordinate in the equirectangular image
+	 */
+	private static double polar(double[] b, double s, double t) {
+		double dx = b[0] + b[3] * s + b[6] * t;
+		double dy = b[1] + b[4] * s + b[7] * t;
+		double dz = b[2] + b[5] * s + b[8] * t;
+		double len = Math.sqrt(dx * dx + dy * dy + dz * dz);
+		return Math.acos(Math.max(-1, Math.min(1, -dy / len))) / Math.PI;
+	}
+
+	/**
+	 * Samples the tile from the band of the equirectangular image with bilinear filtering
+	 *
+	 * @param height the height of the whole image at the subsampling of the band
+	 */
+	private static void renderTile(Band src, int height, int face, int level, int tx, int ty, byte[] dst) {
+		double[] b = FACES[face];
+		int n = 1 << level;
+		for (int py = 0; py < TILE_SIZE; py++) {
+			double t = ((ty + (py + 0.5) / TILE_SIZE) / n) * 2 - 1;
+			for (int px = 0; px < TILE_SIZE; px++) {
+				double s = ((tx + (px + 0.5) / TILE_SIZE) / n) * 2 - 1;
+				double dx = b[0] + b[3] * s + b[6] * t;
+				double dz = b[2] + b[5] * s + b[8] * t;
+
+				double u = 0.5 + Math.atan2(dx, -dz) / (2 * Math.PI);
+				double v = polar(b, s, t);
+				int argb = sample(src, height, u * src.width - 0.5, v * height - 0.5);
+
+				int i = (py * TILE_SIZE + px) * 4;
+				dst[i] = (byte) argb;
+				dst[i + 1] = (byte) (argb >> 8);
+				dst[i + 2] = (byte) (argb >> 16);
+				dst[i + 3] = (byte) 0xff;
+			}
+		}
+	}
+
+	private static int sample(Band src, int height, double x, double y) {
+		int x0 = (int) Math.floor(x);
+		int y0 = (int) Math.floor(y);
+		double fx = x - x0;
+		double fy = y - y0;
+		int width = src.width;
+		int xa = Math.floorMod(x0, width);
+		int xb = Math.floorMod(x0 + 1, width);
+		int ya = src.row(Math.max(0, Math.min(height - 1, y0)));
+		int yb = src.row(Math.max(0, Math.min(height - 1, y0 + 1)));
+		int[] px = src.pixels;
+		int p00 = px[ya * width + xa];
+		int p10 = px[ya * width + xb];
+		int p01 = px[yb * width + xa];
+		int p11 = px[yb * width + xb];
+		int r = lerp(p00 >> 16, p10 >> 16, p01 >> 16, p11 >> 16, fx, fy);
+		int g = lerp(p00 >> 8, p10 >> 8, p01 >> 8, p11 >> 8, fx, fy);
+		int bl = lerp(p00, p10, p01, p11, fx, fy);
+		return 0xff000000 | (r << 16) | (g << 8) | bl;
+	}
+
+	private static int lerp(int c00, int c10, int c01, int c11, double fx, double fy) {
+		double top = (c00 & 0xff) * (1 - fx) + (c10 & 0xff) * fx;
+		double bottom = (c01 & 0xff) * (1 - fx) + (c11 & 0xff) * fx;
+		return (int) Math.round(top * (1 - fy) + bottom * fy) & 0xff;
+	}
+
+	/**
+	 * @return the resource name under which the tile is stored in the tile cache
+	 */
+	private static String tileKey(String resource, int face, int level, int x, int y) {
+		return resource + ".f" + face + "l" + level + "x" + x + "y" + y;
+	}
+
+	/**
+	 * Rows of the equirectangular image as ARGB, y is the first row in the whole image
+	 */
+	private static final class Band {
+		final int[] pixels;
+		final int width;
+		final int y;
+		final int height;
+
+		Band(int[] pixels, int width, int y, int height) {
+			this.pixels = pixels;
+			this.width = width;
+			this.y = y;
+			this.height = height;
+		}
+
+		/**
+		 * @return the row of the band for a row of the whole image, clamped to the band
+		 */
+		int row(int imageRow) {
+			return Math.max(0, Math.min(height - 1, imageRow - y));
+		}
+	}
+
+	/**
+	 * One node of the quadtree of a cube face
+	 */
+	private final class Tile {
+		final int face;
+		final int level;
+		final int x;
+		final int y;
+		/**
+		 * unit direction to the tile center and the angle between center and corner
+		 */
+		final double cx, cy, cz;
+		final double angularRadius;
+
+		Tile[] children = null;
+		Image image = null;
+		ImageView view = null;
+		boolean loading = false;
+
+		Tile(int face, int level, int x, int y) {
+			this.face = face;
+			this.level = level;
+			this.x = x;
+			this.y = y;
+
+			double[] b = FACES[face];
+			int n = 1 << level;
+			double s = ((x + 0.5) / n) * 2 - 1;
+			double t = ((y + 0.5) / n) * 2 - 1;
+			double dx = b[0] + b[3] * s + b[6] * t;
+			double dy = b[1] + b[4] * s + b[7] * t;
+			double dz = b[2] + b[5] * s + b[8] * t;
+			double len = Math.sqrt(dx * dx + dy * dy + dz * dz);
+			cx = dx / len;
+			cy = dy / len;
+			cz = dz / len;
+
+			// the corner farthest from the center, the tiles are not symmetric on the cube face
+			double radius = 0;
+			for (int corner = 0; corner < 4; corner++) {
+				double s0 = ((double) (x + (corner & 1)) / n) * 2 - 1;
+				double t0 = ((double) (y + (corner >> 1)) / n) * 2 - 1;
+				double ex = b[0] + b[3] * s0 + b[6] * t0;
+				double ey = b[1] + b[4] * s0 + b[7] * t0;
+				double ez = b[2] + b[5] * s0 + b[8] * t0;
+				double elen = Math.sqrt(ex * ex + ey * ey + ez * ez);
+				radius = Math.max(radius, Math.acos(Math.max(-1, Math.min(1, (ex * cx + ey * cy + ez * cz) / elen))));
+			}
+			angularRadius = radius;
+		}
+
+		Tile[] children() {
+			if (children == null) {
+				if (level + 1 >= levels) return new Tile[0];
+				children = new Tile[] {
+					new Tile(face, level + 1, x * 2, y * 2),
+					new Tile(face, level + 1, x * 2 + 1, y * 2),
+					new Tile(face, level + 1, x * 2, y * 2 + 1),
+					new Tile(face, level + 1, x * 2 + 1, y * 2 + 1),
+				};
+			}
+			return children;
+		}
+
+		long bytes() {
+			return (long) TILE_SIZE * TILE_SIZE * 4;
+		}
+
+		String key() {
+			return tileKey(resource, face, level, x, y);
+		}
+	}
+}
@@ -0,0 +1,488 @@
+package util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import javafx.scene.image.Image;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.PixelReader;
+import javafx.scene.image.PixelWriter;
+import javafx.scene.image.WritableImage;
+import javafx.scene.paint.Color;
+import javafx.scene.paint.PhongMaterial;
+
+/**
+ * Cache for all decoded textures and the PhongMaterials using them.
+ *
+ * Textures are cached by resource name and LOD level, LOD level 0 is the full resolution
+ * and every level above halves the width and height.
+ * The cache holds at most the configured amount of bytes (texture.cache.budget.mb in config.properties).
+ * If the budget is exceeded the least recently used texture is replaced by its next lower mip, all
+ * materials using the texture are switched to the lower mip. Textures of the lowest mip level are never evicted.
+ *
+ * Materials requested with {@link #getMaterial(int, int, Color, String...)} are loaded in the background and
+ * upgraded to the requested LOD level again the next time they are requested. They are shared by all callers
+ * and counted, a material is only dropped by the last {@link #releaseMaterial(PhongMaterial)}.
+ *
+ * All methods are thread safe, materials are only modified on the FX Application thread.
+ */
+public class TextureCache {
+	public static final int DEFAULT_BUDGET_MB = 384;
+	public static final int DEFAULT_MAX_TEXTURE_WIDTH = 2048;
+
+	/**
+	 * The lowest mip level - textures of this level are never evicted
+	 */
+	public static final int MAX_LOD = 4;
+
+	/**
+	 * Flags for the maps of a PhongMaterial which are set to the texture
+	 */
+	public static final int DIFFUSE_MAP = 1;
+	public static final int SELF_ILLUMINATION_MAP = 2;
+	public static final int SPECULAR_MAP = 4;
+
+	private final LinkedHashMap<Key, Entry> textures = new LinkedHashMap<>(64, 0.75f, true);
+	private final Map<String, MaterialEntry> materials = new HashMap<>();
+	private final Map<PhongMaterial, MaterialEntry> materialEntries = new IdentityHashMap<>();
+
+	private final long budgetBytes;
+	private final int maxTextureWidth;
+	private long residentBytes = 0;
+	/**
+	 * Number of levels all materials are loaded below their requested level, the largest bias of all owners,
+	 * see {@link #setLodBias(Object, int)}
+	 */
+	private int lodBias = 0;
+	private final Map<Object, Integer> lodBiases = new IdentityHashMap<>();
+
+	private long hits = 0;
+	private long misses = 0;
+	private long evictions = 0;
+
+	TextureCache(long budgetBytes, int maxTextureWidth) {
+		this.budgetBytes = budgetBytes;
+		this.maxTextureWidth = maxTextureWidth;
+	}
+
+	/**
+	 * Returns the texture for the resource and LOD level, the texture is decoded if it is not cached.
+	 *
+	 * May return null if the image was not found
+	 * @param resource the resource name
+	 * @param lod the LOD level, 0 for full resolution
+	 * @return the texture
+	 */
+	public Image getImage(String resource, int lod) {
+		Key key = new Key(resource, lod);
+		synchronized (this) {
+			Entry e = textures.get(key);
+			if (e != null) {
+				hits++;
+				return e.image;
+			}
+			misses++;
+		}
+
+		// decode outside the lock, a concurrent decode of the same texture is harmless
+		Image img = ResourceLoader.getInstance().decodeImage(resource, lod);
+		if (img == null) return null;
+
+		List<Entry> evicted;
+		synchronized (this) {
+			Entry e = textures.get(key);
+			if (e != null) return e.image;
+			evicted = put(key, img);
+		}
+		degrade(evicted);
+		return img;
+	}
+
+	/**
+	 * Returns the texture only if it is already cached
+	 *
+	 * @return the cached texture or null
+	 */
+	public synchronized Image peekImage(String resource, int lod) {
+		Entry e = textures.get(new Key(resource, lod));
+		return e == null ? null : e.image;
+	}
+
+	/**
+	 * Returns the shared material for the given resources and LOD level.
+	 * If the material is not cached a placeholder material is returned and the texture is loaded in the background,
+	 * the resources are tried in the given order.
+	 * Every call must be matched by a call to {@link #releaseMaterial(PhongMaterial)} once the material is dropped.
+	 *
+	 * @param lod the LOD level, 0 for full resolution
+	 * @param maps the maps of the material which are set to the texture e.g. DIFFUSE_MAP | SELF_ILLUMINATION_MAP
+	 * @param placeholder the diffuse color of the material until the texture is loaded
+	 * @param resources the resource names to try in the given order
+	 * @return the material
+	 */
+	public PhongMaterial getMaterial(int lod, int maps, Color placeholder, String... resources) {
+		String materialKey = materialKey(resources[0], lod, maps);
+		MaterialEntry me;
+		boolean load;
+		synchronized (this) {
+			me = materials.get(materialKey);
+			if (me != null) {
+				hits++;
+				// the texture was replaced by a lower mip - load the requested level again
+				load = !me.loading && me.texture != null && me.texture.lod > targetLod(me);
+			} else {
+				misses++;
+				PhongMaterial material = new PhongMaterial(placeholder);
+				me = new MaterialEntry(material, lod, maps, resources);
+				materials.put(materialKey, me);
+				materialEntries.put(material, me);
+				load = true;
+			}
+			me.references++;
+			if (load) me.loading = true;
+		}
+		if (load) load(me);
+		return me.material;
+	}
+
+	private static String materialKey(String resource, int lod, int maps) {
+		return resource + "#" + lod + "#" + maps;
+	}
+
+	private void load(MaterialEntry me) {
+		int lod;
+		synchronized (this) {
+			lod = targetLod(me);
+		}
+		ResourceLoader.getInstance().loadImageAsync(lod, (resource, img) -> {
+			synchronized (this) {
+				me.loading = false;
+				if (!me.released) bind(me, new Key(resource, lod));
+			}
+			apply(me, img);
+		}, me.resources).whenComplete((img, e) -> {
+			if (img == null) {
+				synchronized (this) {
+					me.loading = false;
+				}
+			}
+		});
+	}
+
+	/**
+	 * The level a material is loaded with, must be called with the lock held
+	 */
+	private int targetLod(MaterialEntry me) {
+		return Math.min(MAX_LOD, me.lod + lodBias);
+	}
+
+	/**
+	 * Loads all materials the given number of levels below their requested level, e.g. to lower the quality
+	 * under load. Every owner (e.g. the scene of a window) has its own bias, the largest one is applied as the
+	 * cache is shared. Materials which are not at the new level are reloaded in the background.
+	 */
+	public void setLodBias(Object owner, int bias) {
+		synchronized (this) {
+			lodBiases.put(owner, bias);
+		}
+		applyLodBias();
+	}
+
+	/**
+	 * Removes the bias of the owner, e.g. when its window is closed
+	 */
+	public void removeLodBias(Object owner) {
+		synchronized (this) {
+			if (lodBiases.remove(owner) == null) return;
+		}
+		applyLodBias();
+	}
+
+	private void applyLodBias() {
+		List<MaterialEntry> reload = new ArrayList<>();
+		synchronized (this) {
+			int bias = 0;
+			for (int b : lodBiases.values()) bias = Math.max(bias, b);
+			bias = Math.max(0, Math.min(MAX_LOD, bias));
+			if (bias == lodBias) return;
+			lodBias = bias;
+			for (MaterialEntry me : materials.values()) {
+				if (me.loading || me.texture == null || me.texture.lod == targetLod(me)) continue;
+				me.loading = true;
+				reload.add(me);
+			}
+		}
+		for (MaterialEntry me : reload) load(me);
+	}
+
+	public synchronized int getLodBias() {
+		return lodBias;
+	}
+
+	/**
+	 * Releases one reference to the material, e.g. when its shape is dropped. The last release removes the
+	 * material from the cache and unbinds it from its texture, the material keeps its maps and the texture
+	 * stays cached until it is evicted.
+	 */
+	public synchronized void releaseMaterial(PhongMaterial material) {
+		MaterialEntry me = materialEntries.get(material);
+		if (me == null || --me.references > 0) return;
+		materialEntries.remove(material);
+		materials.remove(materialKey(me.resources[0], me.lod, me.maps));
+		me.released = true;
+		if (me.texture != null) {
+			Entry e = textures.get(me.texture);
+			if (e != null) e.materials.remove(me);
+		}
+	}
+
+	/**
+	 * Binds the material to the texture so it follows the texture if it is replaced by a lower mip
+	 */
+	private void bind(MaterialEntry me, Key key) {
+		if (me.texture != null) {
+			Entry old = textures.get(me.texture);
+			if (old != null) old.materials.remove(me);
+		}
+		me.texture = key;
+		Entry e = textures.get(key);
+		if (e != null) e.materials.add(me);
+	}
+
+	/**
+	 * Sets the texture to the maps of the material on the FX Application thread
+	 */
+	private static void apply(MaterialEntry me, Image img) {
+		ResourceLoader.runOnFxThread(() -> {
+			PhongMaterial material = me.material;
+			material.setDiffuseColor(Color.WHITE);
+			if ((me.maps & DIFFUSE_MAP) != 0) material.setDiffuseMap(img);
+			if ((me.maps & SELF_ILLUMINATION_MAP) != 0) material.setSelfIlluminationMap(img);
+			if ((me.maps & SPECULAR_MAP) != 0) material.setSpecularMap(img);
+		});
+	}
+
+	/**
+	 * Adds the texture and evicts least recently used textures until the budget is met again.
+	 * The evicted textures are returned to be replaced by their mips with {@link #degrade(List)} after the lock is released.
+	 * Must be called with the lock held.
+	 */
+	private List<Entry> put(Key key, Image img) {
+		Entry added = new Entry(key, img);
+		textures.put(key, added);
+		residentBytes += added.bytes;
+
+		List<Entry> evicted = new ArrayList<>();
+		while (residentBytes > budgetBytes) {
+			Entry victim = null;
+			for (Iterator<Entry> it = textures.values().iterator(); it.hasNext();) {
+				Entry e = it.next();
+				if (e != added && e.key.lod < MAX_LOD) {
+					victim = e;
+					break;
+				}
+			}
+			if (victim == null) break;
+			textures.remove(victim.key);
+			residentBytes -= victim.bytes;
+			evictions++;
+			evicted.add(victim);
+		}
+		return evicted;
+	}
+
+	/**
+	 * Replaces the evicted textures by their next lower mips, all materials still using a texture are switched to its mip.
+	 * A texture no material uses is dropped without a mip.
+	 * The mips are built without holding the lock, so the FX thread is not blocked by the downsampling.
+	 * Adding a mip may evict further textures, they are appended to the list and degraded as well.
+	 */
+	private void degrade(List<Entry> evicted) {
+		for (int i = 0; i < evicted.size(); i++) {
+			Entry e = evicted.get(i);
+			Key mipKey = new Key(e.key.resource, e.key.lod + 1);
+			Image img;
+			synchronized (this) {
+				if (e.materials.isEmpty()) continue;
+				Entry mip = textures.get(mipKey);
+				img = mip == null ? null : mip.image;
+			}
+			if (img == null) img = downsample(e.image);
+			if (img == null) continue;
+
+			synchronized (this) {
+				Entry mip = textures.get(mipKey);
+				if (mip == null) {
+					evicted.addAll(put(mipKey, img));
+					mip = textures.get(mipKey);
+				}
+				for (MaterialEntry me : e.materials) {
+					// the material was loaded again in the meantime
+					if (!e.key.equals(me.texture)) continue;
+					me.texture = mipKey;
+					mip.materials.add(me);
+					apply(me, mip.image);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Halves width and height of the image with a 2x2 box filter, two source rows at a time
+	 */
+	static Image downsample(Image src) {
+		PixelReader reader = src.getPixelReader();
+		if (reader == null) return null;
+		int w = (int) src.getWidth();
+		int h = (int) src.getHeight();
+		int dw = Math.max(1, w / 2);
+		int dh = Math.max(1, h / 2);
+
+		int[] row0 = new int[w];
+		int[] row1 = new int[w];
+		int[] dstRow = new int[dw];
+		WritableImage dst = new WritableImage(dw, dh);
+		PixelWriter writer = dst.getPixelWriter();
+		for (int y = 0; y < dh; y++) {
+			int y0 = Math.min(h - 1, y * 2);
+			int y1 = Math.min(h - 1, y * 2 + 1);
+			reader.getPixels(0, y0, w, 1, PixelFormat.getIntArgbInstance(), row0, 0, w);
+			reader.getPixels(0, y1, w, 1, PixelFormat.getIntArgbInstance(), row1, 0, w);
+			for (int x = 0; x < dw; x++) {
+				int x0 = Math.min(w - 1, x * 2);
+				int x1 = Math.min(w - 1, x * 2 + 1);
+				dstRow[x] = average(row0[x0], row0[x1], row1[x0], row1[x1]);
+			}
+			writer.setPixels(0, y, dw, 1, PixelFormat.getIntArgbInstance(), dstRow, 0, dw);
+		}
+		return dst;
+	}
+
+	private static int average(int p0, int p1, int p2, int p3) {
+		int a = ((p0 >>> 24) + (p1 >>> 24) + (p2 >>> 24) + (p3 >>> 24)) >> 2;
+		int r = (((p0 >> 16) & 0xff) + ((p1 >> 16) & 0xff) + ((p2 >> 16) & 0xff) + ((p3 >> 16) & 0xff)) >> 2;
+		int g = (((p0 >> 8) & 0xff) + ((p1 >> 8) & 0xff) + ((p2 >> 8) & 0xff) + ((p3 >> 8) & 0xff)) >> 2;
+		int b = ((p0 & 0xff) + (p1 & 0xff) + (p2 & 0xff) + (p3 & 0xff)) >> 2;
+		return (a << 24) | (r << 16) | (g << 8) | b;
+	}
+
+	/**
+	 * Removes all textures and materials from the cache.
+	 * Materials already in use keep their textures.
+	 */
+	public synchronized void clear() {
+		textures.clear();
+		materials.clear();
+		materialEntries.clear();
+		residentBytes = 0;
+	}
+
+	public synchronized long getHitCount() {
+		return hits;
+	}
+
+	public synchronized long getMissCount() {
+		return misses;
+	}
+
+	public synchronized long getEvictionCount() {
+		return evictions;
+	}
+
+	public synchronized long getResidentBytes() {
+		return residentBytes;
+	}
+
+	public synchronized int getTextureCount() {
+		return textures.size();
+	}
+
+	/**
+	 * @return all cached textures of all LOD levels
+	 */
+	public synchronized List<Image> getImages() {
+		List<Image> images = new ArrayList<>(textures.size());
+		for (Entry entry : textures.values()) images.add(entry.image);
+		return images;
+	}
+
+	public long getBudgetBytes() {
+		return budgetBytes;
+	}
+
+	public int getMaxTextureWidth() {
+		return maxTextureWidth;
+	}
+
+	/**
+	 * Cache key of a texture
+	 */
+	private static final class Key {
+		final String resource;
+		final int lod;
+
+		Key(String resource, int lod) {
+			this.resource = resource;
+			this.lod = lod;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof Key)) return false;
+			Key k = (Key) o;
+			return lod == k.lod && resource.equals(k.resource);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(resource, lod);
+		}
+	}
+
+	/**
+	 * A cached texture and the materials using it
+	 */
+	private static final class Entry {
+		final Key key;
+		final Image image;
+		final long bytes;
+		final List<MaterialEntry> materials = new ArrayList<>();
+
+		Entry(Key key, Image image) {
+			this.key = key;
+			this.image = image;
+			// textures are uploaded as 32 bit BGRA
+			this.bytes = (long) image.getWidth() * (long) image.getHeight() * 4;
+		}
+	}
+
+	/**
+	 * A cached material and the texture currently bound to it
+	 */
+	private static final class MaterialEntry {
+		final PhongMaterial material;
+		final int lod;
+		final int maps;
+		final String[] resources;
+		Key texture = null;
+		boolean loading = false;
+		boolean released = false;
+		/**
+		 * number of getMaterial calls not yet matched by releaseMaterial
+		 */
+		int references = 0;
+
+		MaterialEntry(PhongMaterial material, int lod, int maps, String[] resources) {
+			this.material = material;
+			this.lod = lod;
+			this.maps = maps;
+			this.resources = resources;
+		}
+	}
+}
@@ -0,0 +1,132 @@
+package util;
+
+import java.util.Arrays;
+
+import javafx.scene.Node;
+
+/**
+ * Visibility state of many nodes kept as one bitmask per node.
+ *
+ * Each pass (e.g. culling) sets or clears its own flag, a node is visible if no flag is set.
+ * Changes are only collected while the passes run, {@link #apply()} then touches only the nodes whose
+ * visibility really changed, so an unchanged view causes no scene graph invalidation at all.
+ */
+public class VisibilitySet {
+	/**
+	 * Outside the view frustum
+	 */
+	public static final int CULLED = 1;
+	/**
+	 * Smaller than the impostor threshold, drawn as a point sprite instead
+	 */
+	public static final int IMPOSTOR = 2;
+	/**
+	 * Part of a subsystem which is drawn as its central body only
+	 */
+	public static final int AGGREGATED = 4;
+	/**
+	 * Detached from the scene graph by the streaming
+	 */
+	public static final int STREAMED = 8;
+	/**
+	 * Left out at the current quality level
+	 */
+	public static final int DETAIL = 16;
+
+	private Node[] nodes = new Node[16];
+	private int[] masks = new int[16];
+	private boolean[] pending = new boolean[16];
+	private int[] changed = new int[16];
+	private int changedCount = 0;
+	private int size = 0;
+
+	/**
+	 * @return the index of the node in this set
+	 */
+	public int add(Node node) {
+		if (size == nodes.length) {
+			int capacity = size * 2;
+			nodes = Arrays.copyOf(nodes, capacity);
+			masks = Arrays.copyOf(masks, capacity);
+			pending = Arrays.copyOf(pending, capacity);
+			changed = Arrays.copyOf(changed, capacity);
+		}
+		nodes[size] = node;
+		masks[size] = 0;
+		return size++;
+	}
+
+	/**
+	 * Sets or clears a flag, the node itself is only changed by {@link #apply()}
+	 */
+	public void set(int i, int flag, boolean on) {
+		int mask = on ? masks[i] | flag : masks[i] & ~flag;
+		if (mask == masks[i]) return;
+		masks[i] = mask;
+		if (!pending[i]) {
+			pending[i] = true;
+			changed[changedCount++] = i;
+		}
+	}
+
+	public boolean isSet(int i, int flag) {
+		return (masks[i] & flag) != 0;
+	}
+
+	public boolean isVisible(int i) {
+		return masks[i] == 0;
+	}
+
+	public int getMask(int i) {
+		return masks[i];
+	}
+
+	public Node getNode(int i) {
+		return nodes[i];
+	}
+
+	/**
+	 * Replaces the node of an entry, e.g. when it is created again, the new node takes over the flags at once
+	 *
+	 * @param node the new node, null while the entry has no node
+	 */
+	public void setNode(int i, Node node) {
+		nodes[i] = node;
+		if (node != null) node.setVisible(masks[i] == 0);
+	}
+
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Applies all changes since the last call to the nodes, must be called on the FX Application thread
+	 *
+	 * @return the number of nodes whose visibility changed
+	 */
+	public int apply() {
+		int count = 0;
+		for (int c = 0; c < changedCount; c++) {
+			int i = changed[c];
+			pending[i] = false;
+			boolean visible = masks[i] == 0;
+			if (nodes[i] != null && nodes[i].isVisible() != visible) {
+				nodes[i].setVisible(visible);
+				count++;
+			}
+		}
+		changedCount = 0;
+		return count;
+	}
+
+	/**
+	 * @return the number of nodes with the flag set
+	 */
+	public int count(int flag) {
+		int count = 0;
+		for (int i = 0; i < size; i++) {
+			if ((masks[i] & flag) != 0) count++;
+		}
+		return count;
+	}
+}
@@ -0,0 +1,198 @@
+package util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javafx.geometry.Point3D;
+import javafx.scene.Node;
+import javafx.scene.Parent;
+
+/**
+ * Frame coherent cache of the world (SubScene) transforms of all tracked nodes.
+ *
+ * Once per frame {@link #update()} composes the local to parent transforms down the hierarchy, every
+ * shared parent pane is only visited once. The results are kept in a primitive array so camera, picking
+ * and culling code can read world positions without walking the transform chain with localToScene and
+ * without allocating Bounds or Point3D objects.
+ *
+ * The bodies only move when the animations are pulsed, so the cache stays valid for all
+ * input events until the next frame.
+ */
+public class WorldTransformCache {
+	private Node root = null;
+
+	/**
+	 * tracked nodes and all their ancestors, a parent is always stored before its children
+	 */
+	private final List<Node> nodes = new ArrayList<>();
+	private final List<Node> tracked = new ArrayList<>();
+	/**
+	 * the tracked nodes for the lookup in {@link #track(Node)}, a list lookup makes tracking large catalogs quadratic
+	 */
+	private final Set<Node> trackedSet = Collections.newSetFromMap(new IdentityHashMap<>());
+	private final Map<Node, Integer> index = new IdentityHashMap<>();
+	private int[] parents = new int[0];
+	private double[] world = new double[0];
+
+	private boolean dirty = true;
+	private long frame = 0;
+
+	private final double[] point = new double[3];
+	private final double[] matrix = new double[AffineMath.SIZE];
+
+	/**
+	 * @param root the root of the SubScene, world coordinates are the coordinates of the SubScene
+	 */
+	public void setRoot(Node root) {
+		this.root = root;
+		dirty = true;
+	}
+
+	/**
+	 * Adds a node whose world transform is calculated every frame
+	 */
+	public void track(Node node) {
+		if (!trackedSet.add(node)) return;
+		tracked.add(node);
+		dirty = true;
+	}
+
+	public void untrack(Node node) {
+		if (!trackedSet.remove(node)) return;
+		tracked.remove(node);
+		dirty = true;
+	}
+
+	/**
+	 * Calculates the world transforms of all tracked nodes, called once per frame
+	 */
+	public void update() {
+		if (!dirty && !isHierarchyValid()) dirty = true;
+		if (dirty) rebuild();
+
+		for (int i = 0; i < nodes.size(); i++) {
+			Node node = nodes.get(i);
+			int p = parents[i];
+			if (p < 0) {
+				AffineMath.set(node.getLocalToParentTransform(), world, i * AffineMath.SIZE);
+			} else {
+				AffineMath.multiply(world, p * AffineMath.SIZE, node.getLocalToParentTransform(), world, i * AffineMath.SIZE);
+			}
+		}
+		frame++;
+	}
+
+	/**
+	 * A node moved to another parent since the last rebuild (e.g. the camera or a streamed body)
+	 */
+	private boolean isHierarchyValid() {
+		for (int i = 0; i < nodes.size(); i++) {
+			int p = parents[i];
+			Parent parent = nodes.get(i).getParent();
+			if (p < 0 ? (parent != null && nodes.get(i) != root) : parent != nodes.get(p)) return false;
+		}
+		return true;
+	}
+
+	private void rebuild() {
+		nodes.clear();
+		index.clear();
+		List<Integer> parentList = new ArrayList<>();
+		for (Node node : tracked) {
+			add(node, parentList);
+		}
+		parents = new int[nodes.size()];
+		for (int i = 0; i < parents.length; i++) parents[i] = parentList.get(i);
+		if (world.length < nodes.size() * AffineMath.SIZE) world = new double[nodes.size() * AffineMath.SIZE];
+		dirty = false;
+	}
+
+	private int add(Node node, List<Integer> parentList) {
+		Integer i = index.get(node);
+		if (i != null) return i;
+		Parent parent = node.getParent();
+		int p = (node == root || parent == null) ? -1 : add(parent, parentList);
+		int n = nodes.size();
+		nodes.add(node);
+		parentList.add(p);
+		index.put(node, n);
+		return n;
+	}
+
+	/**
+	 * @return the index of the node in {@link #getWorldTransforms()} or -1 if the node is not cached
+	 */
+	public int indexOf(Node node) {
+		Integer i = index.get(node);
+		return i == null ? -1 : i;
+	}
+
+	/**
+	 * @return the world transforms of the cached nodes, {@link AffineMath#SIZE} values per node
+	 */
+	public double[] getWorldTransforms() {
+		return world;
+	}
+
+	/**
+	 * Transforms a point from the local coordinates of the node to world coordinates.
+	 * If the node is not cached its parent is used with the current local transform of the node,
+	 * which is correct for the camera which changes in between frames. Otherwise localToScene is used.
+	 *
+	 * @param node the node
+	 * @param x local x
+	 * @param y local y
+	 * @param z local z
+	 * @param out x, y, z in world coordinates
+	 */
+	public void localToWorld(Node node, double x, double y, double z, double[] out) {
+		int i = indexOf(node);
+		if (i >= 0) {
+			AffineMath.transform(world, i * AffineMath.SIZE, x, y, z, out);
+			return;
+		}
+		getWorldTransform(node, matrix);
+		AffineMath.transform(matrix, 0, x, y, z, out);
+	}
+
+	/**
+	 * Writes the world transform of the node to out[0..11].
+	 * Like {@link #localToWorld(Node, double, double, double, double[])} a node which is not cached is composed
+	 * from its cached parent and its current local transform.
+	 */
+	public void getWorldTransform(Node node, double[] out) {
+		int i = indexOf(node);
+		if (i >= 0) {
+			System.arraycopy(world, i * AffineMath.SIZE, out, 0, AffineMath.SIZE);
+			return;
+		}
+		Parent parent = node.getParent();
+		int p = parent == null ? -1 : indexOf(parent);
+		if (p >= 0) {
+			AffineMath.multiply(world, p * AffineMath.SIZE, node.getLocalToParentTransform(), out, 0);
+		} else if (parent == null) {
+			AffineMath.set(node.getLocalToParentTransform(), out, 0);
+		} else {
+			AffineMath.set(node.getLocalToSceneTransform(), out, 0);
+		}
+	}
+
+	/**
+	 * @return the origin of the node in world coordinates
+	 */
+	public Point3D getCenter(Node node) {
+		localToWorld(node, 0, 0, 0, point);
+		return new Point3D(point[0], point[1], point[2]);
+	}
+
+	/**
+	 * @return the number of frames the cache was updated
+	 */
+	public long getFrame() {
+		return frame;
+	}
+}